@@ -0,0 +1,170 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+
+/**
+ * This class implements an in memory, content addressed store for the chunks of binary
+ * strings.  Each binary string is split into content defined chunks, and each chunk is
+ * stored once under a tag containing its SHA-256 digest.  A binary string is stored as a
+ * recipe (the tags of its chunks), and it is reassembled as a rope over the stored chunks, so
+ * binary strings that share content also share storage.  The store is thread-safe.
+ *
+ * @author Derk Norton
+ */
+public final class BinaryChunkStore {
+
+    static private final int DIGEST_SIZE = 32;
+
+    private final BinaryChunker chunker;
+    private final TagMap<BinaryString> chunks = new TagMap<>(DIGEST_SIZE);
+    private long storedBytes;
+
+
+    /**
+     * This default constructor creates a new store that uses a chunker with the default
+     * chunk sizes.
+     */
+    public BinaryChunkStore() {
+        this(new BinaryChunker());
+    }
+
+
+    /**
+     * This constructor creates a new store that uses the specified chunker.
+     *
+     * @param chunker The chunker used to split binary strings.
+     */
+    public BinaryChunkStore(BinaryChunker chunker) {
+        this.chunker = chunker;
+    }
+
+
+    /**
+     * This method stores the specified binary string and returns its recipe.  Only the
+     * chunks that are not already in the store are added.
+     *
+     * @param binary The binary string to be stored.
+     * @return The tags for the chunks of the binary string, in order.
+     */
+    public Tag[] store(BinaryString binary) {
+        List<BinaryString> pieces = chunker.split(binary);
+        Tag[] recipe = new Tag[pieces.size()];
+        for (int i = 0; i < recipe.length; i++) {
+            recipe[i] = put(pieces.get(i));
+        }
+        return recipe;
+    }
+
+
+    /**
+     * This method reassembles the binary string for the specified recipe.  The result is a
+     * rope over the stored chunks so no bytes are copied.
+     *
+     * @param recipe The tags for the chunks of the binary string.
+     * @return The binary string.
+     * @throws IllegalArgumentException One of the chunks is not in the store.
+     */
+    public BinaryString load(Tag[] recipe) {
+        BinaryString result = new BinaryString();
+        for (Tag tag : recipe) {
+            BinaryString chunk = get(tag);
+            if (chunk == null) throw new IllegalArgumentException("The store does not contain the chunk: " + tag);
+            result = result.concat(chunk);
+        }
+        return result;
+    }
+
+
+    /**
+     * This method adds the specified chunk to the store if it is not already there.
+     *
+     * @param chunk The chunk to be added.
+     * @return The tag containing the digest of the chunk.
+     */
+    public Tag put(BinaryString chunk) {
+        Tag tag = digestOf(chunk);
+        synchronized (chunks) {
+            if (!chunks.containsKey(tag)) {
+                // copy the chunk so that it does not keep the rest of its binary string alive
+                chunks.put(tag, BinaryString.wrap(chunk.toBytes()));
+                storedBytes += chunk.getSize();
+            }
+        }
+        return tag;
+    }
+
+
+    /**
+     * This method returns the chunk with the specified tag.
+     *
+     * @param tag The tag containing the digest of the chunk.
+     * @return The chunk, or null if it is not in the store.
+     */
+    public BinaryString get(Tag tag) {
+        synchronized (chunks) {
+            return chunks.get(tag);
+        }
+    }
+
+
+    /**
+     * This method returns whether or not the store contains the chunk with the specified tag.
+     *
+     * @param tag The tag containing the digest of the chunk.
+     * @return Whether or not the chunk is in the store.
+     */
+    public boolean contains(Tag tag) {
+        synchronized (chunks) {
+            return chunks.containsKey(tag);
+        }
+    }
+
+
+    /**
+     * This method returns the number of distinct chunks in the store.
+     *
+     * @return The number of chunks.
+     */
+    public int getSize() {
+        synchronized (chunks) {
+            return chunks.size();
+        }
+    }
+
+
+    /**
+     * This method returns the total number of bytes in the distinct chunks in the store.
+     *
+     * @return The number of stored bytes.
+     */
+    public long getStoredBytes() {
+        synchronized (chunks) {
+            return storedBytes;
+        }
+    }
+
+
+    static private Tag digestOf(BinaryString chunk) {
+        try {
+            // the chunks are short lived slices so their digests are not cached
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            chunk.updateDigest(digest);
+            return new Tag(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported.", e);  // required by every JVM
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * This class splits binary strings into content defined chunks using the FastCDC algorithm.
+ * A gear based rolling hash is computed over the bytes and a chunk ends where the hash matches
+ * a mask, so the boundaries depend on the nearby bytes rather than on their positions.  When
+ * bytes are inserted into or removed from a binary string, only the chunks around the change
+ * are different, which lets similar binary strings share most of their chunks.
+ * <p>
+ * A stricter mask is used before the average chunk size and a looser one after it (normalized
+ * chunking) so that the chunk sizes cluster around the average.  The chunks are slices of the
+ * original binary string so no bytes are copied.
+ *
+ * @author Derk Norton
+ */
+public final class BinaryChunker {
+
+    static private final int DEFAULT_MINIMUM_SIZE = 2 * 1024;
+    static private final int DEFAULT_AVERAGE_SIZE = 8 * 1024;
+    static private final int DEFAULT_MAXIMUM_SIZE = 64 * 1024;
+
+    // the gear table must never change since the chunk boundaries depend on it
+    static private final long[] GEAR = new long[256];
+    static {
+        long seed = 0x5EED5EED5EED5EEDL;
+        for (int i = 0; i < GEAR.length; i++) {
+            // splitmix64
+            long z = (seed += 0x9E3779B97F4A7C15L);
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            GEAR[i] = z ^ (z >>> 31);
+        }
+    }
+
+    private final int minimumSize;
+    private final int averageSize;
+    private final int maximumSize;
+    private final long strictMask;
+    private final long looseMask;
+
+
+    /**
+     * This default constructor creates a new chunker with a minimum chunk size of 2 KB, an
+     * average chunk size of 8 KB and a maximum chunk size of 64 KB.
+     */
+    public BinaryChunker() {
+        this(DEFAULT_MINIMUM_SIZE, DEFAULT_AVERAGE_SIZE, DEFAULT_MAXIMUM_SIZE);
+    }
+
+
+    /**
+     * This constructor creates a new chunker with the specified chunk sizes.
+     *
+     * @param minimumSize The minimum size of a chunk (except for the last one).
+     * @param averageSize The average size of a chunk, which must be a power of two.
+     * @param maximumSize The maximum size of a chunk.
+     */
+    public BinaryChunker(int minimumSize, int averageSize, int maximumSize) {
+        if (Integer.bitCount(averageSize) != 1 || averageSize < 64) {
+            throw new IllegalArgumentException("The average size must be a power of two of at least 64: " + averageSize);
+        }
+        if (minimumSize < 1 || minimumSize > averageSize || maximumSize < averageSize) {
+            throw new IllegalArgumentException("The chunk sizes must be in increasing order: "
+                    + minimumSize + ", " + averageSize + ", " + maximumSize);
+        }
+        this.minimumSize = minimumSize;
+        this.averageSize = averageSize;
+        this.maximumSize = maximumSize;
+        // the high bits of the hash depend on the most bytes so the masks use those
+        int bits = Integer.numberOfTrailingZeros(averageSize);
+        this.strictMask = -1L << (64 - (bits + 1));
+        this.looseMask = -1L << (64 - (bits - 1));
+    }
+
+
+    /**
+     * This method splits the specified binary string into content defined chunks.  The
+     * chunks are slices of the binary string and concatenating them reproduces it.
+     *
+     * @param binary The binary string to be split.
+     * @return A list of the chunks.
+     */
+    public List<BinaryString> split(BinaryString binary) {
+        List<BinaryString> chunks = new ArrayList<>();
+        int size = binary.getSize();
+        byte[] buffer = new byte[Math.min(size, 4 * maximumSize)];
+        int loaded = 0;  // the index in the binary string of the first byte in the buffer
+        int limit = 0;  // the number of bytes in the buffer
+        int start = 0;  // the index in the binary string of the next chunk
+        while (start < size) {
+            int position = start - loaded;
+            if (limit - position < maximumSize && loaded + limit < size) {
+                // move the remaining bytes to the front of the buffer and fill up the rest
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                limit -= position;
+                loaded = start;
+                position = 0;
+                int count = Math.min(buffer.length - limit, size - loaded - limit);
+                binary.getBytes(loaded + limit, buffer, limit, count);
+                limit += count;
+            }
+            int length = cut(buffer, position, limit - position);
+            chunks.add(binary.slice(start, start + length));
+            start += length;
+        }
+        return chunks;
+    }
+
+
+    /*
+     * This method returns the length of the chunk that starts at the specified offset.
+     */
+    private int cut(byte[] bytes, int offset, int length) {
+        if (length <= minimumSize) return length;
+        if (length > maximumSize) length = maximumSize;
+        int normal = Math.min(averageSize, length);
+        long hash = 0L;
+        int i = minimumSize;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[bytes[offset + i] & 0xFF];
+            if ((hash & strictMask) == 0) return i + 1;
+        }
+        for (; i < length; i++) {
+            hash = (hash << 1) + GEAR[bytes[offset + i] & 0xFF];
+            if ((hash & looseMask) == 0) return i + 1;
+        }
+        return length;
+    }
+
+}
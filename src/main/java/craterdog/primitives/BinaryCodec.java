@@ -0,0 +1,329 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import craterdog.utils.Base02Utils;
+import craterdog.utils.Base16Utils;
+import craterdog.utils.Base32Utils;
+import craterdog.utils.Base64Utils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * This class provides streaming versions of the base 2, 16, 32 and 64 encodings used by the
+ * <code>BinaryString</code> class.  The bytes are encoded (or decoded) a chunk at a time so
+ * the memory used is the same regardless of the number of bytes.  The encoded lines are
+ * identical to those produced by the <code>BinaryString.toString(int, String)</code> method.
+ * <p>
+ * Binary strings (and encoded strings) that are larger than a threshold are encoded (and
+ * decoded) in parallel on the common fork join pool.  The chunks are aligned on line (and
+ * character group) boundaries so the results are identical to sequential encoding.
+ *
+ * @author Derk Norton
+ */
+public final class BinaryCodec {
+
+    // the number of bytes that are encoded at a time, a multiple of the bytes per line for each base
+    static final int CHUNK_SIZE = 600 * 100;
+
+    // the number of characters that are decoded at a time, a multiple of the characters per group for each base
+    static private final int CHARACTERS_SIZE = 8 * 10_000;
+
+    // the number of bytes (or characters) below which encoding (or decoding) is done sequentially
+    static final int PARALLEL_THRESHOLD = 1 << 20;
+
+
+    private BinaryCodec() {
+    }
+
+
+    /**
+     * This function encodes the bytes from the specified input stream using the specified
+     * base and appends the resulting lines to the specified output.  The specified whitespace
+     * indentation string is used to prefix each line.
+     *
+     * @param input The input stream containing the bytes to be encoded.
+     * @param base The base to be used for encoding the bytes (2, 16, 32, 64).
+     * @param indentation The (whitespace only) string that should be used to prefix each line.
+     * @param output The output to which the encoded lines are appended.
+     * @throws IOException The bytes could not be read or the lines could not be appended.
+     */
+    static public void encode(InputStream input, int base, String indentation, Appendable output) throws IOException {
+        checkBase(base);
+        byte[] chunk = new byte[CHUNK_SIZE];
+        int size = input.readNBytes(chunk, 0, CHUNK_SIZE);
+        output.append(encode(size == CHUNK_SIZE ? chunk : Arrays.copyOf(chunk, size), base, indentation));
+        while (size == CHUNK_SIZE) {
+            size = input.readNBytes(chunk, 0, CHUNK_SIZE);
+            if (size == 0) break;
+            output.append('\n');  // each chunk ends on a line boundary
+            output.append(encode(size == CHUNK_SIZE ? chunk : Arrays.copyOf(chunk, size), base, indentation));
+        }
+    }
+
+
+    /**
+     * This function encodes the bytes from the specified channel using the specified base
+     * and appends the resulting lines to the specified output.  The specified whitespace
+     * indentation string is used to prefix each line.
+     *
+     * @param input The channel containing the bytes to be encoded.
+     * @param base The base to be used for encoding the bytes (2, 16, 32, 64).
+     * @param indentation The (whitespace only) string that should be used to prefix each line.
+     * @param output The output to which the encoded lines are appended.
+     * @throws IOException The bytes could not be read or the lines could not be appended.
+     */
+    static public void encode(ReadableByteChannel input, int base, String indentation, Appendable output) throws IOException {
+        encode(Channels.newInputStream(input), base, indentation, output);
+    }
+
+
+    /**
+     * This function decodes the characters from the specified input using the specified base
+     * and writes the resulting bytes to the specified output stream.  Any whitespace in the
+     * characters (including line breaks and indentation) is ignored.
+     *
+     * @param input The input containing the characters to be decoded.
+     * @param base The base that was used to encode the bytes (2, 16, 32, 64).
+     * @param output The output stream to which the decoded bytes are written.
+     * @throws IOException The characters could not be read or the bytes could not be written.
+     */
+    static public void decode(Readable input, int base, OutputStream output) throws IOException {
+        checkBase(base);
+        CharBuffer buffer = CharBuffer.allocate(4096);
+        char[] characters = new char[CHARACTERS_SIZE];
+        int count = 0;
+        while (input.read(buffer) >= 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                char character = buffer.get();
+                if (isWhitespace(character)) continue;
+                characters[count++] = character;
+                if (count == CHARACTERS_SIZE) {
+                    // the characters form whole groups so they can be decoded on their own
+                    output.write(decodeChunk(new String(characters), base));
+                    count = 0;
+                }
+            }
+            buffer.clear();
+        }
+        if (count > 0) output.write(decodeChunk(new String(characters, 0, count), base));
+        output.flush();
+    }
+
+
+    /**
+     * This function decodes the characters from the specified input using the specified base
+     * and writes the resulting bytes to the specified channel.  Any whitespace in the
+     * characters (including line breaks and indentation) is ignored.
+     *
+     * @param input The input containing the characters to be decoded.
+     * @param base The base that was used to encode the bytes (2, 16, 32, 64).
+     * @param output The channel to which the decoded bytes are written.
+     * @throws IOException The characters could not be read or the bytes could not be written.
+     */
+    static public void decode(Readable input, int base, WritableByteChannel output) throws IOException {
+        decode(input, base, Channels.newOutputStream(output));
+    }
+
+
+    /*
+     * This function encodes the specified bytes using the specified base.
+     */
+    static String encode(byte[] bytes, int base, String indentation) {
+        switch (base) {
+            case 2:
+                return Base02Utils.encode(bytes, indentation);
+            case 16:
+                return Base16Utils.encode(bytes, indentation);
+            case 32:
+                return Base32Utils.encode(bytes, indentation);
+            case 64:
+                return Base64Utils.encode(bytes, indentation);
+            default:
+                throw new NumberFormatException("Base " + base + " binary strings not supported.");
+        }
+    }
+
+
+    /*
+     * This function encodes the bytes in the specified binary string in parallel using the
+     * specified base.
+     */
+    static String encode(BinaryString binary, int base, String indentation) {
+        checkBase(base);
+        int length = binary.getSize();
+        String[] chunks = new String[(length + CHUNK_SIZE - 1) / CHUNK_SIZE];
+        ForkJoinPool.commonPool().invoke(new EncodingTask(binary, base, indentation, chunks, 0, chunks.length));
+        int size = chunks.length - 1;  // for the line breaks between chunks
+        for (String chunk : chunks) {
+            size += chunk.length();
+        }
+        StringBuilder builder = new StringBuilder(size);
+        for (int i = 0; i < chunks.length; i++) {
+            if (i > 0) builder.append('\n');  // each chunk ends on a line boundary
+            builder.append(chunks[i]);
+        }
+        return builder.toString();
+    }
+
+
+    /*
+     * This function determines whether or not the specified character is one of the
+     * whitespace characters (the \s regular expression) that the Base*Utils decoders remove.
+     */
+    static private boolean isWhitespace(char character) {
+        return character == ' ' || character == '\n' || character == '\t' || character == '\r'
+                || character == '\f' || character == '\u000B';
+    }
+
+
+    /*
+     * This function decodes the specified string using the specified base.  Long strings
+     * are decoded in parallel.
+     */
+    static byte[] decode(String string, int base) {
+        if (string.length() < PARALLEL_THRESHOLD) return decodeChunk(string, base);
+        checkBase(base);
+        char[] characters = new char[string.length()];
+        int count = 0;
+        for (int i = 0; i < characters.length; i++) {
+            char character = string.charAt(i);
+            if (!isWhitespace(character)) characters[count++] = character;
+        }
+        if (count == 0) return new byte[0];  // only whitespace
+        // all chunks but the last contain whole character groups so they decode to the same size
+        int chunks = (count + CHARACTERS_SIZE - 1) / CHARACTERS_SIZE;
+        int last = (chunks - 1) * CHARACTERS_SIZE;
+        byte[] tail = decodeChunk(new String(characters, last, count - last), base);
+        int chunkSize = CHARACTERS_SIZE * Integer.numberOfTrailingZeros(base) / 8;
+        byte[] bytes = new byte[(chunks - 1) * chunkSize + tail.length];
+        System.arraycopy(tail, 0, bytes, (chunks - 1) * chunkSize, tail.length);
+        ForkJoinPool.commonPool().invoke(new DecodingTask(characters, base, bytes, chunkSize, 0, chunks - 1));
+        return bytes;
+    }
+
+
+    /*
+     * This function decodes the specified string using the specified base.
+     */
+    static private byte[] decodeChunk(String string, int base) {
+        switch (base) {
+            case 2:
+                return Base02Utils.decode(string);
+            case 16:
+                return Base16Utils.decode(string);
+            case 32:
+                return Base32Utils.decode(string);
+            case 64:
+                return Base64Utils.decode(string);
+            default:
+                throw new NumberFormatException("Base " + base + " binary strings not supported.");
+        }
+    }
+
+
+    static private void checkBase(int base) {
+        if (base != 2 && base != 16 && base != 32 && base != 64) {
+            throw new NumberFormatException("Base " + base + " binary strings not supported.");
+        }
+    }
+
+
+
+    /*
+     * This class encodes a range of chunks from a binary string, splitting the range in half
+     * until it contains a single chunk.
+     */
+    static private final class EncodingTask extends RecursiveAction {
+
+        static private final long serialVersionUID = 1L;
+
+        private final BinaryString binary;
+        private final int base;
+        private final String indentation;
+        private final String[] chunks;
+        private final int first;
+        private final int last;
+
+        private EncodingTask(BinaryString binary, int base, String indentation, String[] chunks, int first, int last) {
+            this.binary = binary;
+            this.base = base;
+            this.indentation = indentation;
+            this.chunks = chunks;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first > 1) {
+                int middle = (first + last) >>> 1;
+                invokeAll(new EncodingTask(binary, base, indentation, chunks, first, middle),
+                        new EncodingTask(binary, base, indentation, chunks, middle, last));
+            } else if (last > first) {
+                int index = first * CHUNK_SIZE;
+                byte[] chunk = new byte[Math.min(CHUNK_SIZE, binary.getSize() - index)];
+                binary.getBytes(index, chunk, 0, chunk.length);
+                chunks[first] = encode(chunk, base, indentation);
+            }
+        }
+
+    }
+
+
+    /*
+     * This class decodes a range of chunks of characters into their place in the bytes,
+     * splitting the range in half until it contains a single chunk.
+     */
+    static private final class DecodingTask extends RecursiveAction {
+
+        static private final long serialVersionUID = 1L;
+
+        private final char[] characters;
+        private final int base;
+        private final byte[] bytes;
+        private final int chunkSize;
+        private final int first;
+        private final int last;
+
+        private DecodingTask(char[] characters, int base, byte[] bytes, int chunkSize, int first, int last) {
+            this.characters = characters;
+            this.base = base;
+            this.bytes = bytes;
+            this.chunkSize = chunkSize;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first > 1) {
+                int middle = (first + last) >>> 1;
+                invokeAll(new DecodingTask(characters, base, bytes, chunkSize, first, middle),
+                        new DecodingTask(characters, base, bytes, chunkSize, middle, last));
+            } else if (last > first) {
+                byte[] chunk = decodeChunk(new String(characters, first * CHARACTERS_SIZE, CHARACTERS_SIZE), base);
+                System.arraycopy(chunk, 0, bytes, first * chunkSize, chunk.length);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,456 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+
+/**
+ * This class computes and applies binary deltas between binary strings.  A delta is a
+ * sequence of instructions that copy ranges of bytes from a base binary string or insert new
+ * bytes, and applying it to the base reproduces the target.
+ * <p>
+ * The deltas are found in the style of rsync: the base is divided into blocks that are
+ * indexed by a polynomial hash, and a rolling hash over the target finds the blocks that it
+ * shares with the base.  Each match is then extended backwards and forwards byte by byte.
+ * The target is read as a stream and the delta is written as a stream, so the memory used is
+ * bounded by the index over the base rather than by the size of the target.  The base is
+ * read where it is stored, so a rope or a memory mapped file is never flattened.
+ *
+ * @author Derk Norton
+ */
+public final class BinaryDelta {
+
+    static private final int MAGIC = 0x42444C54;  // "BDLT"
+    static private final int VERSION = 1;
+
+    static private final int END = 0;
+    static private final int COPY = 1;
+    static private final int INSERT = 2;
+
+    static private final int BLOCK_SIZE = 64;
+    static private final int MAXIMUM_INSERT = 64 * 1024;  // longer insertions are split up
+    static private final int MULTIPLIER = 0x01000193;
+    static private final int LEADING_FACTOR;  // MULTIPLIER to the power BLOCK_SIZE - 1
+    static {
+        int factor = 1;
+        for (int i = 1; i < BLOCK_SIZE; i++) {
+            factor *= MULTIPLIER;
+        }
+        LEADING_FACTOR = factor;
+    }
+
+
+    private BinaryDelta() {
+    }
+
+
+    /**
+     * This function returns the delta that transforms the specified base binary string into
+     * the specified target binary string.
+     *
+     * @param base The base binary string.
+     * @param target The target binary string.
+     * @return A binary string containing the delta.
+     */
+    static public BinaryString diff(BinaryString base, BinaryString target) {
+        try {
+            ByteArrayOutputStream delta = new ByteArrayOutputStream();
+            diff(base, new BinaryInputStream(target), delta);
+            return BinaryString.wrap(delta.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // never thrown by the in memory streams
+        }
+    }
+
+
+    /**
+     * This function writes the delta that transforms the specified base binary string into
+     * the bytes read from the specified target stream to the specified delta stream.
+     *
+     * @param base The base binary string.
+     * @param target The stream containing the target bytes.
+     * @param delta The stream to which the delta is written.
+     * @throws IOException The target could not be read or the delta could not be written.
+     */
+    static public void diff(BinaryString base, InputStream target, OutputStream delta) throws IOException {
+        Source source = new Source(base);
+        BlockIndex index = new BlockIndex(source);
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(delta));
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        writeNumber(output, source.size);
+
+        Window window = new Window(target);
+        int hash = 0;
+        boolean hashed = false;
+        while (true) {
+            if (window.limit - window.position < BLOCK_SIZE) window.fill();
+            if (window.limit - window.position < BLOCK_SIZE) break;  // the rest must be inserted
+            byte[] bytes = window.bytes;
+            if (!hashed) {
+                hash = hash(bytes, window.position);
+                hashed = true;
+            }
+            int block = index.find(hash, bytes, window.position);
+            if (block >= 0) {
+                // extend the match backwards into the pending insertion
+                int first = block;
+                int position = window.position;
+                while (position > window.start && first > 0 && bytes[position - 1] == source.get(first - 1)) {
+                    position--;
+                    first--;
+                }
+                writeInsert(output, bytes, window.start, position - window.start);
+                // extend the match forwards past the block
+                window.position += BLOCK_SIZE;
+                int next = block + BLOCK_SIZE;
+                while (next < source.size) {
+                    if (window.position == window.limit) {
+                        window.start = window.position;
+                        window.fill();
+                        if (window.position == window.limit) break;
+                    }
+                    if (window.bytes[window.position] != source.get(next)) break;
+                    window.position++;
+                    next++;
+                }
+                writeCopy(output, first, next - first);
+                window.start = window.position;
+                hashed = false;
+            } else {
+                if (window.position - window.start == MAXIMUM_INSERT) {
+                    writeInsert(output, bytes, window.start, MAXIMUM_INSERT);
+                    window.start = window.position;
+                }
+                if (window.position + BLOCK_SIZE < window.limit) {
+                    int outgoing = bytes[window.position] & 0xFF;
+                    int incoming = bytes[window.position + BLOCK_SIZE] & 0xFF;
+                    hash = (hash - outgoing * LEADING_FACTOR) * MULTIPLIER + incoming;
+                } else {
+                    hashed = false;
+                }
+                window.position++;
+            }
+        }
+        writeInsert(output, window.bytes, window.start, window.limit - window.start);
+        output.writeByte(END);
+        output.flush();
+    }
+
+
+    /**
+     * This function applies the specified delta to the specified base binary string and
+     * returns the target binary string.  The target is a rope over slices of the base and the
+     * inserted bytes so the copied ranges are not copied.
+     *
+     * @param base The base binary string.
+     * @param delta The delta to be applied.
+     * @return The target binary string.
+     * @throws IllegalArgumentException The delta is not valid for the base.
+     */
+    static public BinaryString patch(BinaryString base, BinaryString delta) {
+        try {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(new BinaryInputStream(delta)));
+            readHeader(input, base);
+            BinaryString result = new BinaryString();
+            while (true) {
+                int operation = input.readUnsignedByte();
+                if (operation == END) return result;
+                int first = operation == COPY ? readNumber(input) : 0;
+                int length = readNumber(input);
+                if (operation == COPY) {
+                    checkRange(base, first, length);
+                    result = result.concat(base.slice(first, first + length));
+                } else if (operation == INSERT) {
+                    byte[] bytes = new byte[length];
+                    input.readFully(bytes);
+                    result = result.concat(BinaryString.wrap(bytes));
+                } else {
+                    throw new IllegalArgumentException("The delta is corrupt.");
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The delta is truncated.", e);
+        }
+    }
+
+
+    /**
+     * This function applies the delta read from the specified stream to the specified base
+     * binary string and writes the target bytes to the specified target stream.
+     *
+     * @param base The base binary string.
+     * @param delta The stream containing the delta.
+     * @param target The stream to which the target bytes are written.
+     * @throws IOException The delta could not be read or the target could not be written.
+     * @throws IllegalArgumentException The delta is not valid for the base.
+     */
+    static public void patch(BinaryString base, InputStream delta, OutputStream target) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(delta));
+        readHeader(input, base);
+        byte[] buffer = new byte[MAXIMUM_INSERT];
+        while (true) {
+            int operation = input.readUnsignedByte();
+            if (operation == END) break;
+            int first = operation == COPY ? readNumber(input) : 0;
+            int length = readNumber(input);
+            if (operation == COPY) {
+                checkRange(base, first, length);
+            } else if (operation != INSERT) {
+                throw new IllegalArgumentException("The delta is corrupt.");
+            }
+            while (length > 0) {
+                int size = Math.min(length, buffer.length);
+                if (operation == COPY) {
+                    base.getBytes(first, buffer, 0, size);
+                    first += size;
+                } else {
+                    input.readFully(buffer, 0, size);
+                }
+                target.write(buffer, 0, size);
+                length -= size;
+            }
+        }
+        target.flush();
+    }
+
+
+    static private void readHeader(DataInputStream input, BinaryString base) throws IOException {
+        if (input.readInt() != MAGIC) throw new IllegalArgumentException("The stream does not contain a binary delta.");
+        if (input.readUnsignedByte() != VERSION) throw new IllegalArgumentException("The binary delta version is not supported.");
+        int size = readNumber(input);
+        if (size != base.getSize()) {
+            throw new IllegalArgumentException("The delta is for a base of " + size + " bytes not " + base.getSize() + " bytes.");
+        }
+    }
+
+
+    static private void checkRange(BinaryString base, int first, int length) {
+        if (first > base.getSize() - length) throw new IllegalArgumentException("The delta copies bytes past the end of the base.");
+    }
+
+
+    static private void writeInsert(DataOutputStream output, byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) return;
+        output.writeByte(INSERT);
+        writeNumber(output, length);
+        output.write(bytes, offset, length);
+    }
+
+
+    static private void writeCopy(DataOutputStream output, int first, int length) throws IOException {
+        output.writeByte(COPY);
+        writeNumber(output, first);
+        writeNumber(output, length);
+    }
+
+
+    /*
+     * This function writes a non-negative number seven bits at a time (LEB128).
+     */
+    static private void writeNumber(DataOutputStream output, int number) throws IOException {
+        while ((number & ~0x7F) != 0) {
+            output.writeByte((number & 0x7F) | 0x80);
+            number >>>= 7;
+        }
+        output.writeByte(number);
+    }
+
+
+    static private int readNumber(DataInputStream input) throws IOException {
+        int number = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int value = input.readUnsignedByte();
+            number |= (value & 0x7F) << shift;
+            if ((value & 0x80) == 0) {
+                if (number < 0) break;
+                return number;
+            }
+        }
+        throw new IllegalArgumentException("The delta is corrupt.");
+    }
+
+
+    static private int hash(byte[] bytes, int offset) {
+        int hash = 0;
+        for (int i = offset; i < offset + BLOCK_SIZE; i++) {
+            hash = hash * MULTIPLIER + (bytes[i] & 0xFF);
+        }
+        return hash;
+    }
+
+
+    /*
+     * This class indexes the blocks in the base by their hashes using open addressing.
+     */
+    static private final class BlockIndex {
+
+        private final Source source;
+        private final int[] hashes;
+        private final int[] blocks;  // the block number plus one, zero for an empty slot
+        private final int mask;
+
+        private BlockIndex(Source source) {
+            this.source = source;
+            int numberOfBlocks = source.size / BLOCK_SIZE;
+            int capacity = Integer.highestOneBit(Math.max(16, numberOfBlocks * 2 - 1)) << 1;
+            this.hashes = new int[capacity];
+            this.blocks = new int[capacity];
+            this.mask = capacity - 1;
+            byte[] block = new byte[BLOCK_SIZE];
+            for (int i = 0; i < numberOfBlocks; i++) {
+                source.base.getBytes(i * BLOCK_SIZE, block, 0, BLOCK_SIZE);
+                int hash = hash(block, 0);
+                int slot = spread(hash) & mask;
+                while (blocks[slot] != 0 && hashes[slot] != hash) {
+                    slot = (slot + 1) & mask;
+                }
+                if (blocks[slot] == 0) {
+                    // only the first block with each hash is kept
+                    hashes[slot] = hash;
+                    blocks[slot] = i + 1;
+                }
+            }
+        }
+
+        /*
+         * This method returns the position in the base of a block containing the same bytes
+         * as the specified bytes, or -1 if there is none.
+         */
+        private int find(int hash, byte[] bytes, int offset) {
+            int slot = spread(hash) & mask;
+            while (blocks[slot] != 0) {
+                if (hashes[slot] == hash) {
+                    int position = (blocks[slot] - 1) * BLOCK_SIZE;
+                    for (int i = 0; i < BLOCK_SIZE; i++) {
+                        if (source.get(position + i) != bytes[offset + i]) return -1;
+                    }
+                    return position;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        static private int spread(int hash) {
+            return (hash ^ (hash >>> 16)) * 0x45D9F3B;
+        }
+
+    }
+
+
+    /*
+     * This class reads the bytes in the base a chunk at a time so that the base is never
+     * flattened, even when it is a rope or a memory mapped file.  The chunk is centered on
+     * the byte that was missed so that scanning in either direction is cheap.
+     */
+    static private final class Source {
+
+        static private final int CHUNK_SIZE = 4096;
+
+        private final BinaryString base;
+        private final int size;
+        private final byte[] chunk;
+        private int first;  // the index in the base of the first byte in the chunk
+        private int count;  // the number of bytes in the chunk
+
+        private Source(BinaryString base) {
+            this.base = base;
+            this.size = base.getSize();
+            this.chunk = new byte[Math.min(CHUNK_SIZE, size)];
+        }
+
+        private byte get(int index) {
+            if (index < first || index >= first + count) {
+                first = Math.max(0, Math.min(index - chunk.length / 2, size - chunk.length));
+                count = chunk.length;
+                base.getBytes(first, chunk, 0, count);
+            }
+            return chunk[index - first];
+        }
+
+    }
+
+
+    /*
+     * This class buffers the bytes read from the target stream.  The bytes from the start of
+     * the pending insertion onwards are kept in the buffer.
+     */
+    static private final class Window {
+
+        private final InputStream input;
+        private final byte[] bytes = new byte[2 * MAXIMUM_INSERT];
+        private int start;  // the first byte of the pending insertion
+        private int position;  // the first byte of the current block
+        private int limit;  // the number of bytes in the buffer
+        private boolean finished;
+
+        private Window(InputStream input) {
+            this.input = input;
+        }
+
+        private void fill() throws IOException {
+            if (finished) return;
+            if (start > 0) {
+                System.arraycopy(bytes, start, bytes, 0, limit - start);
+                position -= start;
+                limit -= start;
+                start = 0;
+            }
+            int count = input.readNBytes(bytes, limit, bytes.length - limit);
+            if (count < bytes.length - limit) finished = true;
+            limit += count;
+        }
+
+    }
+
+
+    /*
+     * This class reads the bytes in a binary string as a stream.
+     */
+    static private final class BinaryInputStream extends InputStream {
+
+        private final BinaryString binary;
+        private int index;
+
+        private BinaryInputStream(BinaryString binary) {
+            this.binary = binary;
+        }
+
+        @Override
+        public int read() {
+            if (index == binary.getSize()) return -1;
+            byte[] single = new byte[1];
+            binary.getBytes(index++, single, 0, 1);
+            return single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (length == 0) return 0;
+            if (index == binary.getSize()) return -1;
+            int count = Math.min(length, binary.getSize() - index);
+            binary.getBytes(index, target, offset, count);
+            index += count;
+            return count;
+        }
+
+    }
+
+}
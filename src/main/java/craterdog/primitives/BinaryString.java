@@ -12,14 +12,28 @@ package craterdog.primitives;
 import craterdog.core.Composite;
 import craterdog.core.Iterator;
 import craterdog.core.Sequential;
-import craterdog.utils.Base02Utils;
-import craterdog.utils.Base16Utils;
-import craterdog.utils.Base32Utils;
-import craterdog.utils.Base64Utils;
-import craterdog.utils.ByteUtils;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -27,19 +41,64 @@ import java.util.NoSuchElementException;
  * in various numeric bases (2, 16, 32, 64). The class also supports the
  * <code>java.lang.Iterable</code> interface so that it can be used by the java language
  * for each loops. Binary strings are immutable.
+ * <p>
+ * A binary string may be a view onto a region of a larger byte array.  The views returned by
+ * the <code>slice</code> method, and binary strings created using the <code>wrap</code>
+ * method, share their bytes rather than copying them.  A binary string may also be backed by
+ * a byte buffer (including a memory mapped file) so that large blobs can be handled without
+ * reading them onto the heap.
+ * <p>
+ * Concatenating binary strings creates a rope, a balanced tree of the binary strings that
+ * were concatenated, rather than copying the bytes.  Iterating over, slicing, comparing and
+ * encoding a rope walks its parts, so a rope is only flattened into a single byte array when
+ * that is explicitly requested.
+ * <p>
+ * The bits in a binary string are numbered the same way as the bits in a
+ * <code>java.util.BitSet</code>: bit <code>i</code> is the bit with the value
+ * <code>1 &lt;&lt; (i % 8)</code> in byte <code>i / 8</code>.  The bitwise operations use this
+ * numbering.
+ * <p>
+ * The search methods find bytes and byte patterns without copying the binary string.  A
+ * single byte is found by scanning a long at a time, and a longer pattern is found using the
+ * Boyer-Moore-Horspool algorithm, which skips ahead by up to the length of the pattern after
+ * each mismatch.
  *
  * @author Derk Norton
  */
 public final class BinaryString extends Primitive<BinaryString> implements Sequential<Byte>, Composite<BinaryString> {
 
-    private final byte[] bytes;
+    /**
+     * This comparator orders raw byte arrays the same way that binary strings containing
+     * them are ordered.
+     */
+    static public final Comparator<byte[]> BYTE_ORDER = (first, second) ->
+            compare(first, 0, first.length, second, 0, second.length);
+
+
+    // parts of a rope that are shorter than this are copied together rather than joined
+    static private final int MINIMUM_PART_SIZE = 64;
+
+    // a view of a byte array as little endian longs so that bit i of a long is bit i of its bytes
+    static private final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    static private final int AND = 0;
+    static private final int OR = 1;
+    static private final int XOR = 2;
+
+    private final byte[] bytes;  // null if the bytes are in a buffer or a rope
+    private final int offset;
+    private final int length;
+    private final Storage storage;  // null unless the bytes are in a buffer or a rope
+    private int hashValue;  // zero until the hash code has been calculated
+    private boolean hashIsZero;  // whether the hash code was calculated and is zero
+    private Caches caches;  // created lazily, the race to set it is benign
 
 
     /**
      * This default constructor creates an empty binary string.
      */
     public BinaryString() {
-        this.bytes = new byte[0];
+        this(new byte[0], 0, 0);
     }
 
 
@@ -49,7 +108,7 @@ public final class BinaryString extends Primitive<BinaryString> implements Seque
      * @param bytes The bytes to be used to create the binary string.
      */
     public BinaryString(byte[] bytes) {
-        this.bytes = Arrays.copyOf(bytes, bytes.length);
+        this(Arrays.copyOf(bytes, bytes.length), 0, bytes.length);
     }
 
 
@@ -61,6 +120,9 @@ public final class BinaryString extends Primitive<BinaryString> implements Seque
     public BinaryString(Byte[] bytes) {
         int size = bytes.length;
         this.bytes = new byte[size];
+        this.offset = 0;
+        this.length = size;
+        this.storage = null;
         for (int i = 0; i < size; i++) {
             this.bytes[i] = bytes[i];
         }
@@ -74,7 +136,10 @@ public final class BinaryString extends Primitive<BinaryString> implements Seque
      * @param string The encoded string containing the bytes to be used to create the binary string.
      */
     public BinaryString(String string) {
-        this.bytes = Base64Utils.decode(string);
+        this.bytes = BinaryCodec.decode(string, 64);
+        this.offset = 0;
+        this.length = bytes.length;
+        this.storage = null;
     }
 
 
@@ -86,22 +151,10 @@ public final class BinaryString extends Primitive<BinaryString> implements Seque
      * @param base The numeric base (2, 16, 32, or 64) that was used to encode the string.
      */
     public BinaryString(String string, int base) {
-        switch (base) {
-            case 2:
-                this.bytes = Base02Utils.decode(string);
-                break;
-            case 16:
-                this.bytes = Base16Utils.decode(string);
-                break;
-            case 32:
-                this.bytes = Base32Utils.decode(string);
-                break;
-            case 64:
-                this.bytes = Base64Utils.decode(string);
-                break;
-            default:
-                throw new NumberFormatException("Base " + base + " binary strings not supported.");
-        }
+        this.bytes = BinaryCodec.decode(string, base);
+        this.offset = 0;
+        this.length = bytes.length;
+        this.storage = null;
     }
 
 
@@ -112,36 +165,176 @@ public final class BinaryString extends Primitive<BinaryString> implements Seque
      */
     public BinaryString(BitSet bits) {
         this.bytes = bits.toByteArray();
+        this.offset = 0;
+        this.length = bytes.length;
+        this.storage = null;
+    }
+
+
+    /*
+     * This constructor creates a binary string that is a view onto the specified region of
+     * the bytes.  The bytes are not copied so they must never be modified.
+     */
+    BinaryString(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        this.storage = null;
+    }
+
+
+    /*
+     * This constructor creates a binary string that is backed by the remaining bytes in the
+     * specified buffer.  The bytes are not copied so they must never be modified.
+     */
+    private BinaryString(ByteBuffer buffer) {
+        this.bytes = null;
+        this.offset = 0;
+        this.length = buffer.remaining();
+        this.storage = new Storage(buffer.slice().asReadOnlyBuffer(), null, null, 0);
+    }
+
+
+    /*
+     * This constructor creates a rope containing the bytes from the two specified parts.
+     */
+    private BinaryString(BinaryString left, BinaryString right) {
+        this.bytes = null;
+        this.offset = 0;
+        this.length = left.length + right.length;
+        this.storage = new Storage(null, left, right, Math.max(left.depth(), right.depth()) + 1);
+    }
+
+
+    /**
+     * This function creates a binary string that takes ownership of the specified bytes
+     * rather than copying them.  The caller must not modify the bytes afterwards since the
+     * binary string would no longer be immutable.
+     *
+     * @param bytes The bytes to be wrapped by the binary string.
+     * @return A binary string containing the bytes.
+     */
+    static public BinaryString wrap(byte[] bytes) {
+        return new BinaryString(bytes, 0, bytes.length);
+    }
+
+
+    /**
+     * This function creates a binary string that is backed by the remaining bytes in the
+     * specified buffer rather than a copy of them.  The caller must not modify the bytes
+     * afterwards since the binary string would no longer be immutable.
+     *
+     * @param buffer The buffer containing the bytes.
+     * @return A binary string containing the bytes.
+     */
+    static public BinaryString wrap(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return new BinaryString(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        return new BinaryString(buffer);
+    }
+
+
+    /**
+     * This function creates a binary string that is backed by a read only memory mapping of
+     * the specified file.  The file must not be modified while the binary string is in use.
+     *
+     * @param file The file containing the bytes.
+     * @return A binary string containing the bytes in the file.
+     * @throws IOException The file could not be mapped.
+     */
+    static public BinaryString map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IllegalArgumentException("The file is too large for a binary string: " + size);
+            return new BinaryString(channel.map(FileChannel.MapMode.READ_ONLY, 0L, size));
+        }
+    }
+
+
+    /**
+     * This function creates a binary string that is backed by a read only memory mapping of
+     * the specified region of a file.  The region must not be modified while the binary
+     * string is in use.
+     *
+     * @param file The file containing the bytes.
+     * @param position The position in the file of the first byte.
+     * @param size The number of bytes in the region.
+     * @return A binary string containing the bytes in the region.
+     * @throws IOException The file could not be mapped.
+     */
+    static public BinaryString map(Path file, long position, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (position < 0 || size < 0 || position + size > channel.size()) {
+                throw new IllegalArgumentException("The region is not within the file: " + position + ", " + size);
+            }
+            return new BinaryString(channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+        }
     }
 
 
     @Override
-    public Iterator<Byte> createIterator() {
+    public BinaryIterator createIterator() {
         return new BinaryIterator();
     }
 
 
+    /**
+     * This method performs the specified action on each byte in the binary string, in order,
+     * without boxing the bytes.
+     *
+     * @param action The action to be performed on each (signed) byte.
+     */
+    public void forEachByte(IntConsumer action) {
+        bytes().forEachOrdered(action);
+    }
+
+
+    /**
+     * This method returns a stream of the (signed) bytes in the binary string without boxing
+     * them.  The stream can be split in half repeatedly so that it can be processed in
+     * parallel.
+     *
+     * @return A stream of the bytes.
+     */
+    public IntStream bytes() {
+        return StreamSupport.intStream(new ByteSpliterator(0, length), false);
+    }
+
+
     @Override
     public int compareTo(BinaryString that) {
         if (that == null) return 1;
         if (this == that) return 0;  // same object
-        int result = 0;
-        Iterator<Byte> thisIterator = this.createIterator();
-        Iterator<Byte> thatIterator = that.createIterator();
-        while (thisIterator.hasNext() && thatIterator.hasNext()) {
-            Byte thisElement = thisIterator.next();
-            Byte thatElement = thatIterator.next();
-            result = Integer.compare(
-                    ByteUtils.byteToUnsigned(thisElement),
-                    ByteUtils.byteToUnsigned(thatElement)
-            );
-            if (result != 0) break;
-        }
-        if (result == 0) {
+        if (this.bytes != null && that.bytes != null) {
+            return compare(this.bytes, this.offset, this.length, that.bytes, that.offset, that.length);
+        }
+        int index = mismatch(this, that);
+        if (index < 0) return 0;
+        if (index == Math.min(this.length, that.length)) {
             // same so far, check for different lengths
-            result = Integer.compare(this.getSize(), that.getSize());
+            return Integer.compare(this.length, that.length);
         }
-        return result;
+        return Integer.compare(this.getByte(index) & 0xFF, that.getByte(index) & 0xFF);
+    }
+
+
+    /**
+     * This function compares two regions of byte arrays using the same (unsigned
+     * lexicographic) ordering as binary strings.  It can be used to order raw byte arrays
+     * without creating binary strings for them.
+     *
+     * @param first The byte array containing the first region.
+     * @param firstOffset The index of the first byte in the first region.
+     * @param firstLength The number of bytes in the first region.
+     * @param second The byte array containing the second region.
+     * @param secondOffset The index of the first byte in the second region.
+     * @param secondLength The number of bytes in the second region.
+     * @return -1, 0, or 1 if the first region is less than, equal to, or greater than the second.
+     */
+    static public int compare(byte[] first, int firstOffset, int firstLength, byte[] second, int secondOffset, int secondLength) {
+        return Integer.signum(Arrays.compareUnsigned(first, firstOffset, firstOffset + firstLength,
+                second, secondOffset, secondOffset + secondLength));
     }
 
 
@@ -150,13 +343,30 @@ public final class BinaryString extends Primitive<BinaryString> implements Seque
         if (object == null || !(object instanceof BinaryString)) return false;
         BinaryString that = (BinaryString) object;
         if (this == that) return true;  // same object
-        return Arrays.equals(this.bytes, that.bytes);
+        if (this.length != that.length) return false;
+        return mismatch(this, that) < 0;
     }
 
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(bytes);
+        // must match Arrays.hashCode(toBytes()), calculated once like String.hashCode()
+        int result = hashValue;
+        if (result == 0 && !hashIsZero) {
+            if (left() != null) {
+                // the hash code of a rope is combined from the (cached) hash codes of its parts
+                int power = powerOf31(right().length);
+                result = left().hashCode() * power + right().hashCode() - power;
+            } else {
+                result = hash(1);
+            }
+            if (result == 0) {
+                hashIsZero = true;
+            } else {
+                hashValue = result;
+            }
+        }
+        return result;
     }
 
 
@@ -196,18 +406,44 @@ public final class BinaryString extends Primitive<BinaryString> implements Seque
      * @return The base 64 encoded string for the binary string.
      */
     public String toString(int base, String indentation) {
-        switch (base) {
-            case 2:
-                return Base02Utils.encode(bytes, indentation);
-            case 16:
-                return Base16Utils.encode(bytes, indentation);
-            case 32:
-                return Base32Utils.encode(bytes, indentation);
-            case 64:
-                return Base64Utils.encode(bytes, indentation);
-            default:
-                throw new NumberFormatException("Base " + base + " binary strings not supported.");
+        if (length >= BinaryCodec.PARALLEL_THRESHOLD) {
+            return BinaryCodec.encode(this, base, indentation);
+        }
+        if (bytes != null && offset == 0 && length == bytes.length) {
+            return BinaryCodec.encode(bytes, base, indentation);
+        }
+        StringBuilder builder = new StringBuilder();
+        try {
+            appendTo(builder, base, indentation);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // never thrown by a string builder
         }
+        return builder.toString();
+    }
+
+
+    /**
+     * This method appends the specified base encoded string for the binary string to the
+     * specified output.  The bytes are encoded a chunk at a time so a large binary string
+     * can be written without creating its whole string in memory.
+     *
+     * @param output The output to which the encoded string is appended.
+     * @param base The base to be used for encoding the bytes (2, 16, 32, 64).
+     * @param indentation The (whitespace only) string that should be used to prefix each line.
+     * @throws IOException The encoded string could not be appended to the output.
+     */
+    public void appendTo(Appendable output, int base, String indentation) throws IOException {
+        // each chunk ends on a line boundary so the lines are the same as for a single chunk
+        byte[] chunk = new byte[Math.min(length, BinaryCodec.CHUNK_SIZE)];
+        int index = 0;
+        do {
+            int size = Math.min(length - index, BinaryCodec.CHUNK_SIZE);
+            if (size < chunk.length) chunk = new byte[size];
+            getBytes(index, chunk, 0, size);
+            if (index > 0) output.append('\n');
+            output.append(BinaryCodec.encode(chunk, base, indentation));
+            index += size;
+        } while (index < length);
     }
 
 
@@ -217,22 +453,467 @@ public final class BinaryString extends Primitive<BinaryString> implements Seque
      * @return A byte array containing the binary string.
      */
     public byte[] toBytes() {
-        return Arrays.copyOf(bytes, bytes.length);
+        if (bytes != null) return Arrays.copyOfRange(bytes, offset, offset + length);
+        byte[] result = new byte[length];
+        getBytes(0, result, 0, length);
+        return result;
+    }
+
+
+    /**
+     * This method returns a read only byte buffer containing the bytes in the binary string.
+     * The bytes are not copied unless the binary string is a rope, in which case it is
+     * flattened first.
+     *
+     * @return A read only byte buffer for the binary string.
+     */
+    public ByteBuffer asByteBuffer() {
+        if (left() != null) return flatten().asByteBuffer();
+        if (buffer() != null) return buffer().duplicate();
+        return ByteBuffer.wrap(bytes, offset, length).slice().asReadOnlyBuffer();
+    }
+
+
+    /**
+     * This method returns a binary string containing the same bytes as this binary string
+     * in a single contiguous region.  A rope is copied into a new byte array, any other
+     * binary string is returned as is.
+     *
+     * @return A flat binary string containing the same bytes.
+     */
+    public BinaryString flatten() {
+        if (left() == null) return this;
+        byte[] result = new byte[length];
+        getBytes(0, result, 0, length);
+        return new BinaryString(result, 0, length);
+    }
+
+
+    /**
+     * This method returns a binary string containing the bytes in this binary string
+     * followed by the bytes in the specified binary string.  The bytes are shared rather
+     * than copied (except for short parts) and the result is a balanced rope, so it takes
+     * logarithmic time.
+     *
+     * @param that The binary string to be appended to this binary string.
+     * @return A binary string containing the bytes from both binary strings.
+     */
+    public BinaryString concat(BinaryString that) {
+        return join(this, that);
+    }
+
+
+    /**
+     * This function returns the bitwise and of the specified binary strings.  If one of the
+     * binary strings is shorter than the other it is treated as if it were padded with zeros.
+     *
+     * @param first The first binary string.
+     * @param second The second binary string.
+     * @return A binary string containing the bitwise and of the two binary strings.
+     */
+    static public BinaryString and(BinaryString first, BinaryString second) {
+        return bitwise(first, second, AND);
+    }
+
+
+    /**
+     * This function returns the bitwise or of the specified binary strings.  If one of the
+     * binary strings is shorter than the other it is treated as if it were padded with zeros.
+     *
+     * @param first The first binary string.
+     * @param second The second binary string.
+     * @return A binary string containing the bitwise or of the two binary strings.
+     */
+    static public BinaryString or(BinaryString first, BinaryString second) {
+        return bitwise(first, second, OR);
+    }
+
+
+    /**
+     * This function returns the bitwise exclusive or of the specified binary strings.  If one
+     * of the binary strings is shorter than the other it is treated as if it were padded with
+     * zeros.
+     *
+     * @param first The first binary string.
+     * @param second The second binary string.
+     * @return A binary string containing the bitwise exclusive or of the two binary strings.
+     */
+    static public BinaryString xor(BinaryString first, BinaryString second) {
+        return bitwise(first, second, XOR);
+    }
+
+
+    /**
+     * This function returns the bitwise complement of the specified binary string.
+     *
+     * @param binary The binary string.
+     * @return A binary string containing the complement of the binary string.
+     */
+    static public BinaryString not(BinaryString binary) {
+        int size = binary.length;
+        byte[] result = new byte[size];
+        byte[] bytes = binary.bytes;
+        int offset = binary.offset;
+        if (bytes == null) {
+            // the bytes are copied straight into the result and complemented in place
+            binary.getBytes(0, result, 0, size);
+            bytes = result;
+            offset = 0;
+        }
+        int i = 0;
+        for (; i + Long.BYTES <= size; i += Long.BYTES) {
+            LONGS.set(result, i, ~(long) LONGS.get(bytes, offset + i));
+        }
+        for (; i < size; i++) {
+            result[i] = (byte) ~bytes[offset + i];
+        }
+        return new BinaryString(result, 0, size);
+    }
+
+
+    /**
+     * This function returns a binary string of the same size as the specified binary string
+     * with each bit <code>i</code> moved to bit <code>i + bits</code>.  The bits that are
+     * moved past the end are discarded and the vacated bits are zero.  With the bit numbering
+     * used by bit sets this is a left shift of a little endian number.
+     *
+     * @param binary The binary string.
+     * @param bits The number of bits to shift by (a negative number shifts right).
+     * @return The shifted binary string.
+     */
+    static public BinaryString shiftLeft(BinaryString binary, int bits) {
+        if (bits < 0) return shiftRight(binary, bits == Integer.MIN_VALUE ? Integer.MAX_VALUE : -bits);
+        int size = binary.length;
+        byte[] result = new byte[size];
+        int byteShift = bits >>> 3;
+        int bitShift = bits & 7;
+        if (byteShift >= size) return new BinaryString(result, 0, size);
+        byte[] bytes = binary.bytes;
+        int offset = binary.offset;
+        if (bytes == null) {
+            // the bytes are copied straight into the result and shifted in place
+            binary.getBytes(0, result, 0, size);
+            bytes = result;
+            offset = 0;
+        }
+        // byte j of the result comes from bytes k and k - 1 where k = j - byteShift, and the
+        // result is filled in from the end so that each byte is read before it is replaced
+        int j = size;
+        for (; j - Long.BYTES > byteShift; j -= Long.BYTES) {
+            int k = offset + j - Long.BYTES - byteShift;
+            long carry = (bytes[k - 1] & 0xFFL) >>> (8 - bitShift);
+            LONGS.set(result, j - Long.BYTES, (long) LONGS.get(bytes, k) << bitShift | carry);
+        }
+        for (j--; j > byteShift; j--) {
+            int k = offset + j - byteShift;
+            result[j] = (byte) (bytes[k] << bitShift | (bytes[k - 1] & 0xFF) >>> (8 - bitShift));
+        }
+        result[byteShift] = (byte) (bytes[offset] << bitShift);
+        if (bytes == result) Arrays.fill(result, 0, byteShift, (byte) 0);
+        return new BinaryString(result, 0, size);
+    }
+
+
+    /**
+     * This function returns a binary string of the same size as the specified binary string
+     * with each bit <code>i</code> moved to bit <code>i - bits</code>.  The bits that are
+     * moved past the start are discarded and the vacated bits are zero.  With the bit
+     * numbering used by bit sets this is a right shift of a little endian number.
+     *
+     * @param binary The binary string.
+     * @param bits The number of bits to shift by (a negative number shifts left).
+     * @return The shifted binary string.
+     */
+    static public BinaryString shiftRight(BinaryString binary, int bits) {
+        if (bits < 0) return shiftLeft(binary, bits == Integer.MIN_VALUE ? Integer.MAX_VALUE : -bits);
+        int size = binary.length;
+        byte[] result = new byte[size];
+        int byteShift = bits >>> 3;
+        int bitShift = bits & 7;
+        if (byteShift >= size) return new BinaryString(result, 0, size);
+        byte[] bytes = binary.bytes;
+        int offset = binary.offset;
+        if (bytes == null) {
+            // the bytes are copied straight into the result and shifted in place
+            binary.getBytes(0, result, 0, size);
+            bytes = result;
+            offset = 0;
+        }
+        // byte j of the result comes from bytes k and k + 1 where k = j + byteShift, so each
+        // byte is read before it is replaced
+        int last = size - byteShift;  // the number of result bytes that are not zero
+        int j = 0;
+        for (; j + Long.BYTES < last; j += Long.BYTES) {
+            int k = offset + j + byteShift;
+            long carry = (bytes[k + Long.BYTES] & 0xFFL) << 56 << (8 - bitShift);
+            LONGS.set(result, j, (long) LONGS.get(bytes, k) >>> bitShift | carry);
+        }
+        for (; j < last; j++) {
+            int k = offset + j + byteShift;
+            int carry = j + 1 < last ? bytes[k + 1] << (8 - bitShift) : 0;
+            result[j] = (byte) ((bytes[k] & 0xFF) >>> bitShift | carry);
+        }
+        if (bytes == result) Arrays.fill(result, last, size, (byte) 0);
+        return new BinaryString(result, 0, size);
+    }
+
+
+    /**
+     * This method returns an index over the bits in the binary string that answers rank and
+     * select queries in (nearly) constant time.  The index is created the first time this
+     * method is called and is then shared, including across threads.
+     *
+     * @return The bit index for the binary string.
+     */
+    public BitIndex getBitIndex() {
+        Caches cache = caches();
+        BitIndex result = cache.bitIndex;
+        if (result == null) {
+            result = new BitIndex(this);
+            cache.bitIndex = result;
+        }
+        return result;
+    }
+
+
+    /**
+     * This method returns the digest of the bytes in the binary string using the specified
+     * algorithm (for example "SHA-256").  The digest is calculated the first time it is
+     * requested for each algorithm and is then shared, including across threads.
+     *
+     * @param algorithm The name of the message digest algorithm.
+     * @return A binary string containing the digest.
+     * @throws IllegalArgumentException The algorithm is not supported.
+     */
+    public BinaryString digest(String algorithm) {
+        Caches caches = caches();
+        Map<String, BinaryString> cache = caches.digests;
+        BinaryString result = cache == null ? null : cache.get(algorithm);
+        if (result == null) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException("The digest algorithm is not supported: " + algorithm, e);
+            }
+            updateDigest(digest);
+            result = wrap(digest.digest());
+            Map<String, BinaryString> updated = cache == null ? new HashMap<>() : new HashMap<>(cache);
+            updated.put(algorithm, result);
+            caches.digests = Map.copyOf(updated);  // a digest lost to a race is just calculated again
+        }
+        return result;
+    }
+
+
+    /**
+     * This method feeds the bytes in the binary string to the specified message digest.  The
+     * parts of a rope and the bytes in a buffer (including a memory mapped file) are fed
+     * directly so the binary string is never flattened or copied onto the heap.
+     *
+     * @param digest The message digest to be updated.
+     */
+    public void updateDigest(MessageDigest digest) {
+        if (left() != null) {
+            left().updateDigest(digest);
+            right().updateDigest(digest);
+        } else if (buffer() != null) {
+            digest.update(buffer().duplicate());
+        } else {
+            digest.update(bytes, offset, length);
+        }
+    }
+
+
+    /**
+     * This method returns the number of bits in the binary string that are set.
+     *
+     * @return The number of one bits.
+     */
+    public long bitCount() {
+        if (bytes == null) {
+            // count a chunk at a time rather than copying all of the bytes
+            long count = 0;
+            byte[] chunk = new byte[Math.min(length, BinaryCodec.CHUNK_SIZE)];
+            for (int index = 0; index < length; index += chunk.length) {
+                int size = Math.min(chunk.length, length - index);
+                getBytes(index, chunk, 0, size);
+                count += bitCount(chunk, 0, size);
+            }
+            return count;
+        }
+        return bitCount(bytes, offset, length);
+    }
+
+
+    /**
+     * This method returns a binary string containing the bytes in the specified range of
+     * this binary string.  The indexes are zero based (like <code>String.substring</code>)
+     * and the bytes are shared rather than copied.
+     *
+     * @param start The index of the first byte in the slice.
+     * @param end The index after the last byte in the slice.
+     * @return A binary string containing the bytes in the range.
+     */
+    public BinaryString slice(int start, int end) {
+        Objects.checkFromToIndex(start, end, length);
+        if (start == 0 && end == length) return this;
+        if (left() != null) {
+            int split = left().length;
+            if (end <= split) return left().slice(start, end);
+            if (start >= split) return right().slice(start - split, end - split);
+            return join(left().slice(start, split), right().slice(0, end - split));
+        }
+        if (buffer() != null) return new BinaryString(buffer().slice(start, end - start));
+        return new BinaryString(bytes, offset + start, end - start);
+    }
+
+
+    /**
+     * This method returns the index of the first occurrence of the specified byte in the
+     * binary string.
+     *
+     * @param value The byte to be found.
+     * @return The (zero based) index of the byte, or -1 if it was not found.
+     */
+    public int indexOf(byte value) {
+        return indexOf(value, 0);
+    }
+
+
+    /**
+     * This method returns the index of the first occurrence of the specified byte in the
+     * binary string starting at the specified index.
+     *
+     * @param value The byte to be found.
+     * @param from The index at which to start the search.
+     * @return The (zero based) index of the byte, or -1 if it was not found.
+     */
+    public int indexOf(byte value, int from) {
+        return find(new BytePattern(new byte[] { value }), Math.max(from, 0), length);
+    }
+
+
+    /**
+     * This method returns the index of the first occurrence of the specified pattern in the
+     * binary string.
+     *
+     * @param pattern The binary string to be found.
+     * @return The (zero based) index of the pattern, or -1 if it was not found.
+     */
+    public int indexOf(BinaryString pattern) {
+        return indexOf(pattern, 0);
+    }
+
+
+    /**
+     * This method returns the index of the first occurrence of the specified pattern in the
+     * binary string starting at the specified index.
+     *
+     * @param pattern The binary string to be found.
+     * @param from The index at which to start the search.
+     * @return The (zero based) index of the pattern, or -1 if it was not found.
+     */
+    public int indexOf(BinaryString pattern, int from) {
+        from = Math.max(from, 0);
+        if (pattern.length == 0) return Math.min(from, length);
+        return find(new BytePattern(pattern.toBytes()), from, length);
+    }
+
+
+    /**
+     * This method returns the index of the last occurrence of the specified byte in the
+     * binary string.
+     *
+     * @param value The byte to be found.
+     * @return The (zero based) index of the byte, or -1 if it was not found.
+     */
+    public int lastIndexOf(byte value) {
+        return lastIndexOf(value, length - 1);
+    }
+
+
+    /**
+     * This method returns the index of the last occurrence of the specified byte in the
+     * binary string searching backwards from the specified index.
+     *
+     * @param value The byte to be found.
+     * @param from The index at which to start the search.
+     * @return The (zero based) index of the byte, or -1 if it was not found.
+     */
+    public int lastIndexOf(byte value, int from) {
+        if (from < 0) return -1;
+        return findLast(new BytePattern(new byte[] { value }), 0, Math.min(from, length - 1) + 1);
+    }
+
+
+    /**
+     * This method returns the index of the last occurrence of the specified pattern in the
+     * binary string.
+     *
+     * @param pattern The binary string to be found.
+     * @return The (zero based) index of the pattern, or -1 if it was not found.
+     */
+    public int lastIndexOf(BinaryString pattern) {
+        return lastIndexOf(pattern, length);
+    }
+
+
+    /**
+     * This method returns the index of the last occurrence of the specified pattern in the
+     * binary string that starts at or before the specified index.
+     *
+     * @param pattern The binary string to be found.
+     * @param from The index at which to start the search.
+     * @return The (zero based) index of the pattern, or -1 if it was not found.
+     */
+    public int lastIndexOf(BinaryString pattern, int from) {
+        if (from < 0) return -1;
+        if (pattern.length == 0) return Math.min(from, length);
+        int end = (int) Math.min((long) from + pattern.length, length);
+        return findLast(new BytePattern(pattern.toBytes()), 0, end);
+    }
+
+
+    /**
+     * This method determines whether or not the binary string contains the specified pattern.
+     *
+     * @param pattern The binary string to be found.
+     * @return Whether or not the pattern was found.
+     */
+    public boolean contains(BinaryString pattern) {
+        return indexOf(pattern) >= 0;
+    }
+
+
+    /**
+     * This method splits the binary string into the pieces that are separated by the
+     * specified delimiter.  The pieces are found lazily as they are iterated over and share
+     * the bytes of this binary string.  Empty pieces (including a leading or trailing one)
+     * are included so that joining the pieces with the delimiter restores the binary string.
+     *
+     * @param delimiter The (non-empty) binary string that separates the pieces.
+     * @return The pieces of the binary string.
+     */
+    public Iterable<BinaryString> split(BinaryString delimiter) {
+        if (delimiter.length == 0) throw new IllegalArgumentException("The delimiter must not be empty.");
+        BytePattern pattern = new BytePattern(delimiter.toBytes());
+        return () -> new SplitIterator(pattern);
     }
 
 
     @Override
     public int getSize() {
-        return bytes.length;
+        return length;
     }
 
 
     @Override
     public Byte[] toArray() {
-        Byte[] array = new Byte[bytes.length];
-        int index = 0;
-        for (Byte b : this) {
-            array[index++] = b;
+        byte[] bytes = toBytes();
+        Byte[] array = new Byte[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = bytes[i];
         }
         return array;
     }
@@ -240,15 +921,606 @@ public final class BinaryString extends Primitive<BinaryString> implements Seque
 
     @Override
     public <T extends Composite<BinaryString>> T copy() {
+        // binary strings are immutable so they can be shared
         @SuppressWarnings("unchecked")
-        T copy = (T) new BinaryString(bytes);
+        T copy = (T) this;
         return copy;
     }
 
 
-    private final class BinaryIterator extends Iterator<Byte> {
+    /*
+     * This method copies the specified number of bytes starting at the specified index into
+     * the target array.
+     */
+    void getBytes(int index, byte[] target, int targetIndex, int count) {
+        if (left() != null) {
+            int split = left().length;
+            if (index < split) {
+                int size = Math.min(count, split - index);
+                left().getBytes(index, target, targetIndex, size);
+                targetIndex += size;
+                count -= size;
+                index = split;
+            }
+            if (count > 0) right().getBytes(index - split, target, targetIndex, count);
+        } else if (buffer() != null) {
+            buffer().get(index, target, targetIndex, count);
+        } else {
+            System.arraycopy(bytes, offset + index, target, targetIndex, count);
+        }
+    }
+
+
+    /*
+     * This method returns the eight bytes starting at the specified index as a little endian
+     * long, padded with zeros past the end of the binary string.  The bytes are read from
+     * where they are stored so nothing is copied.
+     */
+    long getLong(int index) {
+        if (index + Long.BYTES > length) {
+            long result = 0L;
+            for (int i = length - 1; i >= index; i--) {
+                result = result << 8 | (getByte(i) & 0xFF);
+            }
+            return result;
+        }
+        if (left() != null) {
+            int split = left().length;
+            if (index + Long.BYTES <= split) return left().getLong(index);
+            if (index >= split) return right().getLong(index - split);
+            long result = 0L;  // the long straddles the parts of the rope
+            for (int i = index + Long.BYTES - 1; i >= index; i--) {
+                result = result << 8 | (getByte(i) & 0xFF);
+            }
+            return result;
+        }
+        if (buffer() != null) return Long.reverseBytes(buffer().getLong(index));  // the buffer is big endian
+        return (long) LONGS.get(bytes, offset + index);
+    }
+
+
+    /*
+     * This function combines two binary strings a long at a time using the specified operation.
+     */
+    static private BinaryString bitwise(BinaryString first, BinaryString second, int operation) {
+        if (first.length < second.length) {
+            // all of the operations are commutative so make the first one the longest
+            BinaryString temporary = first;
+            first = second;
+            second = temporary;
+        }
+        byte[] result = new byte[first.length];
+        int common = second.length;
+        byte[] a = first.bytes;
+        int aOffset = first.offset;
+        byte[] b = second.bytes;
+        int bOffset = second.offset;
+        // an operand that is not array backed is copied straight into the result and combined in place
+        if (a == null) {
+            first.getBytes(0, result, 0, first.length);
+            a = result;
+            aOffset = 0;
+        } else if (b == null) {
+            second.getBytes(0, result, 0, common);
+            b = result;
+            bOffset = 0;
+        }
+        if (b != null) {
+            combine(a, aOffset, b, bOffset, result, 0, common, operation);
+        } else {
+            // combine a chunk at a time rather than copying all of the bytes
+            byte[] chunk = new byte[Math.min(common, BinaryCodec.CHUNK_SIZE)];
+            for (int index = 0; index < common; index += chunk.length) {
+                int size = Math.min(chunk.length, common - index);
+                second.getBytes(index, chunk, 0, size);
+                combine(a, aOffset + index, chunk, 0, result, index, size, operation);
+            }
+        }
+        // the rest of the longer binary string is combined with zeros
+        if (operation == AND) {
+            if (a == result) Arrays.fill(result, common, result.length, (byte) 0);
+        } else if (a != result) {
+            System.arraycopy(a, aOffset + common, result, common, result.length - common);
+        }
+        return new BinaryString(result, 0, result.length);
+    }
+
+
+    /*
+     * This function combines the specified ranges of two byte arrays a long at a time using
+     * the specified operation, and puts the result at the specified index of the result array.
+     * Either array may be the result array if its range starts at the same index.
+     */
+    static private void combine(byte[] a, int aOffset, byte[] b, int bOffset, byte[] result, int index, int length, int operation) {
+        if (aOffset == index && bOffset == index) {
+            // the compiler only vectorizes a loop whose arrays share the same index
+            int end = index + length;
+            switch (operation) {
+                case AND:
+                    for (int i = index; i < end; i++) {
+                        result[i] = (byte) (a[i] & b[i]);
+                    }
+                    break;
+                case OR:
+                    for (int i = index; i < end; i++) {
+                        result[i] = (byte) (a[i] | b[i]);
+                    }
+                    break;
+                default:
+                    for (int i = index; i < end; i++) {
+                        result[i] = (byte) (a[i] ^ b[i]);
+                    }
+            }
+            return;
+        }
+        int i = 0;
+        switch (operation) {
+            case AND:
+                for (; i + Long.BYTES <= length; i += Long.BYTES) {
+                    LONGS.set(result, index + i, (long) LONGS.get(a, aOffset + i) & (long) LONGS.get(b, bOffset + i));
+                }
+                for (; i < length; i++) {
+                    result[index + i] = (byte) (a[aOffset + i] & b[bOffset + i]);
+                }
+                break;
+            case OR:
+                for (; i + Long.BYTES <= length; i += Long.BYTES) {
+                    LONGS.set(result, index + i, (long) LONGS.get(a, aOffset + i) | (long) LONGS.get(b, bOffset + i));
+                }
+                for (; i < length; i++) {
+                    result[index + i] = (byte) (a[aOffset + i] | b[bOffset + i]);
+                }
+                break;
+            default:
+                for (; i + Long.BYTES <= length; i += Long.BYTES) {
+                    LONGS.set(result, index + i, (long) LONGS.get(a, aOffset + i) ^ (long) LONGS.get(b, bOffset + i));
+                }
+                for (; i < length; i++) {
+                    result[index + i] = (byte) (a[aOffset + i] ^ b[bOffset + i]);
+                }
+        }
+    }
+
+
+    /*
+     * This function counts the one bits in the specified range of bytes a long at a time.
+     */
+    static private long bitCount(byte[] bytes, int offset, int length) {
+        long count = 0;
+        int i = 0;
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            count += Long.bitCount((long) LONGS.get(bytes, offset + i));
+        }
+        for (; i < length; i++) {
+            count += Integer.bitCount(bytes[offset + i] & 0xFF);
+        }
+        return count;
+    }
+
+
+    /*
+     * This method returns the byte at the specified (zero based) index.
+     */
+    private byte getByte(int index) {
+        BinaryString part = this;
+        while (part.left() != null) {
+            int split = part.left().length;
+            if (index < split) {
+                part = part.left();
+            } else {
+                index -= split;
+                part = part.right();
+            }
+        }
+        return part.buffer() != null ? part.buffer().get(index) : part.bytes[part.offset + index];
+    }
+
+
+    /*
+     * This method continues the specified hash code with the bytes in this (flat) binary
+     * string.
+     */
+    private int hash(int hash) {
+        ByteBuffer buffer = buffer();
+        if (buffer != null) {
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + buffer.get(i);
+            }
+        } else {
+            for (int i = offset; i < offset + length; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+        }
+        return hash;
+    }
+
+
+    /*
+     * This function returns 31 raised to the specified power (modulo two to the 32).
+     */
+    static private int powerOf31(int exponent) {
+        int result = 1;
+        int square = 31;
+        for (; exponent > 0; exponent >>>= 1) {
+            if ((exponent & 1) != 0) result *= square;
+            square *= square;
+        }
+        return result;
+    }
+
+
+    /*
+     * This function returns the index of the first byte that differs between the two binary
+     * strings, the length of the shorter one if it is a prefix of the other, or -1 if they
+     * are the same (like Arrays.mismatch).
+     */
+    static private int mismatch(BinaryString first, BinaryString second) {
+        if (first.left() == null && second.left() != null) return mismatch(second, first);
+        if (first.left() != null) {
+            int split = first.left().length;
+            if (second.length < split) return mismatch(first.left(), second);
+            int index = mismatch(first.left(), second.slice(0, split));
+            if (index >= 0) return index;
+            index = mismatch(first.right(), second.slice(split, second.length));
+            return index < 0 ? -1 : split + index;
+        }
+        if (first.bytes != null && second.bytes != null) {
+            return Arrays.mismatch(first.bytes, first.offset, first.offset + first.length,
+                    second.bytes, second.offset, second.offset + second.length);
+        }
+        return first.asByteBuffer().mismatch(second.asByteBuffer());
+    }
+
+
+    /*
+     * This method returns the index of the first occurrence of the pattern that lies within
+     * the specified range, or -1 if there is none.  The parts of a rope are searched in turn,
+     * along with the few bytes around each split that a match could straddle, and a binary
+     * string that is backed by a buffer is searched a chunk at a time.
+     */
+    private int find(BytePattern pattern, int from, int to) {
+        int size = pattern.bytes.length;
+        if (to - from < size) return -1;
+        if (left() != null) {
+            int split = left().length;
+            if (from < split) {
+                int index = left().find(pattern, from, Math.min(to, split));
+                if (index >= 0) return index;
+                index = straddle(pattern, split, from, to, false);
+                if (index >= 0) return index;
+            }
+            int index = right().find(pattern, Math.max(from, split) - split, to - split);
+            return index < 0 ? -1 : split + index;
+        }
+        if (buffer() != null) {
+            byte[] chunk = new byte[Math.min(to - from, Math.max(BinaryCodec.CHUNK_SIZE, 2 * size))];
+            for (int index = from; ; index += chunk.length - size + 1) {
+                int count = Math.min(chunk.length, to - index);
+                getBytes(index, chunk, 0, count);
+                int found = pattern.indexOf(chunk, 0, count);
+                if (found >= 0) return index + found;
+                if (index + count == to) return -1;
+            }
+        }
+        int index = pattern.indexOf(bytes, offset + from, offset + to);
+        return index < 0 ? -1 : index - offset;
+    }
+
+
+    /*
+     * This method returns the index of the last occurrence of the pattern that lies within
+     * the specified range, or -1 if there is none.
+     */
+    private int findLast(BytePattern pattern, int from, int to) {
+        int size = pattern.bytes.length;
+        if (to - from < size) return -1;
+        if (left() != null) {
+            int split = left().length;
+            if (to > split) {
+                int index = right().findLast(pattern, Math.max(from, split) - split, to - split);
+                if (index >= 0) return split + index;
+                index = straddle(pattern, split, from, to, true);
+                if (index >= 0) return index;
+            }
+            return left().findLast(pattern, from, Math.min(to, split));
+        }
+        if (buffer() != null) {
+            byte[] chunk = new byte[Math.min(to - from, Math.max(BinaryCodec.CHUNK_SIZE, 2 * size))];
+            for (int end = to; ; end = end - chunk.length + size - 1) {
+                int index = Math.max(from, end - chunk.length);
+                int count = end - index;
+                getBytes(index, chunk, 0, count);
+                int found = pattern.lastIndexOf(chunk, 0, count);
+                if (found >= 0) return index + found;
+                if (index == from) return -1;
+            }
+        }
+        int index = pattern.lastIndexOf(bytes, offset + from, offset + to);
+        return index < 0 ? -1 : index - offset;
+    }
+
+
+    /*
+     * This method searches the bytes around the specified split in a rope for an occurrence
+     * of the pattern that starts before the split and ends after it.
+     */
+    private int straddle(BytePattern pattern, int split, int from, int to, boolean last) {
+        int size = pattern.bytes.length;
+        int start = Math.max(from, split - size + 1);
+        int end = Math.min(to, split + size - 1);
+        if (end - start < size) return -1;
+        byte[] window = new byte[end - start];
+        getBytes(start, window, 0, window.length);
+        int index = last ? pattern.lastIndexOf(window, 0, window.length) : pattern.indexOf(window, 0, window.length);
+        return index < 0 ? -1 : start + index;
+    }
+
+
+    /*
+     * This function returns the index of the first occurrence of the specified byte in the
+     * specified range of bytes, comparing a long at a time.
+     */
+    static private int indexOf(byte[] bytes, int from, int to, byte value) {
+        long pattern = (value & 0xFFL) * 0x0101010101010101L;
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long matches = zeroBytes((long) LONGS.get(bytes, i) ^ pattern);
+            if (matches != 0) return i + (Long.numberOfTrailingZeros(matches) >>> 3);
+        }
+        for (; i < to; i++) {
+            if (bytes[i] == value) return i;
+        }
+        return -1;
+    }
+
+
+    /*
+     * This function returns the index of the last occurrence of the specified byte in the
+     * specified range of bytes, comparing a long at a time.
+     */
+    static private int lastIndexOf(byte[] bytes, int from, int to, byte value) {
+        long pattern = (value & 0xFFL) * 0x0101010101010101L;
+        int i = to;
+        for (; i - Long.BYTES >= from; i -= Long.BYTES) {
+            long matches = zeroBytes((long) LONGS.get(bytes, i - Long.BYTES) ^ pattern);
+            if (matches != 0) return i - 1 - (Long.numberOfLeadingZeros(matches) >>> 3);
+        }
+        for (; i > from; i--) {
+            if (bytes[i - 1] == value) return i - 1;
+        }
+        return -1;
+    }
+
+
+    /*
+     * This function returns a long with the high bit set in each byte of the specified long
+     * that is zero, and no other bits set.
+     */
+    static private long zeroBytes(long word) {
+        long low = (word & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL;
+        return ~(low | word | 0x7F7F7F7F7F7F7F7FL);
+    }
+
+
+    /*
+     * This function concatenates two binary strings into a rope that stays balanced.  Short
+     * parts are copied together so that the leaves of a rope are not too small.
+     */
+    static private BinaryString join(BinaryString first, BinaryString second) {
+        if (first.length == 0) return second;
+        if (second.length == 0) return first;
+        if (first.length > Integer.MAX_VALUE - second.length) {
+            throw new IllegalArgumentException("The concatenated binary string would be too large.");
+        }
+        int size = first.length + second.length;
+        if (size <= MINIMUM_PART_SIZE) {
+            byte[] result = new byte[size];
+            first.getBytes(0, result, 0, first.length);
+            second.getBytes(0, result, first.length, second.length);
+            return new BinaryString(result, 0, size);
+        }
+        if (first.depth() > second.depth() + 1) return balance(first.left(), join(first.right(), second));
+        if (second.depth() > first.depth() + 1) return balance(join(first, second.left()), second.right());
+        return new BinaryString(first, second);
+    }
+
+
+    /*
+     * This function creates a rope from the two specified parts, rotating them if their
+     * depths differ by more than one (like an AVL tree).
+     */
+    static private BinaryString balance(BinaryString first, BinaryString second) {
+        if (first.depth() > second.depth() + 1) {
+            if (first.left().depth() >= first.right().depth()) {
+                return new BinaryString(first.left(), new BinaryString(first.right(), second));
+            }
+            return new BinaryString(new BinaryString(first.left(), first.right().left()),
+                    new BinaryString(first.right().right(), second));
+        }
+        if (second.depth() > first.depth() + 1) {
+            if (second.right().depth() >= second.left().depth()) {
+                return new BinaryString(new BinaryString(first, second.left()), second.right());
+            }
+            return new BinaryString(new BinaryString(first, second.left().left()),
+                    new BinaryString(second.left().right(), second.right()));
+        }
+        return new BinaryString(first, second);
+    }
+
+
+    /*
+     * These methods return the parts of a buffer backed binary string or a rope, or null (and
+     * zero) for a binary string that is backed by a byte array.
+     */
+    private ByteBuffer buffer() {
+        return storage == null ? null : storage.buffer;
+    }
+
+    private BinaryString left() {
+        return storage == null ? null : storage.left;
+    }
+
+    private BinaryString right() {
+        return storage == null ? null : storage.right;
+    }
+
+    private int depth() {
+        return storage == null ? 0 : storage.depth;
+    }
+
+
+    /*
+     * This method returns the lazily created caches for the binary string.  Two threads may
+     * each create the caches, in which case one set is lost and is just calculated again.
+     */
+    private Caches caches() {
+        Caches result = caches;
+        if (result == null) {
+            result = new Caches();
+            caches = result;
+        }
+        return result;
+    }
+
+
+    /*
+     * This class holds the parts of a binary string that is backed by a buffer or is a rope.
+     * Most binary strings are backed by a byte array and share a single null reference rather
+     * than carrying a field for each of these.
+     */
+    static private final class Storage {
+
+        private final ByteBuffer buffer;  // a read only buffer starting at index zero, otherwise null
+        private final BinaryString left;  // the first part of a rope, otherwise null
+        private final BinaryString right;  // the second part of a rope, otherwise null
+        private final int depth;  // zero unless the binary string is a rope
+
+        private Storage(ByteBuffer buffer, BinaryString left, BinaryString right, int depth) {
+            this.buffer = buffer;
+            this.left = left;
+            this.right = right;
+            this.depth = depth;
+        }
+
+    }
+
+
+    /*
+     * This class holds the values that are calculated lazily and kept for the life of a
+     * binary string.  It is only created once one of them is requested.
+     */
+    static private final class Caches {
+
+        private BitIndex bitIndex;  // created lazily, the race to set it is benign
+        private Map<String, BinaryString> digests;  // an immutable map replaced as digests are added
+
+    }
+
+
+    /*
+     * This class holds a byte pattern that is being searched for along with the tables of
+     * how far the search can skip ahead (or back) after a mismatch.  The tables are created
+     * lazily since most searches only go in one direction.
+     */
+    static private final class BytePattern {
+
+        private final byte[] bytes;
+        private int[] shifts;  // indexed by the last byte compared when searching forwards
+        private int[] backShifts;  // indexed by the first byte compared when searching backwards
+
+        private BytePattern(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private int indexOf(byte[] haystack, int from, int to) {
+            int size = bytes.length;
+            if (size == 1) return BinaryString.indexOf(haystack, from, to, bytes[0]);
+            if (shifts == null) {
+                shifts = new int[256];
+                Arrays.fill(shifts, size);
+                for (int i = 0; i < size - 1; i++) {
+                    shifts[bytes[i] & 0xFF] = size - 1 - i;
+                }
+            }
+            int last = size - 1;
+            byte lastByte = bytes[last];
+            for (int i = from; i <= to - size; ) {
+                byte value = haystack[i + last];
+                if (value == lastByte && Arrays.equals(haystack, i, i + last, bytes, 0, last)) return i;
+                i += shifts[value & 0xFF];
+            }
+            return -1;
+        }
+
+        private int lastIndexOf(byte[] haystack, int from, int to) {
+            int size = bytes.length;
+            if (size == 1) return BinaryString.lastIndexOf(haystack, from, to, bytes[0]);
+            if (backShifts == null) {
+                backShifts = new int[256];
+                Arrays.fill(backShifts, size);
+                for (int i = size - 1; i > 0; i--) {
+                    backShifts[bytes[i] & 0xFF] = i;
+                }
+            }
+            byte firstByte = bytes[0];
+            for (int i = to - size; i >= from; ) {
+                byte value = haystack[i];
+                if (value == firstByte && Arrays.equals(haystack, i + 1, i + size, bytes, 1, size)) return i;
+                i -= backShifts[value & 0xFF];
+            }
+            return -1;
+        }
+
+    }
+
+
+    /*
+     * This class finds the pieces of a binary string that are separated by a delimiter one
+     * at a time.
+     */
+    private final class SplitIterator implements java.util.Iterator<BinaryString> {
+
+        private final BytePattern delimiter;
+        private int start;  // the index of the next piece, or -1 after the last piece
+
+        private SplitIterator(BytePattern delimiter) {
+            this.delimiter = delimiter;
+            this.start = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return start >= 0;
+        }
+
+        @Override
+        public BinaryString next() {
+            if (start < 0) throw new NoSuchElementException();
+            int index = find(delimiter, start, length);
+            BinaryString piece;
+            if (index < 0) {
+                piece = slice(start, length);
+                start = -1;
+            } else {
+                piece = slice(start, index);
+                start = index + delimiter.bytes.length;
+            }
+            return piece;
+        }
+
+    }
+
+
+    /**
+     * This class implements an iterator over the bytes in a binary string.  The
+     * <code>nextByte</code> and <code>previousByte</code> methods return the bytes without
+     * boxing them.
+     */
+    public final class BinaryIterator extends Iterator<Byte> {
 
         int index;
+        BinaryString part;  // the flat part of a rope containing the last byte that was accessed
+        int partIndex;  // the index in the rope of the first byte in the part
 
         private BinaryIterator() {
             this.index = 0;
@@ -264,13 +1536,13 @@ public final class BinaryString extends Primitive<BinaryString> implements Seque
             if (index > 0) {
                 this.index = index - 1;  // convert to ordinal indexing
             } else {
-                this.index = bytes.length + index;  // index from end of bytes
+                this.index = length + index;  // index from end of bytes
             }
         }
 
         @Override
         public void toEnd() {
-            this.index = bytes.length;
+            this.index = length;
         }
 
         @Override
@@ -280,21 +1552,121 @@ public final class BinaryString extends Primitive<BinaryString> implements Seque
 
         @Override
         public Byte getPrevious() {
+            return previousByte();
+        }
+
+        /**
+         * This method returns the previous byte in the binary string without boxing it.
+         *
+         * @return The previous byte.
+         */
+        public byte previousByte() {
             if (index == 0) throw new NoSuchElementException();
-            Byte element = bytes[--index];
-            return element;
+            return byteAt(--index);
         }
 
         @Override
         public boolean hasNext() {
-            return index < bytes.length;
+            return index < length;
         }
 
         @Override
         public Byte getNext() {
-            if (index == bytes.length) throw new NoSuchElementException();
-            Byte element = bytes[index++];
-            return element;
+            return nextByte();
+        }
+
+        /**
+         * This method returns the next byte in the binary string without boxing it.
+         *
+         * @return The next byte.
+         */
+        public byte nextByte() {
+            if (index == length) throw new NoSuchElementException();
+            return byteAt(index++);
+        }
+
+        private byte byteAt(int index) {
+            if (left() == null) return getByte(index);
+            if (part == null || index < partIndex || index >= partIndex + part.length) {
+                // find the flat part of the rope that contains the index
+                part = BinaryString.this;
+                partIndex = 0;
+                while (part.left() != null) {
+                    if (index - partIndex < part.left().length) {
+                        part = part.left();
+                    } else {
+                        partIndex += part.left().length;
+                        part = part.right();
+                    }
+                }
+            }
+            return part.getByte(index - partIndex);
+        }
+
+    }
+
+
+
+    /*
+     * This class splits a range of the bytes in a binary string in half for parallel streams.
+     * The bytes in the range are read a chunk at a time so that the parts of a rope are not
+     * looked up for each byte.
+     */
+    private final class ByteSpliterator implements Spliterator.OfInt {
+
+        static private final int CHUNK_SIZE = 8 * 1024;
+
+        private int index;
+        private final int end;
+
+        private ByteSpliterator(int index, int end) {
+            this.index = index;
+            this.end = end;
+        }
+
+        @Override
+        public OfInt trySplit() {
+            int middle = (index + end) >>> 1;
+            if (middle - index < CHUNK_SIZE) return null;  // not worth splitting
+            ByteSpliterator prefix = new ByteSpliterator(index, middle);
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (index == end) return false;
+            action.accept(getByte(index++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            if (bytes != null) {
+                for (int i = offset + index; i < offset + end; i++) {
+                    action.accept(bytes[i]);
+                }
+            } else {
+                byte[] chunk = new byte[Math.min(CHUNK_SIZE, end - index)];
+                for (int i = index; i < end; i += chunk.length) {
+                    int count = Math.min(chunk.length, end - i);
+                    getBytes(i, chunk, 0, count);
+                    for (int j = 0; j < count; j++) {
+                        action.accept(chunk[j]);
+                    }
+                }
+            }
+            index = end;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
         }
 
     }
@@ -0,0 +1,278 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Objects;
+
+
+/**
+ * This class builds up a binary string from bytes, primitive values, other binary strings
+ * and byte buffers.  The <code>build</code> method hands the bytes that have been appended
+ * to the resulting binary string without copying them when the storage of the builder is
+ * nearly full, so a builder that is created with the final size as its capacity never
+ * copies.  The <code>buildCopy</code> method always copies them so that the storage of the
+ * builder can be reused for the next binary string, which avoids allocating new storage
+ * when many small binary strings are built.  A builder is not thread-safe.
+ *
+ * @author Derk Norton
+ */
+public final class BinaryStringBuilder {
+
+    static private final int DEFAULT_CAPACITY = 64;
+
+    static private final VarHandle SHORT_BIG = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    static private final VarHandle SHORT_LITTLE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    static private final VarHandle INT_BIG = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    static private final VarHandle INT_LITTLE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    static private final VarHandle LONG_BIG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    static private final VarHandle LONG_LITTLE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final int initialCapacity;
+    private byte[] bytes;  // null after the bytes have been handed to a binary string
+    private int size;
+
+
+    /**
+     * This default constructor creates a new builder with the default initial capacity.
+     */
+    public BinaryStringBuilder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+
+    /**
+     * This constructor creates a new builder with the specified initial capacity.
+     *
+     * @param capacity The number of bytes that can be appended before the storage must grow.
+     */
+    public BinaryStringBuilder(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("The capacity must not be negative: " + capacity);
+        this.initialCapacity = capacity;
+        this.bytes = new byte[capacity];
+    }
+
+
+    /**
+     * This method returns the number of bytes that have been appended since the last build.
+     *
+     * @return The number of bytes.
+     */
+    public int getSize() {
+        return size;
+    }
+
+
+    /**
+     * This method appends the specified byte.
+     *
+     * @param value The byte to be appended.
+     * @return This builder.
+     */
+    public BinaryStringBuilder append(byte value) {
+        ensureCapacity(1);
+        bytes[size++] = value;
+        return this;
+    }
+
+
+    /**
+     * This method appends the specified bytes.
+     *
+     * @param values The bytes to be appended.
+     * @return This builder.
+     */
+    public BinaryStringBuilder append(byte[] values) {
+        return append(values, 0, values.length);
+    }
+
+
+    /**
+     * This method appends the specified range of bytes.
+     *
+     * @param values The array containing the bytes to be appended.
+     * @param offset The index of the first byte to be appended.
+     * @param length The number of bytes to be appended.
+     * @return This builder.
+     */
+    public BinaryStringBuilder append(byte[] values, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, values.length);
+        ensureCapacity(length);
+        System.arraycopy(values, offset, bytes, size, length);
+        size += length;
+        return this;
+    }
+
+
+    /**
+     * This method appends the bytes in the specified binary string.
+     *
+     * @param binary The binary string to be appended.
+     * @return This builder.
+     */
+    public BinaryStringBuilder append(BinaryString binary) {
+        int length = binary.getSize();
+        ensureCapacity(length);
+        binary.getBytes(0, bytes, size, length);
+        size += length;
+        return this;
+    }
+
+
+    /**
+     * This method appends the remaining bytes in the specified buffer.  The position of the
+     * buffer is not changed.
+     *
+     * @param buffer The buffer containing the bytes to be appended.
+     * @return This builder.
+     */
+    public BinaryStringBuilder append(ByteBuffer buffer) {
+        int length = buffer.remaining();
+        ensureCapacity(length);
+        buffer.get(buffer.position(), bytes, size, length);
+        size += length;
+        return this;
+    }
+
+
+    /**
+     * This method appends the specified short value in big endian order.
+     *
+     * @param value The value to be appended.
+     * @return This builder.
+     */
+    public BinaryStringBuilder appendShort(short value) {
+        return appendShort(value, ByteOrder.BIG_ENDIAN);
+    }
+
+
+    /**
+     * This method appends the specified short value in the specified byte order.
+     *
+     * @param value The value to be appended.
+     * @param order The byte order to be used.
+     * @return This builder.
+     */
+    public BinaryStringBuilder appendShort(short value, ByteOrder order) {
+        ensureCapacity(Short.BYTES);
+        (order == ByteOrder.BIG_ENDIAN ? SHORT_BIG : SHORT_LITTLE).set(bytes, size, value);
+        size += Short.BYTES;
+        return this;
+    }
+
+
+    /**
+     * This method appends the specified integer value in big endian order.
+     *
+     * @param value The value to be appended.
+     * @return This builder.
+     */
+    public BinaryStringBuilder appendInt(int value) {
+        return appendInt(value, ByteOrder.BIG_ENDIAN);
+    }
+
+
+    /**
+     * This method appends the specified integer value in the specified byte order.
+     *
+     * @param value The value to be appended.
+     * @param order The byte order to be used.
+     * @return This builder.
+     */
+    public BinaryStringBuilder appendInt(int value, ByteOrder order) {
+        ensureCapacity(Integer.BYTES);
+        (order == ByteOrder.BIG_ENDIAN ? INT_BIG : INT_LITTLE).set(bytes, size, value);
+        size += Integer.BYTES;
+        return this;
+    }
+
+
+    /**
+     * This method appends the specified long value in big endian order.
+     *
+     * @param value The value to be appended.
+     * @return This builder.
+     */
+    public BinaryStringBuilder appendLong(long value) {
+        return appendLong(value, ByteOrder.BIG_ENDIAN);
+    }
+
+
+    /**
+     * This method appends the specified long value in the specified byte order.
+     *
+     * @param value The value to be appended.
+     * @param order The byte order to be used.
+     * @return This builder.
+     */
+    public BinaryStringBuilder appendLong(long value, ByteOrder order) {
+        ensureCapacity(Long.BYTES);
+        (order == ByteOrder.BIG_ENDIAN ? LONG_BIG : LONG_LITTLE).set(bytes, size, value);
+        size += Long.BYTES;
+        return this;
+    }
+
+
+    /**
+     * This method returns a binary string containing the bytes that have been appended.
+     * If no more than an eighth of the storage of the builder is unused, the storage is
+     * handed to the binary string rather than copied, and the builder starts again with new
+     * storage.  Otherwise the binary string would hold on to the unused storage for as long
+     * as it lives, so the bytes are copied as they are by the <code>buildCopy</code> method.
+     *
+     * @return A binary string containing the appended bytes.
+     */
+    public BinaryString build() {
+        if (size == 0) return new BinaryString();
+        if (bytes.length - size > size >>> 3) return buildCopy();
+        BinaryString result = new BinaryString(bytes, 0, size);
+        bytes = null;  // owned by the binary string now
+        size = 0;
+        return result;
+    }
+
+
+    /**
+     * This method returns a binary string containing a copy of the bytes that have been
+     * appended.  The builder keeps its storage and starts again so that the storage can be
+     * reused for the next binary string.
+     *
+     * @return A binary string containing the appended bytes.
+     */
+    public BinaryString buildCopy() {
+        if (size == 0) return new BinaryString();
+        BinaryString result = BinaryString.wrap(Arrays.copyOf(bytes, size));
+        size = 0;
+        return result;
+    }
+
+
+    /**
+     * This method discards the bytes that have been appended while keeping the storage.
+     */
+    public void reset() {
+        size = 0;
+    }
+
+
+    private void ensureCapacity(int length) {
+        if (bytes == null) bytes = new byte[Math.max(initialCapacity, length)];
+        if (length <= bytes.length - size) return;
+        if (length > Integer.MAX_VALUE - size) throw new IllegalStateException("The binary string would be too large.");
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max((long) bytes.length * 2, (long) size + length));
+        if (capacity < size + length) capacity = size + length;
+        bytes = Arrays.copyOf(bytes, capacity);
+    }
+
+}
@@ -0,0 +1,196 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.util.Arrays;
+
+
+/**
+ * This class implements a succinct rank and select index over the bits in a binary string.
+ * The bits are numbered the same way as in a <code>java.util.BitSet</code>.  The rank of a
+ * position is the number of one bits before it, and the select of a number <code>k</code> is
+ * the position of the one bit that has <code>k</code> one bits before it.
+ * <p>
+ * The index uses a two level layout: an absolute count of the one bits before each 64K bit
+ * superblock, and a 16 bit count relative to its superblock before each 512 bit block, which
+ * adds a little over three percent to the size of the bits.  A rank query adds the two counts
+ * to the population counts of at most eight longs.  A select query starts from a sample of
+ * the block containing every 8192nd one bit and binary searches the block counts from there.
+ * The index is immutable and can be shared across threads.
+ *
+ * @author Derk Norton
+ */
+public final class BitIndex {
+
+    static private final int BLOCK_BITS = 512;
+    static private final int BLOCK_SHIFT = 9;
+    static private final int BLOCKS_PER_SUPERBLOCK_SHIFT = 7;  // 64K bits per superblock
+    static private final int SAMPLE_SHIFT = 13;  // sample every 8192nd one bit
+
+    private final BinaryString binary;  // the bits, read where they are stored
+    private final long size;
+    private final long count;
+    private final long[] superblocks;
+    private final char[] blocks;  // unsigned 16 bit counts
+    private final int[] samples;
+
+
+    /**
+     * This constructor creates a new index over the bits in the specified binary string.
+     * The bits are read from the binary string (including a rope or a memory mapped file)
+     * rather than copied, so only the counts add to the memory used.
+     *
+     * @param binary The binary string containing the bits.
+     */
+    public BitIndex(BinaryString binary) {
+        this.binary = binary;
+        this.size = (long) binary.getSize() * 8;
+        int numberOfBlocks = (int) ((size + BLOCK_BITS - 1) >>> BLOCK_SHIFT);
+        this.superblocks = new long[(numberOfBlocks >>> BLOCKS_PER_SUPERBLOCK_SHIFT) + 1];
+        this.blocks = new char[numberOfBlocks + 1];
+        int[] samples = new int[16];
+        int numberOfSamples = 0;
+        long total = 0;
+        for (int block = 0; block <= numberOfBlocks; block++) {
+            if ((block & ((1 << BLOCKS_PER_SUPERBLOCK_SHIFT) - 1)) == 0) {
+                superblocks[block >>> BLOCKS_PER_SUPERBLOCK_SHIFT] = total;
+            }
+            blocks[block] = (char) (total - superblocks[block >>> BLOCKS_PER_SUPERBLOCK_SHIFT]);
+            if (block == numberOfBlocks) break;
+            long blockCount = 0;
+            for (int word = block << 3; word < (block + 1) << 3; word++) {
+                blockCount += Long.bitCount(getWord(word));
+            }
+            // sample the block containing each one bit that is a multiple of the sampling rate
+            while (((long) numberOfSamples << SAMPLE_SHIFT) < total + blockCount) {
+                if (numberOfSamples == samples.length) samples = Arrays.copyOf(samples, numberOfSamples * 2);
+                samples[numberOfSamples++] = block;
+            }
+            total += blockCount;
+        }
+        this.count = total;
+        this.samples = Arrays.copyOf(samples, numberOfSamples);
+    }
+
+
+    /**
+     * This method returns the number of bits in the index.
+     *
+     * @return The number of bits.
+     */
+    public long getSize() {
+        return size;
+    }
+
+
+    /**
+     * This method returns the number of one bits in the index.
+     *
+     * @return The number of one bits.
+     */
+    public long getBitCount() {
+        return count;
+    }
+
+
+    /**
+     * This method returns the value of the bit at the specified position.
+     *
+     * @param position The position of the bit.
+     * @return Whether or not the bit is set.
+     */
+    public boolean getBit(long position) {
+        if (position < 0 || position >= size) throw new IndexOutOfBoundsException("Invalid bit position: " + position);
+        return (getWord((int) (position >>> 6)) & (1L << position)) != 0;
+    }
+
+
+    /**
+     * This method returns the number of one bits before the specified position.
+     *
+     * @param position The position (from zero to the number of bits inclusive).
+     * @return The number of one bits before the position.
+     */
+    public long rank(long position) {
+        if (position < 0 || position > size) throw new IndexOutOfBoundsException("Invalid bit position: " + position);
+        int block = (int) (position >>> BLOCK_SHIFT);
+        long rank = blockRank(block);
+        int last = (int) (position >>> 6);
+        for (int word = block << 3; word < last; word++) {
+            rank += Long.bitCount(getWord(word));
+        }
+        int bit = (int) (position & 63);
+        if (bit != 0) rank += Long.bitCount(getWord(last) & ((1L << bit) - 1));
+        return rank;
+    }
+
+
+    /**
+     * This method returns the position of the one bit that has the specified number of one
+     * bits before it, so that <code>rank(select(k)) == k</code>.
+     *
+     * @param k The number of one bits before the one bit (from zero).
+     * @return The position of the one bit, or -1 if there are not that many one bits.
+     */
+    public long select(long k) {
+        if (k < 0 || k >= count) return -1;
+        int sample = (int) (k >>> SAMPLE_SHIFT);
+        int low = samples[sample];
+        int high = sample + 1 < samples.length ? samples[sample + 1] : blocks.length - 2;
+        // find the last block that has no more than k one bits before it
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (blockRank(middle) <= k) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        long remaining = k - blockRank(low);
+        int word = low << 3;
+        while (true) {
+            long bits = getWord(word);
+            int bitCount = Long.bitCount(bits);
+            if (remaining < bitCount) return ((long) word << 6) + selectInWord(bits, (int) remaining);
+            remaining -= bitCount;
+            word++;
+        }
+    }
+
+
+    private long blockRank(int block) {
+        return superblocks[block >>> BLOCKS_PER_SUPERBLOCK_SHIFT] + blocks[block];
+    }
+
+
+    private long getWord(int word) {
+        return binary.getLong(word << 3);
+    }
+
+
+    /*
+     * This function returns the position of the one bit in the word that has the specified
+     * number of one bits before it, skipping a byte at a time.
+     */
+    static private int selectInWord(long word, int remaining) {
+        for (int shift = 0; ; shift += 8) {
+            int bits = (int) (word >>> shift) & 0xFF;
+            int bitCount = Integer.bitCount(bits);
+            if (remaining < bitCount) {
+                for (; remaining > 0; remaining--) {
+                    bits &= bits - 1;  // clear the lowest one bit
+                }
+                return shift + Integer.numberOfTrailingZeros(bits);
+            }
+            remaining -= bitCount;
+        }
+    }
+
+}
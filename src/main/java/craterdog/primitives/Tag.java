@@ -9,35 +9,56 @@
  ************************************************************************/
 package craterdog.primitives;
 
-import craterdog.utils.Base32Utils;
 import craterdog.utils.ByteUtils;
 import craterdog.utils.RandomUtils;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 
 /**
  * This class provides a globally unique identifier that can be used to reference anything
  * without requiring a centralized generator.  The tag is "self hashing" making it very
  * efficient as a key.
+ * <p>
+ * Tags of the default size (20 bytes) pack their value into three primitive fields rather
+ * than a byte array, and all tags generate their base 32 string representation only when
+ * it is first requested.  This keeps the per-instance heap footprint of a default sized
+ * tag at around 40 bytes instead of the roughly 100 bytes needed for its string form.
  *
  * @author Derk Norton
  */
 public final class Tag extends Primitive<Tag> {
 
     static private final int DEFAULT_TAG_SIZE = 20;
+    static private final int LINE_WIDTH = 80;  // matches the line breaks of Base32Utils
+    static private final char[] ALPHABET = "0123456789ABCDFGHJKLMNPQRSTVWXYZ".toCharArray();
+    static private final byte[] SYMBOLS = new byte[128];
 
-    private final int tagSize;
-    private final int hash;
-    private final String string;
+    static {
+        Arrays.fill(SYMBOLS, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            SYMBOLS[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    // the packed value of a default sized tag (bytes 0-7, 8-15 and 16-19)
+    private final long high;
+    private final long middle;
+    private final int low;
+
+    // the value of any tag that is not the default size, otherwise null
+    private final byte[] bytes;
+
+    // the base 32 string is generated lazily, the race to set it is benign
+    private String string;
 
 
     /**
      * This default constructor creates an instance of a tag with a new random value.
      */
     public Tag() {
-        tagSize = DEFAULT_TAG_SIZE;
-        byte[] bytes = RandomUtils.generateRandomBytes(tagSize);
-        hash = ByteUtils.bytesToInt(bytes);
-        string = Base32Utils.encode(bytes);
+        this(RandomUtils.generateRandomBytes(DEFAULT_TAG_SIZE), 0, DEFAULT_TAG_SIZE);
     }
 
 
@@ -47,10 +68,7 @@ public final class Tag extends Primitive<Tag> {
      * @param tagSizeInBytes The number of bytes that should be used to define the new tag.
      */
     public Tag(int tagSizeInBytes) {
-        tagSize = tagSizeInBytes;
-        byte[] bytes = RandomUtils.generateRandomBytes(tagSize);
-        hash = ByteUtils.bytesToInt(bytes);
-        string = Base32Utils.encode(bytes);
+        this(RandomUtils.generateRandomBytes(tagSizeInBytes), 0, tagSizeInBytes);
     }
 
 
@@ -60,9 +78,7 @@ public final class Tag extends Primitive<Tag> {
      * @param bytes The initial value of the tag as a byte array.
      */
     public Tag(byte[] bytes) {
-        tagSize = bytes.length;
-        hash = ByteUtils.bytesToInt(bytes);
-        string = Base32Utils.encode(bytes);
+        this(bytes, 0, bytes.length);
     }
 
 
@@ -72,24 +88,188 @@ public final class Tag extends Primitive<Tag> {
      * @param value The initial value of the tag as a base 32 string.
      */
     public Tag(String value) {
-        try {
-            string = value;
-            byte[] bytes = Base32Utils.decode(string);
-            tagSize = bytes.length;
-            hash = ByteUtils.bytesToInt(bytes);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException(value, e);
+        this(value, null, 0, value.length(), value);
+    }
+
+
+    /**
+     * This constructor creates an instance of a tag from the specified region of a byte
+     * array.  The bytes are copied (or packed) so the array may be reused by the caller.
+     *
+     * @param bytes The byte array containing the value of the tag.
+     * @param offset The index of the first byte of the tag.
+     * @param tagSize The number of bytes in the tag.
+     */
+    Tag(byte[] bytes, int offset, int tagSize) {
+        if (tagSize == DEFAULT_TAG_SIZE) {
+            this.high = ByteUtils.bytesToLong(bytes, offset);
+            this.middle = ByteUtils.bytesToLong(bytes, offset + 8);
+            this.low = ByteUtils.bytesToInt(bytes, offset + 16);
+            this.bytes = null;
+        } else {
+            this.high = 0L;
+            this.middle = 0L;
+            this.low = 0;
+            this.bytes = Arrays.copyOfRange(bytes, offset, offset + tagSize);
         }
     }
 
 
+    private Tag(long high, long middle, int low) {
+        this.high = high;
+        this.middle = middle;
+        this.low = low;
+        this.bytes = null;
+    }
+
+
+    /*
+     * This constructor decodes the base 32 characters in the specified region of either a
+     * character sequence or an ASCII byte buffer directly into the packed fields of the tag.
+     */
+    private Tag(CharSequence chars, ByteBuffer buffer, int index, int length, String string) {
+        int end = index + length;
+        int count = 0;
+        for (int i = index; i < end; i++) {
+            char character = chars != null ? chars.charAt(i) : (char) (buffer.get(i) & 0xFF);
+            if (isWhitespace(character)) continue;
+            if (symbolOf(character) < 0) throw new IllegalArgumentException("The tag contains an invalid base 32 character: " + character);
+            count++;
+        }
+        int tagSize = count * 5 / 8;
+        if (count != Tag.stringSize(tagSize)) throw new IllegalArgumentException("The tag contains an invalid number of base 32 characters: " + count);
+        long highBytes = 0L;
+        long middleBytes = 0L;
+        int lowBytes = 0;
+        byte[] array = tagSize == DEFAULT_TAG_SIZE ? null : new byte[tagSize];
+        int accumulator = 0;
+        int bits = 0;
+        int byteIndex = 0;
+        for (int i = index; i < end; i++) {
+            char character = chars != null ? chars.charAt(i) : (char) (buffer.get(i) & 0xFF);
+            if (isWhitespace(character)) continue;
+            accumulator = (accumulator << 5) | symbolOf(character);
+            bits += 5;
+            if (bits >= 8) {
+                bits -= 8;
+                int value = (accumulator >>> bits) & 0xFF;
+                if (array != null) {
+                    array[byteIndex] = (byte) value;
+                } else if (byteIndex < 8) {
+                    highBytes = (highBytes << 8) | value;
+                } else if (byteIndex < 16) {
+                    middleBytes = (middleBytes << 8) | value;
+                } else {
+                    lowBytes = (lowBytes << 8) | value;
+                }
+                byteIndex++;
+            }
+        }
+        if ((accumulator & ((1 << bits) - 1)) != 0) throw new IllegalArgumentException("The tag contains non-zero padding bits.");
+        this.high = highBytes;
+        this.middle = middleBytes;
+        this.low = lowBytes;
+        this.bytes = array;
+        // the string is only kept if it is exactly what toString() would generate
+        if (count == length && count <= LINE_WIDTH) this.string = string;
+    }
+
+
+    /**
+     * This function parses a tag from the base 32 characters in the specified character
+     * sequence.  Whitespace is ignored.
+     *
+     * @param value The character sequence containing the base 32 characters.
+     * @return The corresponding tag.
+     */
+    static public Tag parse(CharSequence value) {
+        return new Tag(value, null, 0, value.length(), null);
+    }
+
+
+    /**
+     * This function parses a tag from the ASCII encoded base 32 characters in the specified
+     * region of a byte buffer.  Whitespace is ignored, and the position of the byte buffer is
+     * not changed.
+     *
+     * @param buffer The byte buffer containing the ASCII characters.
+     * @param index The index of the first character in the byte buffer.
+     * @param length The number of characters to be parsed.
+     * @return The corresponding tag.
+     */
+    static public Tag parse(ByteBuffer buffer, int index, int length) {
+        return new Tag(null, buffer, index, length, null);
+    }
+
+
     /**
      * Returns a human readable version of this tag.
      * @return A string containing a modified base 32 encoding of the bytes that make up this tag.
      */
     @Override
     public String toString() {
-        return string;
+        String result = string;
+        if (result == null) {
+            char[] chars = new char[encodedLength()];
+            encode(chars, 0);
+            result = new String(chars);
+            string = result;
+        }
+        return result;
+    }
+
+
+    /**
+     * This method appends the base 32 encoding of this tag to the specified destination.  The
+     * characters are the same as those returned by the <code>toString()</code> method.
+     *
+     * @param destination The destination to which the characters should be appended.
+     * @throws IOException The destination could not be written to.
+     */
+    public void appendTo(Appendable destination) throws IOException {
+        int length = Tag.stringSize(getSize());
+        for (int i = 0; i < length; i++) {
+            if (i > 0 && i % LINE_WIDTH == 0) destination.append('\n');
+            destination.append(ALPHABET[getSymbol(i)]);
+        }
+    }
+
+
+    /**
+     * This method writes the base 32 encoding of this tag into the specified character array.
+     * The characters are the same as those returned by the <code>toString()</code> method.
+     *
+     * @param destination The character array into which the characters should be written.
+     * @param offset The index of the first character to be written.
+     * @return The number of characters that were written.
+     */
+    public int encode(char[] destination, int offset) {
+        int length = Tag.stringSize(getSize());
+        int index = offset;
+        for (int i = 0; i < length; i++) {
+            if (i > 0 && i % LINE_WIDTH == 0) destination[index++] = '\n';
+            destination[index++] = ALPHABET[getSymbol(i)];
+        }
+        return index - offset;
+    }
+
+
+    /**
+     * This method writes the ASCII encoded base 32 encoding of this tag into the specified
+     * byte buffer starting at its current position.  The characters are the same as those
+     * returned by the <code>toString()</code> method.
+     *
+     * @param destination The byte buffer into which the characters should be written.
+     * @return The number of bytes that were written.
+     */
+    public int encode(ByteBuffer destination) {
+        int length = Tag.stringSize(getSize());
+        int start = destination.position();
+        for (int i = 0; i < length; i++) {
+            if (i > 0 && i % LINE_WIDTH == 0) destination.put((byte) '\n');
+            destination.put((byte) ALPHABET[getSymbol(i)]);
+        }
+        return destination.position() - start;
     }
 
 
@@ -98,20 +278,72 @@ public final class Tag extends Primitive<Tag> {
      * @return The byte array for this tag.
      */
     public byte[] toBytes() {
-        return Base32Utils.decode(string);
+        if (bytes != null) return Arrays.copyOf(bytes, bytes.length);
+        byte[] result = new byte[DEFAULT_TAG_SIZE];
+        ByteUtils.longToBytes(high, result, 0);
+        ByteUtils.longToBytes(middle, result, 8);
+        ByteUtils.intToBytes(low, result, 16);
+        return result;
+    }
+
+
+    /**
+     * Returns the number of bytes that make up this tag.
+     *
+     * @return The size of the tag in bytes.
+     */
+    public int getSize() {
+        return bytes == null ? DEFAULT_TAG_SIZE : bytes.length;
+    }
+
+
+    /**
+     * Compares this tag with the specified tag using an unsigned lexicographic ordering of
+     * their bytes.  Since the base 32 alphabet is in ascending character order, this matches
+     * the ordering of the string representations of the tags.
+     *
+     * @param that The tag to be compared with this tag.
+     * @return -1, 0, or 1 if this tag is less than, equal to, or greater than the specified tag.
+     */
+    @Override
+    public int compareTo(Tag that) {
+        if (that == null) return 1;  // everything is greater than null
+        if (this == that) return 0;  // same object
+        if (this.bytes == null && that.bytes == null) {
+            int result = Long.compareUnsigned(this.high, that.high);
+            if (result == 0) result = Long.compareUnsigned(this.middle, that.middle);
+            if (result == 0) result = Integer.compareUnsigned(this.low, that.low);
+            return Integer.signum(result);
+        }
+        if (this.bytes != null && that.bytes != null) {
+            return Integer.signum(Arrays.compareUnsigned(this.bytes, that.bytes));
+        }
+        return Integer.signum(Arrays.compareUnsigned(this.toBytes(), that.toBytes()));
+    }
+
+
+    @Override
+    public boolean equals(Object object) {
+        if (object == null || !(object instanceof Tag)) return false;
+        Tag that = (Tag) object;
+        if (this == that) return true;  // same object
+        return this.high == that.high && this.middle == that.middle && this.low == that.low
+                && Arrays.equals(this.bytes, that.bytes);
     }
 
 
     /**
      * Returns an integer hash value of the bytes that make up this tag.  Since the bytes are a
      * generated crypto-random sequence, the first four bytes make a perfect hash value.  No
-     * additional processing is necessary.
+     * additional processing is necessary.  (The leading bytes of an ordered tag contain a
+     * timestamp, so the tag collections in this package hash the last bytes of a tag instead.)
      *
      * @return The integer hash value for the tag.
      */
     @Override
     public int hashCode() {
-        return hash;
+        if (bytes != null) return ByteUtils.bytesToInt(bytes);
+        return (int) (high >>> 32);
     }
 
 
@@ -128,4 +360,97 @@ public final class Tag extends Primitive<Tag> {
         return stringSize;
     }
 
+
+    /*
+     * This method returns the byte at the specified index of this tag without copying the
+     * tag into a byte array.
+     */
+    byte getByte(int index) {
+        if (bytes != null) return bytes[index];
+        if (index < 8) return (byte) (high >>> (56 - 8 * index));
+        if (index < 16) return (byte) (middle >>> (120 - 8 * index));
+        return (byte) (low >>> (152 - 8 * index));
+    }
+
+
+    /*
+     * This method returns the specified eight byte big-endian word of this tag.  The last word
+     * is padded with zeros if the size of the tag is not a multiple of eight bytes.
+     */
+    long getWord(int index) {
+        if (bytes == null) {
+            switch (index) {
+                case 0: return high;
+                case 1: return middle;
+                default: return (long) low << 32;
+            }
+        }
+        long word = 0L;
+        int offset = index * 8;
+        for (int i = 0; i < 8; i++) {
+            int byteIndex = offset + i;
+            word = (word << 8) | (byteIndex < bytes.length ? bytes[byteIndex] & 0xFF : 0);
+        }
+        return word;
+    }
+
+
+    /*
+     * This function creates a tag of the specified size from eight byte big-endian words
+     * starting at the specified offset in an array.
+     */
+    static Tag fromWords(long[] words, int offset, int tagSize) {
+        if (tagSize == DEFAULT_TAG_SIZE) {
+            return new Tag(words[offset], words[offset + 1], (int) (words[offset + 2] >>> 32));
+        }
+        byte[] array = new byte[tagSize];
+        for (int i = 0; i < tagSize; i++) {
+            array[i] = (byte) (words[offset + i / 8] >>> (56 - 8 * (i % 8)));
+        }
+        return new Tag(array, 0, tagSize);
+    }
+
+
+    /*
+     * This method returns the value (0..31) of the base 32 character at the specified index
+     * of the string representation of this tag (ignoring line breaks).
+     */
+    int getSymbol(int index) {
+        int bitIndex = index * 5;
+        int byteIndex = bitIndex >>> 3;
+        int word = (getByte(byteIndex) & 0xFF) << 8;
+        if (byteIndex + 1 < getSize()) word |= getByte(byteIndex + 1) & 0xFF;
+        return (word >>> (11 - (bitIndex & 7))) & 0x1F;
+    }
+
+
+    /*
+     * This function returns the value (0..31) of the specified base 32 character, or -1 if
+     * the character is not a valid base 32 character.
+     */
+    static int symbolOf(char character) {
+        return character < SYMBOLS.length ? SYMBOLS[character] : -1;
+    }
+
+
+    /*
+     * This function returns the base 32 character for the specified value (0..31).
+     */
+    static char characterOf(int symbol) {
+        return ALPHABET[symbol];
+    }
+
+
+    private int encodedLength() {
+        int length = Tag.stringSize(getSize());
+        return length == 0 ? 0 : length + (length - 1) / LINE_WIDTH;
+    }
+
+
+    static private boolean isWhitespace(char character) {
+        // the same characters as the \s regular expression used by Base32Utils
+        return character == ' ' || character == '\n' || character == '\t' || character == '\r'
+                || character == '\f' || character == '\u000B';
+    }
+
 }
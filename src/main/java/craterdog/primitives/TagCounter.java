@@ -0,0 +1,223 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+
+
+/**
+ * This class implements a HyperLogLog sketch that estimates the number of distinct tags that
+ * have been added to it using a small fixed amount of memory.  Since the bytes of a tag are
+ * crypto-random, the last eight bytes of the tag (ordered tags always end with at least
+ * twelve random bytes) are used directly as the hash value.  Tags may be added concurrently
+ * from any number of threads without locking, and sketches may be merged.  The standard
+ * error of the estimate is about <code>1.04 / sqrt(2^precision)</code>, or 0.8% for the
+ * default precision of 14.
+ *
+ * @author Derk Norton
+ */
+public final class TagCounter {
+
+    static private final int MAGIC = 0x54414743;  // "TAGC"
+    static private final int DEFAULT_PRECISION = 14;
+    static private final int MINIMUM_PRECISION = 4;
+    static private final int MAXIMUM_PRECISION = 18;
+    static private final int BITS_PER_REGISTER = 6;  // enough for ranks up to 61
+    static private final VarHandle REGISTER = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private final int precision;
+    private final byte[] registers;
+
+
+    /**
+     * This default constructor creates an empty counter with the default precision (14).
+     */
+    public TagCounter() {
+        this(DEFAULT_PRECISION);
+    }
+
+
+    /**
+     * This constructor creates an empty counter with the specified precision.  The counter
+     * uses <code>2^precision</code> registers.
+     *
+     * @param precision The precision (4..18) of the counter.
+     */
+    public TagCounter(int precision) {
+        if (precision < MINIMUM_PRECISION || precision > MAXIMUM_PRECISION) {
+            throw new IllegalArgumentException("The precision must be in the range [" + MINIMUM_PRECISION + ".." + MAXIMUM_PRECISION + "]: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+
+    /**
+     * This method returns the precision of the counter.
+     *
+     * @return The precision of the counter.
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+
+    /**
+     * This method adds the specified tag to the counter.
+     *
+     * @param tag The tag to be added.
+     */
+    public void add(Tag tag) {
+        long hash = 0L;
+        for (int i = tag.getSize() - 8; i < tag.getSize(); i++) {
+            hash = (hash << 8) | (i >= 0 ? tag.getByte(i) & 0xFF : 0);
+        }
+        int index = (int) (hash >>> (64 - precision));
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << precision), 64 - precision) + 1;
+        update(index, rank);
+    }
+
+
+    /**
+     * This method estimates the number of distinct tags that have been added to the counter.
+     *
+     * @return The estimated number of distinct tags.
+     */
+    public long getEstimate() {
+        int m = registers.length;
+        double sum = 0.0d;
+        int zeros = 0;
+        for (int i = 0; i < m; i++) {
+            int rank = (byte) REGISTER.getVolatile(registers, i);
+            sum += Math.scalb(1.0d, -rank);
+            if (rank == 0) zeros++;
+        }
+        double alpha;
+        switch (m) {
+            case 16: alpha = 0.673d; break;
+            case 32: alpha = 0.697d; break;
+            case 64: alpha = 0.709d; break;
+            default: alpha = 0.7213d / (1.0d + 1.079d / m);
+        }
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5d * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);  // linear counting for small cardinalities
+        }
+        return Math.round(estimate);
+    }
+
+
+    /**
+     * This method adds all of the tags in the specified counter to this counter.  The
+     * counters must have the same precision.
+     *
+     * @param counter The counter to be merged into this counter.
+     */
+    public void merge(TagCounter counter) {
+        checkCompatible(this, counter);
+        for (int i = 0; i < registers.length; i++) {
+            update(i, (byte) REGISTER.getVolatile(counter.registers, i));
+        }
+    }
+
+
+    /**
+     * This function returns a new counter that contains the union of the tags in the
+     * specified counters.  The counters must have the same precision.
+     *
+     * @param counter1 The first counter.
+     * @param counter2 The second counter.
+     * @return The union of the two counters.
+     */
+    static public TagCounter union(TagCounter counter1, TagCounter counter2) {
+        checkCompatible(counter1, counter2);
+        TagCounter union = new TagCounter(counter1.precision);
+        union.merge(counter1);
+        union.merge(counter2);
+        return union;
+    }
+
+
+    /**
+     * This method returns the number of bytes needed to serialize the counter.  Each register
+     * is packed into six bits.
+     *
+     * @return The serialized size of the counter in bytes.
+     */
+    public int getSerializedSize() {
+        return 5 + registers.length * BITS_PER_REGISTER / 8;
+    }
+
+
+    /**
+     * This method writes the counter into the specified byte buffer starting at its current
+     * position.
+     *
+     * @param buffer The byte buffer into which the counter should be written.
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.put((byte) precision);
+        int accumulator = 0;
+        int bits = 0;
+        for (int i = 0; i < registers.length; i++) {
+            accumulator = (accumulator << BITS_PER_REGISTER) | (byte) REGISTER.getVolatile(registers, i);
+            bits += BITS_PER_REGISTER;
+            while (bits >= 8) {
+                bits -= 8;
+                buffer.put((byte) (accumulator >>> bits));
+            }
+        }
+    }
+
+
+    /**
+     * This function reads a counter that was written using the <code>writeTo()</code> method
+     * from the specified byte buffer starting at its current position.
+     *
+     * @param buffer The byte buffer containing the counter.
+     * @return The counter.
+     */
+    static public TagCounter readFrom(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) throw new IllegalArgumentException("The buffer does not contain a tag counter.");
+        TagCounter counter = new TagCounter(buffer.get());
+        int accumulator = 0;
+        int bits = 0;
+        for (int i = 0; i < counter.registers.length; i++) {
+            while (bits < BITS_PER_REGISTER) {
+                accumulator = (accumulator << 8) | (buffer.get() & 0xFF);
+                bits += 8;
+            }
+            bits -= BITS_PER_REGISTER;
+            counter.registers[i] = (byte) ((accumulator >>> bits) & ((1 << BITS_PER_REGISTER) - 1));
+        }
+        return counter;
+    }
+
+
+    private void update(int index, int rank) {
+        byte current = (byte) REGISTER.getVolatile(registers, index);
+        while (rank > current) {
+            byte witness = (byte) REGISTER.compareAndExchange(registers, index, current, (byte) rank);
+            if (witness == current) return;
+            current = witness;
+        }
+    }
+
+
+    static private void checkCompatible(TagCounter counter1, TagCounter counter2) {
+        if (counter1.precision != counter2.precision) {
+            throw new IllegalArgumentException("The counters do not have the same precision.");
+        }
+    }
+
+}
@@ -0,0 +1,261 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/**
+ * This class provides read-only access to an immutable file of sorted tags that was created
+ * using the <code>TagFileWriter</code> class.  The file is memory mapped rather than read so
+ * opening even a very large file takes milliseconds, and membership checks and range scans
+ * read the tag bytes directly from the mapped pages.
+ * <p>
+ * The file format is a 32 byte header, followed by the raw bytes of the tags in unsigned
+ * ascending order (without duplicates), followed by a sparse index containing the first eight
+ * bytes of every 1024th tag.  The header contains the magic number "TAGS", the format version,
+ * the tag size, the index interval, the number of tags and the file offset of the index.  All
+ * numbers are big-endian.
+ *
+ * @author Derk Norton
+ */
+public final class TagFile implements Closeable {
+
+    static final int MAGIC = 0x54414753;  // "TAGS"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int INDEX_INTERVAL = 1024;
+
+    private final FileChannel channel;
+    private final int tagSize;
+    private final long count;
+    private final long[] index;
+    private final MappedByteBuffer[] segments;
+    private final int tagsPerSegment;
+
+
+    /**
+     * This constructor opens the specified tag file.
+     *
+     * @param file The path to the tag file.
+     * @throws IOException The file could not be opened or is not a valid tag file.
+     */
+    public TagFile(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) throw new IOException("The tag file is truncated: " + file);
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) throw new IOException("The file is not a tag file: " + file);
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("The tag file version is not supported: " + version);
+            this.tagSize = header.getInt();
+            int interval = header.getInt();
+            this.count = header.getLong();
+            long indexOffset = header.getLong();
+            if (tagSize < 1 || interval != INDEX_INTERVAL || indexOffset != HEADER_SIZE + count * tagSize) {
+                throw new IOException("The tag file header is corrupt: " + file);
+            }
+
+            // load the sparse index onto the heap
+            int indexSize = (int) ((count + INDEX_INTERVAL - 1) / INDEX_INTERVAL);
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, indexSize * 8L);
+            this.index = new long[indexSize];
+            buffer.asLongBuffer().get(index);
+
+            // map the tags in segments that each fit within a single buffer
+            this.tagsPerSegment = Integer.MAX_VALUE / tagSize;
+            int numberOfSegments = (int) ((count + tagsPerSegment - 1) / tagsPerSegment);
+            this.segments = new MappedByteBuffer[numberOfSegments];
+            for (int i = 0; i < numberOfSegments; i++) {
+                long first = (long) i * tagsPerSegment;
+                long tags = Math.min(tagsPerSegment, count - first);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * tagSize, tags * tagSize);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * This method returns the number of bytes in each tag in the file.
+     *
+     * @return The size of the tags in bytes.
+     */
+    public int getTagSize() {
+        return tagSize;
+    }
+
+
+    /**
+     * This method returns the number of tags in the file.
+     *
+     * @return The number of tags.
+     */
+    public long getSize() {
+        return count;
+    }
+
+
+    /**
+     * This method determines whether or not the specified tag is in the file.
+     *
+     * @param tag The tag to be checked.
+     * @return Whether or not the tag is in the file.
+     */
+    public boolean contains(Tag tag) {
+        return tag.getSize() == tagSize && indexOf(tag) >= 0;
+    }
+
+
+    /**
+     * This method returns the tag at the specified position in the file.
+     *
+     * @param position The position (0..size-1) of the tag.
+     * @return The tag at that position.
+     */
+    public Tag getTag(long position) {
+        if (position < 0 || position >= count) throw new IndexOutOfBoundsException("Invalid tag position: " + position);
+        ByteBuffer segment = segments[(int) (position / tagsPerSegment)];
+        int offset = (int) (position % tagsPerSegment) * tagSize;
+        byte[] bytes = new byte[tagSize];
+        segment.get(offset, bytes);
+        return new Tag(bytes, 0, tagSize);
+    }
+
+
+    /**
+     * This method searches the file for the specified tag.
+     *
+     * @param tag The tag to be searched for.
+     * @return The position of the tag if it is in the file, otherwise
+     * <code>(-(insertion point) - 1)</code> as defined by <code>Arrays.binarySearch()</code>.
+     */
+    public long indexOf(Tag tag) {
+        if (tag.getSize() != tagSize) throw new IllegalArgumentException("Only tags of size " + tagSize + " are supported: " + tag.getSize());
+        // narrow the search using the sparse index
+        long prefix = tag.getWord(0);
+        int lower = 0;
+        int upper = index.length;
+        while (lower < upper) {
+            int middle = (lower + upper) >>> 1;
+            if (Long.compareUnsigned(index[middle], prefix) < 0) lower = middle + 1; else upper = middle;
+        }
+        long low = Math.max(0, (long) (lower - 1) * INDEX_INTERVAL);
+        while (upper < index.length && index[upper] == prefix) upper++;
+        long high = Math.min(count, (long) upper * INDEX_INTERVAL) - 1;
+
+        // binary search the mapped tags
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            int result = compare(middle, tag);
+            if (result < 0) {
+                low = middle + 1;
+            } else if (result > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+
+    /**
+     * This method returns an iterator over the tags in the file that are greater than or equal
+     * to the first tag and less than the last tag.  A null first tag starts at the beginning
+     * of the file and a null last tag continues to the end of the file.
+     *
+     * @param first The (inclusive) lower bound of the range.
+     * @param last The (exclusive) upper bound of the range.
+     * @return An iterator over the tags in the range.
+     */
+    public Iterator<Tag> scan(Tag first, Tag last) {
+        long start = first == null ? 0 : insertionPoint(first);
+        long end = last == null ? count : insertionPoint(last);
+        return new TagIterator(start, Math.max(start, end));
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        channel.close();  // the mapped buffers remain valid until they are garbage collected
+    }
+
+
+    private long insertionPoint(Tag tag) {
+        long position = indexOf(tag);
+        return position >= 0 ? position : -(position + 1);
+    }
+
+
+    /*
+     * This method compares the tag at the specified position in the file with the specified
+     * tag eight bytes at a time.
+     */
+    private int compare(long position, Tag tag) {
+        ByteBuffer segment = segments[(int) (position / tagsPerSegment)];
+        int offset = (int) (position % tagsPerSegment) * tagSize;
+        int words = (tagSize + 7) / 8;
+        for (int i = 0; i < words; i++) {
+            long word;
+            int start = offset + i * 8;
+            int remaining = tagSize - i * 8;
+            if (remaining >= 8) {
+                word = segment.getLong(start);
+            } else {
+                word = 0L;
+                for (int j = 0; j < 8; j++) {
+                    word = (word << 8) | (j < remaining ? segment.get(start + j) & 0xFF : 0);
+                }
+            }
+            int result = Long.compareUnsigned(word, tag.getWord(i));
+            if (result != 0) return result;
+        }
+        return 0;
+    }
+
+
+    private final class TagIterator implements Iterator<Tag> {
+
+        private long position;
+        private final long end;
+
+        private TagIterator(long start, long end) {
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < end;
+        }
+
+        @Override
+        public Tag next() {
+            if (position >= end) throw new NoSuchElementException();
+            return getTag(position++);
+        }
+
+    }
+
+}
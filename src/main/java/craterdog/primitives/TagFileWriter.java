@@ -0,0 +1,320 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+
+/**
+ * This class creates a tag file that can be opened using the <code>TagFile</code> class.
+ * The tags may be written in any order and may contain duplicates.  They are collected into
+ * sorted runs in memory, and any runs that do not fit in memory are spilled to temporary
+ * files next to the tag file.  When the writer is closed the runs are merged (removing
+ * duplicates) into the final file, at most <code>MERGE_FAN_IN</code> files at a time.  The
+ * final file is written under a temporary name and then atomically moved into place, so a
+ * crash never leaves a partially written tag file behind.
+ *
+ * @author Derk Norton
+ */
+public final class TagFileWriter implements Closeable {
+
+    static private final int DEFAULT_TAG_SIZE = 20;
+    static private final int DEFAULT_RUN_SIZE = 1 << 20;
+    static private final int BUFFER_SIZE = 1 << 16;
+    static private final int MERGE_FAN_IN = 64;  // the most temporary files open at once
+
+    private final Path file;
+    private final int tagSize;
+    private final Tag[] run;
+    private final List<Path> spills = new ArrayList<>();
+    private int runLength;
+    private boolean closed;
+
+
+    /**
+     * This constructor creates a writer for a file of default sized (20 byte) tags.
+     *
+     * @param file The path to the tag file to be written.
+     */
+    public TagFileWriter(Path file) {
+        this(file, DEFAULT_TAG_SIZE, DEFAULT_RUN_SIZE);
+    }
+
+
+    /**
+     * This constructor creates a writer for a file of tags with the specified size.
+     *
+     * @param file The path to the tag file to be written.
+     * @param tagSize The number of bytes in each tag.
+     */
+    public TagFileWriter(Path file, int tagSize) {
+        this(file, tagSize, DEFAULT_RUN_SIZE);
+    }
+
+
+    /**
+     * This constructor creates a writer for a file of tags with the specified size that sorts
+     * at most the specified number of tags in memory at a time.
+     *
+     * @param file The path to the tag file to be written.
+     * @param tagSize The number of bytes in each tag.
+     * @param runSize The maximum number of tags that are sorted in memory.
+     */
+    public TagFileWriter(Path file, int tagSize, int runSize) {
+        if (tagSize < 1) throw new IllegalArgumentException("The tag size must be greater than zero: " + tagSize);
+        if (runSize < 1) throw new IllegalArgumentException("The run size must be greater than zero: " + runSize);
+        this.file = file;
+        this.tagSize = tagSize;
+        this.run = new Tag[runSize];
+    }
+
+
+    /**
+     * This method adds the specified tag to the file.
+     *
+     * @param tag The tag to be added.
+     * @throws IOException A sorted run could not be spilled to a temporary file.
+     */
+    public void write(Tag tag) throws IOException {
+        if (closed) throw new IllegalStateException("The tag file writer has been closed.");
+        if (tag.getSize() != tagSize) throw new IllegalArgumentException("Only tags of size " + tagSize + " are supported: " + tag.getSize());
+        if (runLength == run.length) spill();
+        run[runLength++] = tag;
+    }
+
+
+    /**
+     * This method merges all of the tags that were written into the tag file.
+     *
+     * @throws IOException The tag file could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            // merge the spilled runs in passes until they can all be merged with the last run
+            while (spills.size() >= MERGE_FAN_IN) {
+                List<Path> group = new ArrayList<>(spills.subList(0, MERGE_FAN_IN));
+                Path merged = createSpill();
+                List<Source> sources = new ArrayList<>();
+                try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(merged), BUFFER_SIZE)) {
+                    for (Path spill : group) {
+                        sources.add(new FileSource(spill, tagSize));
+                    }
+                    merge(sources, output, null);
+                } finally {
+                    for (Source source : sources) {
+                        source.close();
+                    }
+                }
+                for (Path spill : group) {
+                    Files.delete(spill);
+                }
+                spills.subList(0, MERGE_FAN_IN).clear();
+            }
+            Arrays.sort(run, 0, runLength);
+            List<Source> sources = new ArrayList<>();
+            try {
+                sources.add(new ArraySource(run, runLength));
+                for (Path spill : spills) {
+                    sources.add(new FileSource(spill, tagSize));
+                }
+                write(sources);
+            } finally {
+                for (Source source : sources) {
+                    source.close();
+                }
+            }
+        } finally {
+            Arrays.fill(run, null);
+            for (Path spill : spills) {
+                Files.deleteIfExists(spill);
+            }
+        }
+    }
+
+
+    private void spill() throws IOException {
+        Arrays.sort(run, 0, runLength);
+        Path spill = createSpill();
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(spill), BUFFER_SIZE)) {
+            byte[] bytes = new byte[tagSize];
+            Tag previous = null;
+            for (int i = 0; i < runLength; i++) {
+                Tag tag = run[i];
+                if (tag.equals(previous)) continue;
+                for (int j = 0; j < tagSize; j++) {
+                    bytes[j] = tag.getByte(j);
+                }
+                output.write(bytes);
+                previous = tag;
+            }
+        }
+        Arrays.fill(run, null);
+        runLength = 0;
+    }
+
+
+    /*
+     * This method creates a new temporary file for a sorted run.  The file is deleted when
+     * the writer is closed.
+     */
+    private Path createSpill() throws IOException {
+        Path spill = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName() + ".", ".run");
+        spills.add(spill);
+        return spill;
+    }
+
+
+    /*
+     * This method merges the sources into a temporary file with a header and an index, and
+     * then moves the temporary file into place as the tag file.
+     */
+    private void write(List<Source> sources) throws IOException {
+        Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName() + ".", ".tmp");
+        try {
+            long count;
+            List<Long> index = new ArrayList<>();
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+                output.write(new byte[TagFile.HEADER_SIZE]);  // filled in below
+                count = merge(sources, output, index);
+                for (long prefix : index) {
+                    output.writeLong(prefix);
+                }
+            }
+            ByteBuffer header = ByteBuffer.allocate(TagFile.HEADER_SIZE);
+            header.putInt(TagFile.MAGIC);
+            header.putInt(TagFile.VERSION);
+            header.putInt(tagSize);
+            header.putInt(TagFile.INDEX_INTERVAL);
+            header.putLong(count);
+            header.putLong(TagFile.HEADER_SIZE + count * tagSize);
+            header.flip();
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+
+    /*
+     * This method merges the sorted sources into the output, removing duplicates, and returns
+     * the number of tags that were written.  If an index is specified the first word of every
+     * INDEX_INTERVAL'th tag is added to it.
+     */
+    private long merge(List<Source> sources, OutputStream output, List<Long> index) throws IOException {
+        PriorityQueue<Source> queue = new PriorityQueue<>((source1, source2) -> source1.current.compareTo(source2.current));
+        for (Source source : sources) {
+            if (source.advance()) queue.add(source);
+        }
+        long count = 0;
+        byte[] bytes = new byte[tagSize];
+        Tag previous = null;
+        while (!queue.isEmpty()) {
+            Source source = queue.poll();
+            Tag tag = source.current;
+            if (source.advance()) queue.add(source);
+            if (tag.equals(previous)) continue;
+            if (index != null && count % TagFile.INDEX_INTERVAL == 0) index.add(tag.getWord(0));
+            for (int j = 0; j < tagSize; j++) {
+                bytes[j] = tag.getByte(j);
+            }
+            output.write(bytes);
+            previous = tag;
+            count++;
+        }
+        return count;
+    }
+
+
+    static private abstract class Source implements Closeable {
+
+        Tag current;
+
+        abstract boolean advance() throws IOException;
+
+        @Override
+        public void close() throws IOException {
+        }
+
+    }
+
+
+    static private final class ArraySource extends Source {
+
+        private final Tag[] tags;
+        private final int length;
+        private int position;
+
+        private ArraySource(Tag[] tags, int length) {
+            this.tags = tags;
+            this.length = length;
+        }
+
+        @Override
+        boolean advance() {
+            if (position == length) return false;
+            current = tags[position++];
+            return true;
+        }
+
+    }
+
+
+    static private final class FileSource extends Source {
+
+        private final InputStream input;
+        private final byte[] bytes;
+
+        private FileSource(Path file, int tagSize) throws IOException {
+            this.input = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE);
+            this.bytes = new byte[tagSize];
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            int count = input.readNBytes(bytes, 0, bytes.length);
+            if (count == 0) return false;
+            if (count < bytes.length) throw new IOException("A temporary run file is truncated.");
+            current = new Tag(bytes, 0, bytes.length);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+
+    }
+
+}
@@ -0,0 +1,240 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * This class implements a bloom filter that can be used to quickly determine that a tag is
+ * definitely not a member of a set.  Since the bytes of a tag are crypto-random, the hash
+ * functions are sliced directly from the last twelve bytes of the tag using double hashing,
+ * so no additional hashing is needed.  (Ordered tags always end with at least twelve random
+ * bytes.)  Tags may be added concurrently from any number of threads without locking.
+ *
+ * @author Derk Norton
+ */
+public final class TagFilter {
+
+    static private final int MAGIC = 0x54414746;  // "TAGF"
+    static private final double LN2 = Math.log(2.0d);
+
+    private final int numberOfHashes;
+    private final long numberOfBits;
+    private final AtomicLongArray words;
+
+
+    /**
+     * This constructor creates an empty filter that is sized to hold the specified number of
+     * tags with the specified false positive probability.
+     *
+     * @param expectedInsertions The number of tags that are expected to be added.
+     * @param falsePositiveProbability The desired probability that the filter claims to
+     * contain a tag that was never added.
+     */
+    public TagFilter(long expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions < 1) throw new IllegalArgumentException("The expected number of insertions must be greater than zero: " + expectedInsertions);
+        if (!(falsePositiveProbability > 0.0d && falsePositiveProbability < 1.0d)) {
+            throw new IllegalArgumentException("The false positive probability must be in the range (0..1): " + falsePositiveProbability);
+        }
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (LN2 * LN2));
+        long numberOfWords = Math.max(1, (bits + 63) / 64);
+        if (numberOfWords > Integer.MAX_VALUE) throw new IllegalArgumentException("The filter would be too large: " + bits + " bits");
+        this.numberOfBits = numberOfWords * 64;
+        this.numberOfHashes = Math.max(1, (int) Math.round((double) numberOfBits / expectedInsertions * LN2));
+        this.words = new AtomicLongArray((int) numberOfWords);
+    }
+
+
+    private TagFilter(int numberOfHashes, long[] words) {
+        this.numberOfHashes = numberOfHashes;
+        this.numberOfBits = words.length * 64L;
+        this.words = new AtomicLongArray(words);
+    }
+
+
+    /**
+     * This method returns the number of hash functions that are used by the filter.
+     *
+     * @return The number of hash functions.
+     */
+    public int getNumberOfHashes() {
+        return numberOfHashes;
+    }
+
+
+    /**
+     * This method returns the number of bits in the filter.
+     *
+     * @return The number of bits.
+     */
+    public long getNumberOfBits() {
+        return numberOfBits;
+    }
+
+
+    /**
+     * This method adds the specified tag to the filter.
+     *
+     * @param tag The tag to be added.
+     * @return Whether or not any bits in the filter changed, if not the tag (or a tag with
+     * the same hashes) had already been added.
+     */
+    public boolean add(Tag tag) {
+        long hash1 = trailingBytes(tag, 0, 8);
+        long hash2 = trailingBytes(tag, 8, 4) << 1 | 1L;  // never zero so the hashes do not all repeat the first one
+        boolean changed = false;
+        for (int i = 0; i < numberOfHashes; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, numberOfBits);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((words.get(index) & mask) == 0L) {
+                long previous = words.getAndAccumulate(index, mask, (word, value) -> word | value);
+                changed |= (previous & mask) == 0L;
+            }
+        }
+        return changed;
+    }
+
+
+    /**
+     * This method determines whether or not the specified tag might have been added to the
+     * filter.
+     *
+     * @param tag The tag to be checked.
+     * @return Whether or not the tag might have been added.  If the result is false, the tag
+     * was definitely never added.
+     */
+    public boolean mightContain(Tag tag) {
+        long hash1 = trailingBytes(tag, 0, 8);
+        long hash2 = trailingBytes(tag, 8, 4) << 1 | 1L;
+        for (int i = 0; i < numberOfHashes; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, numberOfBits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0L) return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * This method estimates the current false positive probability of the filter based on
+     * the fraction of its bits that are set.
+     *
+     * @return The estimated false positive probability.
+     */
+    public double getFalsePositiveProbability() {
+        long set = 0;
+        for (int i = 0; i < words.length(); i++) {
+            set += Long.bitCount(words.get(i));
+        }
+        return Math.pow((double) set / numberOfBits, numberOfHashes);
+    }
+
+
+    /**
+     * This method adds all of the tags in the specified filter to this filter.  The filters
+     * must have the same number of bits and hash functions.
+     *
+     * @param filter The filter to be merged into this filter.
+     */
+    public void merge(TagFilter filter) {
+        checkCompatible(this, filter);
+        for (int i = 0; i < words.length(); i++) {
+            long word = filter.words.get(i);
+            if (word != 0L) words.getAndAccumulate(i, word, (word1, word2) -> word1 | word2);
+        }
+    }
+
+
+    /**
+     * This function returns a new filter that contains the union of the tags in the specified
+     * filters.  The filters must have the same number of bits and hash functions.
+     *
+     * @param filter1 The first filter.
+     * @param filter2 The second filter.
+     * @return The union of the two filters.
+     */
+    static public TagFilter union(TagFilter filter1, TagFilter filter2) {
+        checkCompatible(filter1, filter2);
+        long[] words = new long[filter1.words.length()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = filter1.words.get(i) | filter2.words.get(i);
+        }
+        return new TagFilter(filter1.numberOfHashes, words);
+    }
+
+
+    /**
+     * This method returns the number of bytes needed to serialize the filter.
+     *
+     * @return The serialized size of the filter in bytes.
+     */
+    public int getSerializedSize() {
+        return 12 + words.length() * 8;
+    }
+
+
+    /**
+     * This method writes the filter into the specified byte buffer starting at its current
+     * position.
+     *
+     * @param buffer The byte buffer into which the filter should be written.
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.putInt(numberOfHashes);
+        buffer.putInt(words.length());
+        for (int i = 0; i < words.length(); i++) {
+            buffer.putLong(words.get(i));
+        }
+    }
+
+
+    /**
+     * This function reads a filter that was written using the <code>writeTo()</code> method
+     * from the specified byte buffer starting at its current position.
+     *
+     * @param buffer The byte buffer containing the filter.
+     * @return The filter.
+     */
+    static public TagFilter readFrom(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) throw new IllegalArgumentException("The buffer does not contain a tag filter.");
+        int numberOfHashes = buffer.getInt();
+        int numberOfWords = buffer.getInt();
+        if (numberOfHashes < 1 || numberOfWords < 1) throw new IllegalArgumentException("The tag filter is corrupt.");
+        long[] words = new long[numberOfWords];
+        buffer.asLongBuffer().get(words);
+        buffer.position(buffer.position() + numberOfWords * 8);
+        return new TagFilter(numberOfHashes, words);
+    }
+
+
+    static private void checkCompatible(TagFilter filter1, TagFilter filter2) {
+        if (filter1.numberOfBits != filter2.numberOfBits || filter1.numberOfHashes != filter2.numberOfHashes) {
+            throw new IllegalArgumentException("The filters do not have the same number of bits and hash functions.");
+        }
+    }
+
+
+    /*
+     * This function returns the specified number of bytes of the tag ending the specified
+     * number of bytes from its end as a big-endian number.  Missing bytes are treated as zero.
+     */
+    static private long trailingBytes(Tag tag, int skip, int length) {
+        int end = tag.getSize() - skip;
+        long value = 0L;
+        for (int i = end - length; i < end; i++) {
+            value = (value << 8) | (i >= 0 ? tag.getByte(i) & 0xFF : 0);
+        }
+        return value;
+    }
+
+}
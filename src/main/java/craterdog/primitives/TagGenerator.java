@@ -0,0 +1,237 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import craterdog.utils.ByteUtils;
+import craterdog.utils.RandomUtils;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * This class generates new random tags at a high rate.  Rather than asking the secure random
+ * number generator for a few bytes per tag, the generator pulls large blocks of random bytes
+ * into a set of striped buffers and carves the tags out of them.  Each stripe keeps a spare
+ * block that is refilled by a background thread so that calling threads rarely have to wait
+ * on the secure random number generator.  The stripes are guarded by locks that do not pin
+ * virtual threads to their carrier threads.
+ * <p>
+ * The generator can also create ordered tags whose leading eight bytes contain a millisecond
+ * timestamp (six bytes) followed by a counter (two bytes).  The remaining bytes (at least
+ * twelve of them) are random, so the trailing bytes of any tag can be used as a hash.
+ * Ordered tags that are generated close together in time sort close together, which keeps
+ * inserts into B-tree and LSM based indexes local.
+ *
+ * @author Derk Norton
+ */
+public final class TagGenerator {
+
+    static private final int DEFAULT_TAG_SIZE = 20;
+    static private final int BLOCK_SIZE = 4000;  // a multiple of the default tag size
+    static private final int SEQUENCE_SIZE = 8;  // timestamp and counter
+    static private final int MINIMUM_ORDERED_SIZE = SEQUENCE_SIZE + 12;  // the random bytes that are hashed
+    static private final int COUNTER_BITS = 16;
+
+    // the last timestamp and counter that was used by any generator
+    static private final AtomicLong lastSequence = new AtomicLong();
+
+    static private final ExecutorService refiller = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TagGenerator-refiller");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static private final TagGenerator defaultGenerator = new TagGenerator();
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+
+    /**
+     * This default constructor creates a new tag generator with a number of stripes that is
+     * based on the number of available processors.
+     */
+    public TagGenerator() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+
+    /**
+     * This constructor creates a new tag generator with the specified number of stripes. The
+     * number is rounded up to the next power of two.
+     *
+     * @param numberOfStripes The minimum number of independent buffers to be used.
+     */
+    public TagGenerator(int numberOfStripes) {
+        if (numberOfStripes < 1) throw new IllegalArgumentException("The number of stripes must be greater than zero: " + numberOfStripes);
+        int size = Integer.highestOneBit(numberOfStripes);
+        if (size < numberOfStripes) size <<= 1;
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.mask = size - 1;
+    }
+
+
+    /**
+     * This function returns a tag generator that is shared by the whole virtual machine.
+     *
+     * @return The shared tag generator.
+     */
+    static public TagGenerator getDefaultGenerator() {
+        return defaultGenerator;
+    }
+
+
+    /**
+     * This method generates a new random tag of the default size (20 bytes).
+     *
+     * @return The new random tag.
+     */
+    public Tag generateTag() {
+        return generateTag(DEFAULT_TAG_SIZE);
+    }
+
+
+    /**
+     * This method generates a new random tag with the specified number of bytes.
+     *
+     * @param tagSizeInBytes The number of bytes that should be used to define the new tag.
+     * @return The new random tag.
+     */
+    public Tag generateTag(int tagSizeInBytes) {
+        if (tagSizeInBytes < 0) throw new IllegalArgumentException("The tag size cannot be negative: " + tagSizeInBytes);
+        if (tagSizeInBytes > BLOCK_SIZE) return new Tag(tagSizeInBytes);
+        return selectStripe().generateTag(tagSizeInBytes);
+    }
+
+
+    /**
+     * This method generates a new ordered tag of the default size (20 bytes).
+     *
+     * @return The new ordered tag.
+     */
+    public Tag generateOrderedTag() {
+        return generateOrderedTag(DEFAULT_TAG_SIZE);
+    }
+
+
+    /**
+     * This method generates a new ordered tag with the specified number of bytes.  The first
+     * eight bytes contain the current time in milliseconds and a counter that is incremented
+     * for tags that are generated during the same millisecond.  Each ordered tag is greater
+     * than all ordered tags previously generated in the same virtual machine, across all
+     * threads.  The string form of the tag is the same base 32 encoding used by random tags.
+     * The remaining bytes are random, and there must be at least twelve of them since the
+     * last twelve bytes of a tag are used directly as hashes (see <code>TagFilter</code>).
+     * Since <code>Tag.hashCode()</code> comes from the leading bytes, ordered tags that are
+     * generated close together share hash codes, so large numbers of them should be kept in a
+     * <code>TagSet</code> or <code>TagMap</code> rather than a hash based collection.
+     *
+     * @param tagSizeInBytes The number of bytes (at least twenty) that should be used to define
+     * the new tag.
+     * @return The new ordered tag.
+     */
+    public Tag generateOrderedTag(int tagSizeInBytes) {
+        if (tagSizeInBytes < MINIMUM_ORDERED_SIZE) throw new IllegalArgumentException("An ordered tag must be at least " + MINIMUM_ORDERED_SIZE + " bytes: " + tagSizeInBytes);
+        if (tagSizeInBytes > BLOCK_SIZE) {
+            byte[] bytes = RandomUtils.generateRandomBytes(tagSizeInBytes);
+            ByteUtils.longToBytes(nextSequence(), bytes, 0);
+            return new Tag(bytes);
+        }
+        return selectStripe().generateOrderedTag(tagSizeInBytes);
+    }
+
+
+    static private long nextSequence() {
+        long timestamp = System.currentTimeMillis() << COUNTER_BITS;
+        // when the counter overflows it carries into the timestamp, preserving the ordering
+        return lastSequence.accumulateAndGet(timestamp, (last, now) -> Math.max(last + 1, now));
+    }
+
+
+    private Stripe selectStripe() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;  // spread sequential thread ids
+        return stripes[(hash ^ (hash >>> 16)) & mask];
+    }
+
+
+    private final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private byte[] current = new byte[BLOCK_SIZE];
+        private int position = BLOCK_SIZE;  // forces a fill on first use
+        private byte[] spare = new byte[BLOCK_SIZE];
+        private volatile boolean spareReady;
+
+        private Stripe() {
+            refill(spare);
+        }
+
+        private Tag generateTag(int tagSize) {
+            lock.lock();
+            try {
+                if (position + tagSize > BLOCK_SIZE) nextBlock();
+                Tag tag = new Tag(current, position, tagSize);
+                position += tagSize;
+                return tag;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Tag generateOrderedTag(int tagSize) {
+            lock.lock();
+            try {
+                if (position + tagSize > BLOCK_SIZE) nextBlock();
+                ByteUtils.longToBytes(nextSequence(), current, position);  // overwrites used bytes
+                Tag tag = new Tag(current, position, tagSize);
+                position += tagSize;
+                return tag;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void nextBlock() {
+            if (spareReady) {
+                // swap in the spare block and refill the spent one in the background
+                byte[] spent = current;
+                current = spare;
+                spare = spent;
+                spareReady = false;
+                refill(spent);
+            } else {
+                // the background refill has fallen behind so refill in place
+                RandomUtils.generator.nextBytes(current);
+            }
+            position = 0;
+        }
+
+        private void refill(byte[] block) {
+            try {
+                refiller.execute(() -> {
+                    RandomUtils.generator.nextBytes(block);
+                    spareReady = true;  // publishes the refilled block
+                });
+            } catch (RejectedExecutionException e) {
+                RandomUtils.generator.nextBytes(block);
+                spareReady = true;
+            }
+        }
+
+    }
+
+}
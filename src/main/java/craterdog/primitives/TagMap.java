@@ -0,0 +1,245 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * This class implements a map whose keys are tags that are all the same size.  The bytes of
+ * each key are stored inline in a flat array of longs and the values are stored in a parallel
+ * array, so no entry objects are needed.  The keys and entries that are returned by the
+ * iterators are created on demand.  This class is not thread-safe.
+ *
+ * @author Derk Norton
+ *
+ * @param <V> The type of the values in the map.
+ */
+public final class TagMap<V> extends AbstractMap<Tag, V> {
+
+    static private final int DEFAULT_TAG_SIZE = 20;
+
+    private final TagTable table;
+
+
+    /**
+     * This default constructor creates an empty map with default sized (20 byte) tag keys.
+     */
+    public TagMap() {
+        this(DEFAULT_TAG_SIZE, 0);
+    }
+
+
+    /**
+     * This constructor creates an empty map with tag keys of the specified size.
+     *
+     * @param tagSize The number of bytes in each tag key in the map.
+     */
+    public TagMap(int tagSize) {
+        this(tagSize, 0);
+    }
+
+
+    /**
+     * This constructor creates an empty map with tag keys of the specified size that can hold
+     * the specified number of entries without being resized.
+     *
+     * @param tagSize The number of bytes in each tag key in the map.
+     * @param expectedSize The number of entries that the map is expected to hold.
+     */
+    public TagMap(int tagSize, int expectedSize) {
+        this.table = new TagTable(tagSize, expectedSize, true);
+    }
+
+
+    /**
+     * This method returns the number of bytes in each tag key in the map.
+     *
+     * @return The size of the tag keys in bytes.
+     */
+    public int getTagSize() {
+        return table.tagSize;
+    }
+
+
+    @Override
+    public int size() {
+        return table.getSize();
+    }
+
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Tag && table.find((Tag) key) >= 0;
+    }
+
+
+    @Override
+    public V get(Object key) {
+        if (!(key instanceof Tag)) return null;
+        int slot = table.find((Tag) key);
+        return slot < 0 ? null : value(slot);
+    }
+
+
+    /**
+     * This method associates the specified value with the specified tag key.
+     *
+     * @param key The tag key.
+     * @param value The value to be associated with the key.
+     * @return The value that was previously associated with the key, or null.
+     * @throws IllegalArgumentException The key is not the size of the keys in the map.
+     */
+    @Override
+    public V put(Tag key, V value) {
+        int slot = table.insert(key);
+        if (slot >= 0) {
+            table.setValue(slot, value);
+            return null;
+        }
+        slot = -(slot + 1);
+        V previous = value(slot);
+        table.setValue(slot, value);
+        return previous;
+    }
+
+
+    @Override
+    public V remove(Object key) {
+        if (!(key instanceof Tag)) return null;
+        int slot = table.find((Tag) key);
+        if (slot < 0) return null;
+        V previous = value(slot);
+        table.remove(slot);
+        return previous;
+    }
+
+
+    @Override
+    public void clear() {
+        table.clear();
+    }
+
+
+    /**
+     * This method associates each of the specified values with the corresponding tag key. The
+     * map is resized at most once.
+     *
+     * @param keys The tag keys.
+     * @param values The values to be associated with the keys.
+     */
+    public void putAll(Tag[] keys, V[] values) {
+        if (keys.length != values.length) throw new IllegalArgumentException("The number of keys and values must be the same.");
+        table.ensureCapacity(table.getSize() + keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            put(keys[i], values[i]);
+        }
+    }
+
+
+    /**
+     * This method looks up the values that are associated with each of the specified tag keys.
+     *
+     * @param keys The tag keys to be looked up.
+     * @param results An array that receives the value associated with each key, or null.
+     * @return The number of keys that are in the map.
+     */
+    public int getAll(Tag[] keys, V[] results) {
+        int count = 0;
+        for (int i = 0; i < keys.length; i++) {
+            int slot = table.find(keys[i]);
+            if (slot >= 0) {
+                results[i] = value(slot);
+                count++;
+            } else {
+                results[i] = null;
+            }
+        }
+        return count;
+    }
+
+
+    @Override
+    public Set<Map.Entry<Tag, V>> entrySet() {
+        return new AbstractSet<Map.Entry<Tag, V>>() {
+
+            @Override
+            public Iterator<Map.Entry<Tag, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return table.getSize();
+            }
+
+        };
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private V value(int slot) {
+        return (V) table.getValue(slot);
+    }
+
+
+    private final class EntryIterator implements Iterator<Map.Entry<Tag, V>> {
+
+        private final TagTable.Cursor cursor = table.cursor();
+
+        @Override
+        public boolean hasNext() {
+            return cursor.hasNext();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<Tag, V> next() {
+            Tag key = cursor.next();
+            return new Entry(key, (V) cursor.value());
+        }
+
+        @Override
+        public void remove() {
+            cursor.remove();
+        }
+
+    }
+
+
+    private final class Entry extends AbstractMap.SimpleEntry<Tag, V> {
+
+        static private final long serialVersionUID = 1L;
+
+        private Entry(Tag key, V value) {
+            super(key, value);
+        }
+
+        /*
+         * The slot of the key may have changed since the entry was created, so it is found
+         * again.  If the key has been removed the map is left unchanged.
+         */
+        @Override
+        public V setValue(V value) {
+            int slot = table.find(getKey());
+            if (slot < 0) return super.setValue(value);
+            V previous = value(slot);
+            table.setValue(slot, value);
+            super.setValue(value);
+            return previous;
+        }
+
+    }
+
+}
@@ -0,0 +1,227 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * This class routes tags to one of a set of weighted nodes using rendezvous (highest random
+ * weight) hashing.  Each tag is assigned to the node with the highest score, where the score
+ * combines the weight of the node with a hash of the last eight bytes of the tag (ordered
+ * tags always end with at least twelve random bytes) and a seed derived from the hash code
+ * and the string of the node.  When a node is added only the tags that move to the new node
+ * change nodes, and when a node is removed only the tags that were on it change nodes.
+ * <p>
+ * The nodes must have stable hash codes and strings (as strings and numbers do) so that
+ * every router routes the same tag to the same node.  Nodes that are not equal but have the
+ * same hash code and string are given distinct seeds in the order they are added, so only
+ * routers that add them in the same order agree on how tags are split between them.
+ * Routing does not allocate any objects and may be done from any number of threads while
+ * nodes are being added or removed.
+ *
+ * @author Derk Norton
+ *
+ * @param <N> The type of the nodes.
+ */
+public final class TagRouter<N> {
+
+    private volatile Nodes nodes = new Nodes(new Object[0], new long[0], new double[0]);
+
+
+    /**
+     * This method adds a node with the specified weight to the router, or changes the weight
+     * of the node if it has already been added.
+     *
+     * @param node The node to be added.
+     * @param weight The relative weight (greater than zero) of the node.
+     */
+    public synchronized void addNode(N node, double weight) {
+        if (!(weight > 0.0d) || Double.isInfinite(weight)) throw new IllegalArgumentException("The weight of a node must be greater than zero: " + weight);
+        Nodes current = nodes;
+        int index = current.indexOf(node);
+        if (index < 0) {
+            int size = current.nodes.length;
+            Object[] array = Arrays.copyOf(current.nodes, size + 1);
+            long[] seeds = Arrays.copyOf(current.seeds, size + 1);
+            double[] weights = Arrays.copyOf(current.weights, size + 1);
+            array[size] = node;
+            long seed = seedOf(node);
+            while (contains(current.seeds, seed)) {
+                seed = mix(seed + 1);  // nodes that look the same must still have their own scores
+            }
+            seeds[size] = seed;
+            weights[size] = weight;
+            nodes = new Nodes(array, seeds, weights);
+        } else {
+            double[] weights = current.weights.clone();
+            weights[index] = weight;
+            nodes = new Nodes(current.nodes, current.seeds, weights);
+        }
+    }
+
+
+    /**
+     * This method removes the specified node from the router.
+     *
+     * @param node The node to be removed.
+     * @return Whether or not the node was removed.
+     */
+    public synchronized boolean removeNode(N node) {
+        Nodes current = nodes;
+        int index = current.indexOf(node);
+        if (index < 0) return false;
+        int size = current.nodes.length - 1;
+        Object[] array = new Object[size];
+        long[] seeds = new long[size];
+        double[] weights = new double[size];
+        for (int i = 0, j = 0; i <= size; i++) {
+            if (i == index) continue;
+            array[j] = current.nodes[i];
+            seeds[j] = current.seeds[i];
+            weights[j] = current.weights[i];
+            j++;
+        }
+        nodes = new Nodes(array, seeds, weights);
+        return true;
+    }
+
+
+    /**
+     * This method returns the nodes that have been added to the router.
+     *
+     * @return A list of the nodes.
+     */
+    public List<N> getNodes() {
+        List<N> list = new ArrayList<>();
+        for (Object node : nodes.nodes) {
+            @SuppressWarnings("unchecked")
+            N element = (N) node;
+            list.add(element);
+        }
+        return list;
+    }
+
+
+    /**
+     * This method returns the node to which the specified tag is routed.
+     *
+     * @param tag The tag to be routed.
+     * @return The node for the tag.
+     * @throws IllegalStateException No nodes have been added to the router.
+     */
+    public N route(Tag tag) {
+        return route(tag, nodes);
+    }
+
+
+    /**
+     * This method routes each of the specified tags to a node.  All of the tags are routed
+     * using the same set of nodes even if nodes are added or removed concurrently.
+     *
+     * @param tags The tags to be routed.
+     * @param results An array that receives the node for each tag.
+     * @throws IllegalStateException No nodes have been added to the router.
+     */
+    public void route(Tag[] tags, N[] results) {
+        Nodes current = nodes;
+        for (int i = 0; i < tags.length; i++) {
+            results[i] = route(tags[i], current);
+        }
+    }
+
+
+    private N route(Tag tag, Nodes current) {
+        if (current.nodes.length == 0) throw new IllegalStateException("There are no nodes to route to.");
+        long key = 0L;
+        for (int i = tag.getSize() - 8; i < tag.getSize(); i++) {
+            key = (key << 8) | (i >= 0 ? tag.getByte(i) & 0xFF : 0);
+        }
+        int best = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < current.nodes.length; i++) {
+            long hash = mix(key ^ current.seeds[i]);
+            double uniform = ((hash >>> 11) + 0.5d) * 0x1.0p-53;  // in the range (0..1)
+            double score = -current.weights[i] / Math.log(uniform);
+            if (score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        @SuppressWarnings("unchecked")
+        N node = (N) current.nodes[best];
+        return node;
+    }
+
+
+    /*
+     * This function returns the seed for a node, combining its hash code with a 64 bit (FNV-1a)
+     * hash of its string so that nodes whose hash codes collide (like "Aa" and "BB") still get
+     * different seeds.
+     */
+    static private long seedOf(Object node) {
+        long hash = node.hashCode() * 0x9E3779B97F4A7C15L;
+        String string = node.toString();
+        for (int i = 0; i < string.length(); i++) {
+            hash = (hash ^ string.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+
+    static private boolean contains(long[] seeds, long seed) {
+        for (long existing : seeds) {
+            if (existing == seed) return true;
+        }
+        return false;
+    }
+
+
+    /*
+     * This function is the finalizer from the MurmurHash3 algorithm.  It is needed because the
+     * scores for each node must be independent of each other.
+     */
+    static private long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+
+    /*
+     * This class holds an immutable snapshot of the nodes so that routing never needs a lock.
+     */
+    static private final class Nodes {
+
+        final Object[] nodes;
+        final long[] seeds;
+        final double[] weights;
+
+        private Nodes(Object[] nodes, long[] seeds, double[] weights) {
+            this.nodes = nodes;
+            this.seeds = seeds;
+            this.weights = weights;
+        }
+
+        private int indexOf(Object node) {
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i].equals(node)) return i;
+            }
+            return -1;
+        }
+
+    }
+
+}
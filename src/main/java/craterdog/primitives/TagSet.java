@@ -0,0 +1,163 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+
+
+/**
+ * This class implements a set of tags that are all the same size.  The bytes of each tag are
+ * stored inline in a flat array of longs rather than as separate objects, so a set of default
+ * sized tags needs between 32 and 64 bytes per tag (depending on its load) compared to around
+ * 80 bytes per tag for a <code>java.util.HashSet</code> and the tags it holds.  The tags
+ * that are returned by the iterator are created on demand.  This class is not thread-safe.
+ *
+ * @author Derk Norton
+ */
+public final class TagSet extends AbstractSet<Tag> {
+
+    static private final int DEFAULT_TAG_SIZE = 20;
+
+    private final TagTable table;
+
+
+    /**
+     * This default constructor creates an empty set of default sized (20 byte) tags.
+     */
+    public TagSet() {
+        this(DEFAULT_TAG_SIZE, 0);
+    }
+
+
+    /**
+     * This constructor creates an empty set of tags with the specified size.
+     *
+     * @param tagSize The number of bytes in each tag in the set.
+     */
+    public TagSet(int tagSize) {
+        this(tagSize, 0);
+    }
+
+
+    /**
+     * This constructor creates an empty set of tags with the specified size that can hold the
+     * specified number of tags without being resized.
+     *
+     * @param tagSize The number of bytes in each tag in the set.
+     * @param expectedSize The number of tags that the set is expected to hold.
+     */
+    public TagSet(int tagSize, int expectedSize) {
+        this.table = new TagTable(tagSize, expectedSize, false);
+    }
+
+
+    /**
+     * This method returns the number of bytes in each tag in the set.
+     *
+     * @return The size of the tags in bytes.
+     */
+    public int getTagSize() {
+        return table.tagSize;
+    }
+
+
+    @Override
+    public int size() {
+        return table.getSize();
+    }
+
+
+    @Override
+    public boolean contains(Object object) {
+        return object instanceof Tag && table.find((Tag) object) >= 0;
+    }
+
+
+    /**
+     * This method adds the specified tag to the set.
+     *
+     * @param tag The tag to be added.
+     * @return Whether or not the tag was added.
+     * @throws IllegalArgumentException The tag is not the size of the tags in the set.
+     */
+    @Override
+    public boolean add(Tag tag) {
+        return table.insert(tag) >= 0;
+    }
+
+
+    @Override
+    public boolean remove(Object object) {
+        if (!(object instanceof Tag)) return false;
+        int slot = table.find((Tag) object);
+        if (slot < 0) return false;
+        table.remove(slot);
+        return true;
+    }
+
+
+    @Override
+    public boolean removeAll(Collection<?> collection) {
+        boolean modified = false;
+        for (Object object : collection) {
+            modified |= remove(object);
+        }
+        return modified;
+    }
+
+
+    @Override
+    public void clear() {
+        table.clear();
+    }
+
+
+    /**
+     * This method adds each of the specified tags to the set.  The set is resized at most
+     * once.
+     *
+     * @param tags The tags to be added.
+     * @return The number of tags that were added.
+     */
+    public int addAll(Tag[] tags) {
+        table.ensureCapacity(table.getSize() + tags.length);
+        int count = 0;
+        for (Tag tag : tags) {
+            if (table.insert(tag) >= 0) count++;
+        }
+        return count;
+    }
+
+
+    /**
+     * This method determines which of the specified tags are in the set.
+     *
+     * @param tags The tags to be looked up.
+     * @param results An array that receives whether or not each tag is in the set.
+     * @return The number of tags that are in the set.
+     */
+    public int contains(Tag[] tags, boolean[] results) {
+        int count = 0;
+        for (int i = 0; i < tags.length; i++) {
+            results[i] = table.find(tags[i]) >= 0;
+            if (results[i]) count++;
+        }
+        return count;
+    }
+
+
+    @Override
+    public Iterator<Tag> iterator() {
+        return table.cursor();
+    }
+
+}
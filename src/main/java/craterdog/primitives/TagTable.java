@@ -0,0 +1,346 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+
+/**
+ * This class implements the open addressing hash table that is shared by the
+ * <code>TagSet</code> and <code>TagMap</code> classes.  The bytes of each tag are stored
+ * inline in a flat array of longs, and since tags are crypto-random their last four bytes
+ * (which are random for ordered tags as well) are used directly for linear probing.  Removals use backward shifting so no tombstones are needed.
+ * The table is walked by a cursor that runs from the last slot to the first, so that it can
+ * remove the last tag it returned.
+ *
+ * @author Derk Norton
+ */
+final class TagTable {
+
+    static private final int MINIMUM_CAPACITY = 16;
+    static private final int MAXIMUM_CAPACITY = 1 << 30;
+
+    final int tagSize;
+    private final int stride;  // the number of longs per tag
+    private final boolean hasValues;
+
+    private long[] keys;
+    private long[] occupied;  // one bit per slot
+    private Object[] values;  // null for sets
+    private int mask;
+    private int size;
+    private int threshold;
+    private int modifications;  // the number of structural changes, checked by the cursors
+
+
+    TagTable(int tagSize, int expectedSize, boolean hasValues) {
+        if (tagSize < 1) throw new IllegalArgumentException("The tag size must be greater than zero: " + tagSize);
+        if (expectedSize < 0) throw new IllegalArgumentException("The expected size cannot be negative: " + expectedSize);
+        this.tagSize = tagSize;
+        this.stride = (tagSize + 7) / 8;
+        this.hasValues = hasValues;
+        allocate(capacityFor(expectedSize));
+    }
+
+
+    int getSize() {
+        return size;
+    }
+
+
+    /*
+     * This method returns the slot containing the specified tag, or -1 if the tag is not in
+     * the table.
+     */
+    int find(Tag tag) {
+        if (tag.getSize() != tagSize) return -1;
+        int slot = hashOf(tag) & mask;
+        while (isOccupied(slot)) {
+            if (matches(slot, tag)) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+
+    /*
+     * This method inserts the specified tag into the table if it is not already there and
+     * returns its slot.  If the tag was already in the table the result is -(slot + 1).
+     */
+    int insert(Tag tag) {
+        if (tag.getSize() != tagSize) throw new IllegalArgumentException("Only tags of size " + tagSize + " are supported: " + tag.getSize());
+        if (size >= threshold) resize(keys.length / stride * 2);
+        int slot = hashOf(tag) & mask;
+        while (isOccupied(slot)) {
+            if (matches(slot, tag)) return -(slot + 1);
+            slot = (slot + 1) & mask;
+        }
+        int base = slot * stride;
+        for (int i = 0; i < stride; i++) {
+            keys[base + i] = tag.getWord(i);
+        }
+        occupied[slot >>> 6] |= 1L << slot;
+        size++;
+        modifications++;
+        return slot;
+    }
+
+
+    /*
+     * This method removes the tag in the specified slot and shifts back any following tags
+     * that would no longer be reachable from their home slots.
+     */
+    void remove(int slot) {
+        remove(slot, null);
+    }
+
+
+    /*
+     * This method removes the tag in the specified slot on behalf of the specified cursor,
+     * which may be null.  Any tag that wraps around from the start of the table into a slot
+     * that the cursor has already passed is handed to the cursor so that it is not missed.
+     */
+    private void remove(int slot, Cursor cursor) {
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (isOccupied(next)) {
+            int home = hashAt(next) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                if (cursor != null && next < slot && hole >= slot) cursor.skip(next);
+                move(next, hole);
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        occupied[hole >>> 6] &= ~(1L << hole);
+        if (hasValues) values[hole] = null;
+        size--;
+        modifications++;
+    }
+
+
+    void clear() {
+        Arrays.fill(occupied, 0L);
+        if (hasValues) Arrays.fill(values, null);
+        size = 0;
+        modifications++;
+    }
+
+
+    void ensureCapacity(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        if (capacity > keys.length / stride) resize(capacity);
+    }
+
+
+    Tag getTag(int slot) {
+        return Tag.fromWords(keys, slot * stride, tagSize);
+    }
+
+
+    Object getValue(int slot) {
+        return values[slot];
+    }
+
+
+    void setValue(int slot, Object value) {
+        values[slot] = value;
+    }
+
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+
+    /*
+     * This method returns the last occupied slot at or before the specified slot, or -1 if
+     * there are no more occupied slots.
+     */
+    private int previousSlot(int slot) {
+        while (slot >= 0) {
+            long bits = occupied[slot >>> 6] << ~slot;  // shift is modulo 64
+            if (bits != 0L) return slot - Long.numberOfLeadingZeros(bits);
+            slot = (slot & ~63) - 1;
+        }
+        return -1;
+    }
+
+
+    private boolean isOccupied(int slot) {
+        return (occupied[slot >>> 6] & (1L << slot)) != 0L;
+    }
+
+
+    private boolean matches(int slot, Tag tag) {
+        int base = slot * stride;
+        for (int i = 0; i < stride; i++) {
+            if (keys[base + i] != tag.getWord(i)) return false;
+        }
+        return true;
+    }
+
+
+    /*
+     * This method calculates the hash of the specified tag from its last four bytes, which
+     * are random for ordered tags as well.
+     */
+    private int hashOf(Tag tag) {
+        int hash = 0;
+        for (int i = Math.max(0, tagSize - 4); i < tagSize; i++) {
+            hash = (hash << 8) | (tag.getByte(i) & 0xFF);
+        }
+        return hash;
+    }
+
+
+    /*
+     * This method calculates the hash of the tag in the specified slot the same way.
+     */
+    private int hashAt(int slot) {
+        return hashOf(keys, slot * stride);
+    }
+
+
+    private int hashOf(long[] words, int base) {
+        int hash = 0;
+        for (int i = Math.max(0, tagSize - 4); i < tagSize; i++) {
+            hash = (hash << 8) | (int) ((words[base + i / 8] >>> (56 - 8 * (i % 8))) & 0xFF);
+        }
+        return hash;
+    }
+
+
+    private void move(int from, int to) {
+        System.arraycopy(keys, from * stride, keys, to * stride, stride);
+        if (hasValues) values[to] = values[from];
+    }
+
+
+    private int capacityFor(int expectedSize) {
+        long capacity = MINIMUM_CAPACITY;
+        while (capacity - capacity / 4 <= expectedSize) {
+            capacity <<= 1;
+        }
+        if (capacity > MAXIMUM_CAPACITY || capacity * stride > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("The table cannot hold " + expectedSize + " tags.");
+        }
+        return (int) capacity;
+    }
+
+
+    private void allocate(int capacity) {
+        keys = new long[capacity * stride];
+        occupied = new long[Math.max(1, capacity >>> 6)];
+        values = hasValues ? new Object[capacity] : null;
+        mask = capacity - 1;
+        threshold = capacity - capacity / 4;
+    }
+
+
+    private void resize(int capacity) {
+        if (capacity > MAXIMUM_CAPACITY || (long) capacity * stride > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("The table cannot hold more than " + size + " tags.");
+        }
+        long[] oldKeys = keys;
+        long[] oldOccupied = occupied;
+        Object[] oldValues = values;
+        int oldCapacity = mask + 1;
+        allocate(capacity);
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            if ((oldOccupied[slot >>> 6] & (1L << slot)) == 0L) continue;
+            int oldBase = slot * stride;
+            int newSlot = hashOf(oldKeys, oldBase) & mask;
+            while (isOccupied(newSlot)) {
+                newSlot = (newSlot + 1) & mask;
+            }
+            System.arraycopy(oldKeys, oldBase, keys, newSlot * stride, stride);
+            occupied[newSlot >>> 6] |= 1L << newSlot;
+            if (hasValues) values[newSlot] = oldValues[slot];
+        }
+    }
+
+
+    /*
+     * This class iterates over the tags in the table from the last slot to the first.  Since
+     * removing a tag only shifts the tags that follow it back towards lower slots, the only
+     * tags that can be moved into a slot the cursor has already passed are those that wrapped
+     * around from the start of the table.  Those tags are remembered and returned at the end.
+     */
+    final class Cursor implements Iterator<Tag> {
+
+        private int slot = mask;  // the next slot to look at, counting down
+        private int current = -1;  // the slot of the last tag returned, or -1
+        private Tag tag;  // the last tag returned, or null if it has been removed
+        private Object value;
+        private List<Tag> skippedTags;
+        private List<Object> skippedValues;
+        private int expectedModifications = modifications;
+
+        @Override
+        public boolean hasNext() {
+            if (slot >= 0) slot = previousSlot(slot);
+            return slot >= 0 || (skippedTags != null && !skippedTags.isEmpty());
+        }
+
+        @Override
+        public Tag next() {
+            if (modifications != expectedModifications) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            if (slot >= 0) {
+                current = slot--;
+                tag = getTag(current);
+                value = hasValues ? values[current] : null;
+            } else {
+                int last = skippedTags.size() - 1;
+                current = -1;
+                tag = skippedTags.remove(last);
+                value = hasValues ? skippedValues.remove(last) : null;
+            }
+            return tag;
+        }
+
+        /*
+         * This method returns the value of the last tag returned.
+         */
+        Object value() {
+            return value;
+        }
+
+        @Override
+        public void remove() {
+            if (tag == null) throw new IllegalStateException();
+            if (modifications != expectedModifications) throw new ConcurrentModificationException();
+            if (current >= 0) {
+                TagTable.this.remove(current, this);
+            } else {
+                TagTable.this.remove(find(tag), null);  // every slot has already been passed
+            }
+            expectedModifications = modifications;
+            tag = null;
+        }
+
+        private void skip(int slot) {
+            if (skippedTags == null) {
+                skippedTags = new ArrayList<>();
+                skippedValues = hasValues ? new ArrayList<>() : null;
+            }
+            skippedTags.add(getTag(slot));
+            if (hasValues) skippedValues.add(values[slot]);
+        }
+
+    }
+
+}
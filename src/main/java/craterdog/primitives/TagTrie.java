@@ -0,0 +1,301 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * This class implements a compressed radix trie of tags that are all the same size.  The trie
+ * is keyed on the base 32 characters of the tags so it can be used to resolve abbreviated tag
+ * prefixes (like git short hashes), to calculate the shortest prefix that uniquely identifies
+ * a tag, and to enumerate all of the tags that start with a prefix.
+ * <p>
+ * Each branch node skips directly to the character position where its tags first differ, and
+ * records its children using a 32 bit map of the characters that are present, so only nodes
+ * with at least two children are ever created.  The tags themselves are the leaves of the
+ * trie.  This class is not thread-safe.
+ *
+ * @author Derk Norton
+ */
+public final class TagTrie {
+
+    static private final int DEFAULT_TAG_SIZE = 20;
+
+    private final int tagSize;
+    private final int length;  // the number of characters in each tag
+    private Object root;  // null, a tag or a node
+    private int size;
+
+
+    /**
+     * This default constructor creates an empty trie of default sized (20 byte) tags.
+     */
+    public TagTrie() {
+        this(DEFAULT_TAG_SIZE);
+    }
+
+
+    /**
+     * This constructor creates an empty trie of tags with the specified size.
+     *
+     * @param tagSize The number of bytes in each tag in the trie.
+     */
+    public TagTrie(int tagSize) {
+        if (tagSize < 1) throw new IllegalArgumentException("The tag size must be greater than zero: " + tagSize);
+        this.tagSize = tagSize;
+        this.length = Tag.stringSize(tagSize);
+    }
+
+
+    /**
+     * This method returns the number of tags in the trie.
+     *
+     * @return The number of tags.
+     */
+    public int getSize() {
+        return size;
+    }
+
+
+    /**
+     * This method adds the specified tag to the trie.
+     *
+     * @param tag The tag to be added.
+     * @return Whether or not the tag was added (it was not already in the trie).
+     */
+    public boolean add(Tag tag) {
+        if (tag.getSize() != tagSize) throw new IllegalArgumentException("Only tags of size " + tagSize + " are supported: " + tag.getSize());
+        if (root == null) {
+            root = tag;
+            size++;
+            return true;
+        }
+        Node parent = null;
+        Object current = root;
+        int checked = 0;  // the symbols before this index are known to match
+        while (true) {
+            int depth = current instanceof Node ? ((Node) current).depth : length;
+            int mismatch = mismatch(tag, firstLeaf(current), checked, depth);
+            if (mismatch < depth) {
+                // the tag branches off above the current node or leaf
+                Node branch = new Node(mismatch);
+                branch.put(firstLeaf(current).getSymbol(mismatch), current);
+                branch.put(tag.getSymbol(mismatch), tag);
+                if (parent == null) {
+                    root = branch;
+                } else {
+                    parent.replace(tag.getSymbol(parent.depth), branch);
+                }
+                size++;
+                return true;
+            }
+            if (!(current instanceof Node)) return false;  // the same tag
+            Node node = (Node) current;
+            int symbol = tag.getSymbol(node.depth);
+            Object child = node.get(symbol);
+            if (child == null) {
+                node.put(symbol, tag);
+                size++;
+                return true;
+            }
+            parent = node;
+            current = child;
+            checked = node.depth + 1;
+        }
+    }
+
+
+    /**
+     * This method determines whether or not the specified tag is in the trie.
+     *
+     * @param tag The tag to be checked.
+     * @return Whether or not the tag is in the trie.
+     */
+    public boolean contains(Tag tag) {
+        if (tag.getSize() != tagSize) return false;
+        Object current = root;
+        while (current instanceof Node) {
+            Node node = (Node) current;
+            current = node.get(tag.getSymbol(node.depth));
+        }
+        return tag.equals(current);
+    }
+
+
+    /**
+     * This method returns the only tag in the trie that starts with the specified prefix.
+     *
+     * @param prefix The base 32 characters that start the tag.
+     * @return The matching tag, or null if there are no matching tags or more than one.
+     */
+    public Tag resolve(CharSequence prefix) {
+        Object subtree = findSubtree(toSymbols(prefix));
+        return subtree instanceof Tag ? (Tag) subtree : null;
+    }
+
+
+    /**
+     * This method returns the tags in the trie that start with the specified prefix in
+     * ascending order.
+     *
+     * @param prefix The base 32 characters that start the tags.
+     * @param limit The maximum number of tags to be returned.
+     * @return The matching tags.
+     */
+    public List<Tag> getTags(CharSequence prefix, int limit) {
+        List<Tag> tags = new ArrayList<>();
+        collect(findSubtree(toSymbols(prefix)), tags, limit);
+        return tags;
+    }
+
+
+    /**
+     * This method returns the shortest prefix of the specified tag that does not match any
+     * other tag in the trie.
+     *
+     * @param tag The tag.
+     * @return The shortest unambiguous prefix of the tag (at least one character).
+     */
+    public String getShortestPrefix(Tag tag) {
+        if (tag.getSize() != tagSize) throw new IllegalArgumentException("Only tags of size " + tagSize + " are supported: " + tag.getSize());
+        int shared = 0;  // the longest prefix shared with any other tag
+        Object current = root;
+        int checked = 0;
+        while (current != null) {
+            if (current instanceof Node) {
+                Node node = (Node) current;
+                int mismatch = mismatch(tag, firstLeaf(node), checked, node.depth);
+                if (mismatch < node.depth) {
+                    shared = Math.max(shared, mismatch);
+                    break;
+                }
+                // a node only exists where at least two tags branch, so some other tag shares
+                // all of the symbols before the node's depth
+                shared = Math.max(shared, node.depth);
+                current = node.get(tag.getSymbol(node.depth));
+                checked = node.depth + 1;
+            } else {
+                Tag leaf = (Tag) current;
+                if (!leaf.equals(tag)) shared = Math.max(shared, mismatch(tag, leaf, checked, length));
+                break;
+            }
+        }
+        int prefixLength = Math.min(shared + 1, length);
+        StringBuilder builder = new StringBuilder(prefixLength);
+        for (int i = 0; i < prefixLength; i++) {
+            builder.append(Tag.characterOf(tag.getSymbol(i)));
+        }
+        return builder.toString();
+    }
+
+
+    /*
+     * This method returns the node or leaf containing exactly the tags that start with the
+     * specified symbols, or null if there are none.
+     */
+    private Object findSubtree(int[] symbols) {
+        Object current = root;
+        while (current instanceof Node && ((Node) current).depth < symbols.length) {
+            Node node = (Node) current;
+            current = node.get(symbols[node.depth]);
+        }
+        if (current == null) return null;
+        Tag leaf = firstLeaf(current);
+        int end = Math.min(symbols.length, length);
+        for (int i = 0; i < end; i++) {
+            if (leaf.getSymbol(i) != symbols[i]) return null;
+        }
+        return symbols.length <= length ? current : null;
+    }
+
+
+    private void collect(Object subtree, List<Tag> tags, int limit) {
+        if (subtree == null || tags.size() >= limit) return;
+        if (subtree instanceof Tag) {
+            tags.add((Tag) subtree);
+            return;
+        }
+        for (Object child : ((Node) subtree).children) {
+            collect(child, tags, limit);
+        }
+    }
+
+
+    private int[] toSymbols(CharSequence prefix) {
+        int[] symbols = new int[prefix.length()];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = Tag.symbolOf(prefix.charAt(i));
+            if (symbols[i] < 0) throw new IllegalArgumentException("The prefix contains an invalid base 32 character: " + prefix.charAt(i));
+        }
+        return symbols;
+    }
+
+
+    /*
+     * This function returns the index of the first symbol in the specified range that differs
+     * between the two tags, or the end of the range if they are all the same.
+     */
+    static private int mismatch(Tag tag1, Tag tag2, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (tag1.getSymbol(i) != tag2.getSymbol(i)) return i;
+        }
+        return end;
+    }
+
+
+    static private Tag firstLeaf(Object subtree) {
+        while (subtree instanceof Node) {
+            subtree = ((Node) subtree).children[0];
+        }
+        return (Tag) subtree;
+    }
+
+
+    /*
+     * This class defines a branch node whose tags all share the symbols before its depth and
+     * differ in the symbol at its depth.
+     */
+    static private final class Node {
+
+        final int depth;
+        int bitmap;  // bit n is set if there is a child for symbol n
+        Object[] children = new Object[0];  // in symbol order
+
+        private Node(int depth) {
+            this.depth = depth;
+        }
+
+        private Object get(int symbol) {
+            int bit = 1 << symbol;
+            if ((bitmap & bit) == 0) return null;
+            return children[Integer.bitCount(bitmap & (bit - 1))];
+        }
+
+        private void put(int symbol, Object child) {
+            int bit = 1 << symbol;
+            int position = Integer.bitCount(bitmap & (bit - 1));
+            Object[] array = new Object[children.length + 1];
+            System.arraycopy(children, 0, array, 0, position);
+            array[position] = child;
+            System.arraycopy(children, position, array, position + 1, children.length - position);
+            children = array;
+            bitmap |= bit;
+        }
+
+        private void replace(int symbol, Object child) {
+            int bit = 1 << symbol;
+            children[Integer.bitCount(bitmap & (bit - 1))] = child;
+        }
+
+    }
+
+}
@@ -12,6 +12,8 @@ package craterdog.primitives;
 import craterdog.core.Iterator;
 import craterdog.core.Sequential;
 import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 
 /**
@@ -76,11 +78,46 @@ public final class TextString extends Primitive<TextString> implements CharSeque
 
 
     @Override
-    public Iterator<Character> createIterator() {
+    public TextIterator createIterator() {
         return new TextIterator();
     }
 
 
+    /**
+     * This method performs the specified action on each character in the text string, in
+     * order, without boxing the characters.
+     *
+     * @param action The action to be performed on each character.
+     */
+    public void forEachChar(IntConsumer action) {
+        value.chars().forEachOrdered(action);
+    }
+
+
+    /**
+     * This method returns a stream of the characters in the text string without boxing them.
+     * Unlike the default <code>CharSequence</code> stream, this stream can be split so that
+     * it can be processed in parallel.
+     *
+     * @return A stream of the characters.
+     */
+    @Override
+    public IntStream chars() {
+        return value.chars();
+    }
+
+
+    /**
+     * This method returns a stream of the code points in the text string without boxing them.
+     *
+     * @return A stream of the code points.
+     */
+    @Override
+    public IntStream codePoints() {
+        return value.codePoints();
+    }
+
+
     @Override
     public String toString() {
         return value;
@@ -120,15 +157,19 @@ public final class TextString extends Primitive<TextString> implements CharSeque
     @Override
     public Character[] toArray() {
         Character[] array = new Character[value.length()];
-        int index = 0;
-        for (Character c : this) {
-            array[index++] = c;
+        for (int i = 0; i < array.length; i++) {
+            array[i] = value.charAt(i);
         }
         return array;
     }
 
 
-    private final class TextIterator extends Iterator<Character> {
+    /**
+     * This class implements an iterator over the characters in a text string.  The
+     * <code>nextChar</code> and <code>previousChar</code> methods return the characters
+     * without boxing them.
+     */
+    public final class TextIterator extends Iterator<Character> {
 
         int index;
 
@@ -162,9 +203,17 @@ public final class TextString extends Primitive<TextString> implements CharSeque
 
         @Override
         public Character getPrevious() {
+            return previousChar();
+        }
+
+        /**
+         * This method returns the previous character in the text string without boxing it.
+         *
+         * @return The previous character.
+         */
+        public char previousChar() {
             if (index == 0) throw new NoSuchElementException();
-            Character element = value.charAt(--index);
-            return element;
+            return value.charAt(--index);
         }
 
         @Override
@@ -174,9 +223,17 @@ public final class TextString extends Primitive<TextString> implements CharSeque
 
         @Override
         public Character getNext() {
+            return nextChar();
+        }
+
+        /**
+         * This method returns the next character in the text string without boxing it.
+         *
+         * @return The next character.
+         */
+        public char nextChar() {
             if (index == value.length()) throw new NoSuchElementException();
-            Character element = value.charAt(index++);
-            return element;
+            return value.charAt(index++);
         }
 
     }
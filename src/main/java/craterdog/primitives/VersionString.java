@@ -13,6 +13,8 @@ import craterdog.core.Iterator;
 import craterdog.core.Sequential;
 import java.util.Arrays;
 import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 
 /**
@@ -93,11 +95,35 @@ public final class VersionString extends Primitive<VersionString> implements Seq
 
 
     @Override
-    public Iterator<Integer> createIterator() {
+    public VersionIterator createIterator() {
         return new VersionIterator();
     }
 
 
+    /**
+     * This method performs the specified action on each version number in the version
+     * string, in order, without boxing the numbers.
+     *
+     * @param action The action to be performed on each version number.
+     */
+    public void forEachInt(IntConsumer action) {
+        for (int version : value) {
+            action.accept(version);
+        }
+    }
+
+
+    /**
+     * This method returns a stream of the version numbers in the version string without
+     * boxing them.
+     *
+     * @return A stream of the version numbers.
+     */
+    public IntStream numbers() {
+        return Arrays.stream(value);
+    }
+
+
     @Override
     public int getSize() {
         return value.length;
@@ -107,9 +133,8 @@ public final class VersionString extends Primitive<VersionString> implements Seq
     @Override
     public Integer[] toArray() {
         Integer[] array = new Integer[value.length];
-        int index = 0;
-        for (Integer i : this) {
-            array[index++] = i;
+        for (int i = 0; i < array.length; i++) {
+            array[i] = value[i];
         }
         return array;
     }
@@ -149,7 +174,12 @@ public final class VersionString extends Primitive<VersionString> implements Seq
     }
 
 
-    private final class VersionIterator extends Iterator<Integer> {
+    /**
+     * This class implements an iterator over the version numbers in a version string.  The
+     * <code>nextInt</code> and <code>previousInt</code> methods return the numbers without
+     * boxing them.
+     */
+    public final class VersionIterator extends Iterator<Integer> {
 
         int index;
 
@@ -183,9 +213,17 @@ public final class VersionString extends Primitive<VersionString> implements Seq
 
         @Override
         public Integer getPrevious() {
+            return previousInt();
+        }
+
+        /**
+         * This method returns the previous version number without boxing it.
+         *
+         * @return The previous version number.
+         */
+        public int previousInt() {
             if (index == 0) throw new NoSuchElementException();
-            Integer element = value[--index];
-            return element;
+            return value[--index];
         }
 
         @Override
@@ -195,9 +233,17 @@ public final class VersionString extends Primitive<VersionString> implements Seq
 
         @Override
         public Integer getNext() {
+            return nextInt();
+        }
+
+        /**
+         * This method returns the next version number without boxing it.
+         *
+         * @return The next version number.
+         */
+        public int nextInt() {
             if (index == value.length) throw new NoSuchElementException();
-            Integer element = value[index++];
-            return element;
+            return value[index++];
         }
 
     }
@@ -0,0 +1,96 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.util.Random;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs unit tests on the <code>BinaryChunkStore</code> class.
+ *
+ * @author Derk Norton
+ */
+public class BinaryChunkStoreTest {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(BinaryChunkStoreTest.class);
+
+
+    /**
+     * Log a message at the beginning of the tests.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running BinaryChunkStore Unit Tests...\n");
+    }
+
+
+    /**
+     * Log a message at the end of the tests.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed BinaryChunkStore Unit Tests.\n");
+    }
+
+
+    /**
+     * Test storing successive revisions of a binary string and loading them again.
+     */
+    @Test
+    public void testRevisions() {
+        logger.info("Beginning testRevisions()...");
+        Random random = new Random(67);
+        byte[] bytes = new byte[1024 * 1024];
+        random.nextBytes(bytes);
+        BinaryString revision = BinaryString.wrap(bytes);
+        BinaryChunkStore store = new BinaryChunkStore();
+        int revisions = 10;
+        long total = 0;
+        BinaryString[] expected = new BinaryString[revisions];
+        Tag[][] recipes = new Tag[revisions][];
+        for (int i = 0; i < revisions; i++) {
+            expected[i] = revision;
+            recipes[i] = store.store(revision);
+            total += revision.getSize();
+            // edit the revision by replacing a few bytes and inserting a few more
+            int position = random.nextInt(revision.getSize() - 100);
+            byte[] edit = new byte[random.nextInt(50) + 1];
+            random.nextBytes(edit);
+            revision = revision.slice(0, position).concat(BinaryString.wrap(edit))
+                    .concat(revision.slice(position + 20, revision.getSize()));
+        }
+        for (int i = 0; i < revisions; i++) {
+            BinaryString loaded = store.load(recipes[i]);
+            assertEquals("A revision was not reproduced.", expected[i], loaded);
+        }
+        logger.info("  Stored {} bytes of revisions in {} bytes ({} chunks).", total, store.getStoredBytes(), store.getSize());
+        assertTrue("The revisions were not deduplicated.", store.getStoredBytes() < total / 3);
+
+        Tag tag = store.put(BinaryString.wrap(new byte[] { 1, 2, 3 }));
+        assertEquals("The tag is not a SHA-256 digest.", 32, tag.getSize());
+        assertTrue("The contains method is not consistent.", store.contains(tag));
+        assertEquals("The put method did not deduplicate.", tag, store.put(BinaryString.wrap(new byte[] { 1, 2, 3 })));
+        assertNull("The get method is not consistent.", store.get(new Tag(32)));
+        try {
+            store.load(new Tag[] { new Tag(32) });
+            fail("A missing chunk was loaded.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        logger.info("Completed testRevisions().");
+    }
+
+}
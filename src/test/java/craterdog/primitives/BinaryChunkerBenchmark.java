@@ -0,0 +1,106 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.util.Random;
+import org.junit.AfterClass;
+import static org.junit.Assert.assertEquals;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs benchmarks on the <code>BinaryChunker</code> and
+ * <code>BinaryChunkStore</code> classes.  The benchmarks are not run as part of the unit
+ * tests, they are run using the "benchmark" maven profile.
+ *
+ * @author Derk Norton
+ */
+public class BinaryChunkerBenchmark {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(BinaryChunkerBenchmark.class);
+
+
+    /**
+     * Log a message at the beginning of the benchmarks.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running BinaryChunker Benchmarks...\n");
+    }
+
+
+    /**
+     * Log a message at the end of the benchmarks.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed BinaryChunker Benchmarks.\n");
+    }
+
+
+    /**
+     * This method measures the rate at which a 64 MB binary string is split into chunks of
+     * the default sizes on one core.
+     */
+    @Test
+    public void benchmarkThroughput() {
+        logger.info("Beginning benchmarkThroughput()...");
+        Random random = new Random(61);
+        byte[] bytes = new byte[64 * 1024 * 1024];
+        random.nextBytes(bytes);
+        BinaryString binary = BinaryString.wrap(bytes);
+        BinaryChunker chunker = new BinaryChunker();
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            int count = chunker.split(binary).size();
+            long duration = System.nanoTime() - start;
+            if (round == 2) {
+                logger.info("  Split {} bytes into {} chunks at {} GB/s.", bytes.length, count,
+                        String.format("%.2f", (double) bytes.length / duration));
+            }
+        }
+        logger.info("Completed benchmarkThroughput().");
+    }
+
+
+    /**
+     * This method measures the space used to store ten revisions of a 1 MB binary string,
+     * each one made by replacing a few bytes of the previous one and inserting a few more.
+     */
+    @Test
+    public void benchmarkDeduplication() {
+        logger.info("Beginning benchmarkDeduplication()...");
+        Random random = new Random(67);
+        byte[] bytes = new byte[1024 * 1024];
+        random.nextBytes(bytes);
+        BinaryString revision = BinaryString.wrap(bytes);
+        BinaryChunkStore store = new BinaryChunkStore();
+        long total = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            Tag[] recipe = store.store(revision);
+            assertEquals("A revision was not reproduced.", revision, store.load(recipe));
+            total += revision.getSize();
+            int position = random.nextInt(revision.getSize() - 100);
+            byte[] edit = new byte[random.nextInt(50) + 1];
+            random.nextBytes(edit);
+            revision = revision.slice(0, position).concat(BinaryString.wrap(edit))
+                    .concat(revision.slice(position + 20, revision.getSize()));
+        }
+        long duration = System.nanoTime() - start;
+        logger.info("  Stored {} MB of revisions in {} MB ({} chunks) in {} ms.", String.format("%.1f", total / 1e6),
+                String.format("%.1f", store.getStoredBytes() / 1e6), store.getSize(), duration / 1_000_000);
+        logger.info("Completed benchmarkDeduplication().");
+    }
+
+}
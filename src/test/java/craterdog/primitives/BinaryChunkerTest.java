@@ -0,0 +1,144 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs unit tests on the <code>BinaryChunker</code> class.
+ *
+ * @author Derk Norton
+ */
+public class BinaryChunkerTest {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(BinaryChunkerTest.class);
+
+
+    /**
+     * Log a message at the beginning of the tests.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running BinaryChunker Unit Tests...\n");
+    }
+
+
+    /**
+     * Log a message at the end of the tests.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed BinaryChunker Unit Tests.\n");
+    }
+
+
+    /**
+     * Test that the chunks reproduce the binary string, respect the size limits and are
+     * mostly unchanged by an insertion.
+     */
+    @Test
+    public void testSplit() {
+        logger.info("Beginning testSplit()...");
+        Random random = new Random(59);
+        byte[] bytes = new byte[4 * 1024 * 1024];
+        random.nextBytes(bytes);
+        BinaryString binary = BinaryString.wrap(bytes);
+        BinaryChunker chunker = new BinaryChunker();
+        List<BinaryString> chunks = chunker.split(binary);
+        BinaryString joined = new BinaryString();
+        for (int i = 0; i < chunks.size(); i++) {
+            int size = chunks.get(i).getSize();
+            assertTrue("A chunk is too large.", size <= 64 * 1024);
+            if (i < chunks.size() - 1) assertTrue("A chunk is too small.", size >= 2 * 1024);
+            joined = joined.concat(chunks.get(i));
+        }
+        assertEquals("The chunks do not reproduce the binary string.", binary, joined);
+        long average = bytes.length / chunks.size();
+        logger.info("  Split {} bytes into {} chunks averaging {} bytes.", bytes.length, chunks.size(), average);
+        assertTrue("The average chunk size is not close to 8 KB.", average > 6 * 1024 && average < 14 * 1024);
+
+        // insert some bytes into the middle and check that most of the chunks are the same
+        BinaryString changed = binary.slice(0, 1_000_000).concat(BinaryString.wrap(new byte[] { 1, 2, 3 }))
+                .concat(binary.slice(1_000_000, bytes.length));
+        List<BinaryString> changedChunks = chunker.split(changed);
+        Set<BinaryString> original = new HashSet<>(chunks);
+        int shared = 0;
+        for (BinaryString chunk : changedChunks) {
+            if (original.contains(chunk)) shared++;
+        }
+        logger.info("  {} of {} chunks are unchanged after an insertion.", shared, changedChunks.size());
+        assertTrue("Too many chunks changed after an insertion.", shared >= changedChunks.size() - 3);
+
+        // the same boundaries are found in buffer backed binary strings
+        BinaryString buffered = BinaryString.wrap(ByteBuffer.allocateDirect(bytes.length).put(bytes).flip());
+        assertEquals("The chunks are not consistent.", chunks, chunker.split(buffered));
+        assertEquals("An empty binary string was split.", 0, chunker.split(new BinaryString()).size());
+        assertEquals("A short binary string was split.", 1, chunker.split(binary.slice(0, 100)).size());
+        logger.info("Completed testSplit().");
+    }
+
+
+    /**
+     * Test that a large binary string that is loaded into the buffer of the chunker many times
+     * is split at content defined boundaries, so splitting from any boundary gives the same
+     * remaining chunks, and that the chunk sizes are validated.
+     */
+    @Test
+    public void testLargeSplit() {
+        logger.info("Beginning testLargeSplit()...");
+        Random random = new Random(61);
+        byte[] bytes = new byte[16 * 1024 * 1024];
+        random.nextBytes(bytes);
+        BinaryString binary = BinaryString.wrap(bytes);
+        BinaryChunker chunker = new BinaryChunker(256, 1024, 4096);
+        List<BinaryString> chunks = chunker.split(binary);
+        int[] starts = new int[chunks.size()];
+        int start = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            BinaryString chunk = chunks.get(i);
+            assertEquals("The chunks do not reproduce the binary string.", binary.slice(start, start + chunk.getSize()), chunk);
+            assertTrue("A chunk is too large.", chunk.getSize() <= 4096);
+            if (i < chunks.size() - 1) assertTrue("A chunk is too small.", chunk.getSize() >= 256);
+            starts[i] = start;
+            start += chunk.getSize();
+        }
+        assertEquals("The chunks do not reproduce the binary string.", bytes.length, start);
+        logger.info("  Split {} bytes into {} chunks.", bytes.length, chunks.size());
+
+        for (int i = 1; i < chunks.size(); i += chunks.size() / 7) {
+            List<BinaryString> tail = chunker.split(binary.slice(starts[i], bytes.length));
+            assertEquals("The boundaries are not content defined.", chunks.subList(i, chunks.size()), tail);
+        }
+        BinaryString rope = binary.slice(0, 5_000_003).concat(binary.slice(5_000_003, bytes.length));
+        assertEquals("The chunks are not consistent.", chunks, chunker.split(rope));
+
+        for (int[] sizes : new int[][] { { 256, 1000, 4096 }, { 256, 32, 4096 }, { 0, 1024, 4096 }, { 256, 1024, 512 } }) {
+            try {
+                new BinaryChunker(sizes[0], sizes[1], sizes[2]);
+                fail("Invalid chunk sizes were allowed.");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        logger.info("Completed testLargeSplit().");
+    }
+
+}
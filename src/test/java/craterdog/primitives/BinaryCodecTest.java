@@ -0,0 +1,205 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import craterdog.utils.Base02Utils;
+import craterdog.utils.Base16Utils;
+import craterdog.utils.Base32Utils;
+import craterdog.utils.Base64Utils;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs unit tests on the <code>BinaryCodec</code> class.
+ *
+ * @author Derk Norton
+ */
+public class BinaryCodecTest {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(BinaryCodecTest.class);
+
+
+    /**
+     * Log a message at the beginning of the tests.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running BinaryCodec Unit Tests...\n");
+    }
+
+
+    /**
+     * Log a message at the end of the tests.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed BinaryCodec Unit Tests.\n");
+    }
+
+
+    /**
+     * Test that streaming encoding and decoding match the binary string methods for each base.
+     *
+     * @throws IOException The bytes could not be streamed.
+     */
+    @Test
+    public void testRoundTrips() throws IOException {
+        logger.info("Beginning testRoundTrips()...");
+        Random random = new Random(23);
+        for (int size : new int[] { 0, 1, 59, 60_000, 120_000, 150_001 }) {
+            byte[] bytes = new byte[size];
+            random.nextBytes(bytes);
+            BinaryString binary = new BinaryString(bytes);
+            for (int base : new int[] { 2, 16, 32, 64 }) {
+                String expected = binary.toString(base, "  ");
+
+                StringWriter writer = new StringWriter();
+                BinaryCodec.encode(new ByteArrayInputStream(bytes), base, "  ", writer);
+                assertEquals("The encoded streams are not consistent.", expected, writer.toString());
+
+                StringBuilder builder = new StringBuilder();
+                BinaryCodec.encode(Channels.newChannel(new ByteArrayInputStream(bytes)), base, "  ", builder);
+                assertEquals("The encoded channels are not consistent.", expected, builder.toString());
+
+                builder.setLength(0);
+                binary.slice(0, size).appendTo(builder, base, "  ");
+                assertEquals("The appendTo method is not consistent.", expected, builder.toString());
+
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                BinaryCodec.decode(new StringReader(expected), base, output);
+                assertArrayEquals("The decoded streams are not consistent.", bytes, output.toByteArray());
+
+                output.reset();
+                BinaryCodec.decode(new StringReader(expected), base, Channels.newChannel(output));
+                assertArrayEquals("The decoded channels are not consistent.", bytes, output.toByteArray());
+            }
+        }
+        try {
+            BinaryCodec.encode(new ByteArrayInputStream(new byte[1]), 8, "", new StringBuilder());
+            fail("An unsupported base was used.");
+        } catch (NumberFormatException e) {
+            // expected
+        }
+        logger.info("Completed testRoundTrips().");
+    }
+
+
+
+    /**
+     * Test that parallel encoding and decoding of large binary strings produces the same
+     * results as the sequential encoders and decoders.
+     */
+    @Test
+    public void testParallelCoding() {
+        logger.info("Beginning testParallelCoding()...");
+        Random random = new Random(29);
+        byte[] bytes = new byte[3 * BinaryCodec.PARALLEL_THRESHOLD + 12_345];
+        random.nextBytes(bytes);
+        BinaryString binary = new BinaryString(bytes);
+        for (int base : new int[] { 16, 32, 64 }) {
+            String expected = sequentialEncode(bytes, base, "    ");
+            String actual = binary.toString(base, "    ");
+            assertEquals("The parallel encoding is not consistent.", expected, actual);
+            assertEquals("The parallel decoding is not consistent.", binary, new BinaryString(actual, base));
+            String unformatted = actual.replaceAll("\\s", "");
+            assertEquals("The parallel decoding is not consistent.", binary, new BinaryString(unformatted, base));
+        }
+        byte[] small = Arrays.copyOf(bytes, BinaryCodec.PARALLEL_THRESHOLD + 1);
+        String expected = sequentialEncode(small, 2, "");
+        assertEquals("The parallel encoding is not consistent.", expected, new BinaryString(small).toString(2));
+        assertArrayEquals("The parallel decoding is not consistent.", small, new BinaryString(expected, 2).toBytes());
+
+        // whitespace only strings decode to no bytes regardless of their length
+        String whitespace = " \n".repeat(BinaryCodec.PARALLEL_THRESHOLD);
+        for (int base : new int[] { 2, 16, 32, 64 }) {
+            assertEquals("The parallel decoding is not consistent.", 0, BinaryCodec.decode(whitespace, base).length);
+            assertEquals("The sequential decoding is not consistent.", 0, BinaryCodec.decode("  \n  ", base).length);
+        }
+        logger.info("Completed testParallelCoding().");
+    }
+
+
+    /**
+     * Test that the streaming and parallel decoders ignore the same whitespace characters as
+     * the sequential decoders, so that the same text decodes (or fails) the same way on each.
+     *
+     * @throws IOException The characters could not be streamed.
+     */
+    @Test
+    public void testWhitespace() throws IOException {
+        logger.info("Beginning testWhitespace()...");
+        byte[] bytes = new byte[BinaryCodec.PARALLEL_THRESHOLD];
+        new Random(31).nextBytes(bytes);
+        String encoded = Base64Utils.encode(bytes, "").replaceAll("\\s", "");
+        String spaced = encoded.substring(0, 8) + " \t\n\r\f\u000B" + encoded.substring(8);
+        assertArrayEquals("The streaming decoding is not consistent.", bytes, streamingDecode(spaced));
+        assertArrayEquals("The parallel decoding is not consistent.", bytes, BinaryCodec.decode(spaced, 64));
+        assertArrayEquals("The sequential decoding is not consistent.", Arrays.copyOf(bytes, 6), BinaryCodec.decode(spaced.substring(0, 14), 64));
+
+        // these are whitespace to Java but not to the \s regular expression used by Base64Utils
+        for (char character : new char[] { '\u001C', '\u001F', '\u2028' }) {
+            String invalid = encoded.substring(0, 4) + character + encoded.substring(4);
+            try {
+                BinaryCodec.decode(invalid.substring(0, 9), 64);
+                fail("The sequential decoder ignored an invalid character.");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            try {
+                BinaryCodec.decode(invalid, 64);
+                fail("The parallel decoder ignored an invalid character.");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            try {
+                streamingDecode(invalid);
+                fail("The streaming decoder ignored an invalid character.");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        logger.info("Completed testWhitespace().");
+    }
+
+
+    static private byte[] streamingDecode(String string) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryCodec.decode(new StringReader(string), 64, output);
+        return output.toByteArray();
+    }
+
+
+    static private String sequentialEncode(byte[] bytes, int base, String indentation) {
+        switch (base) {
+            case 2:
+                return Base02Utils.encode(bytes, indentation);
+            case 16:
+                return Base16Utils.encode(bytes, indentation);
+            case 32:
+                return Base32Utils.encode(bytes, indentation);
+            default:
+                return Base64Utils.encode(bytes, indentation);
+        }
+    }
+
+}
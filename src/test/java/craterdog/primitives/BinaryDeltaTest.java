@@ -0,0 +1,146 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs unit tests on the <code>BinaryDelta</code> class.
+ *
+ * @author Derk Norton
+ */
+public class BinaryDeltaTest {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(BinaryDeltaTest.class);
+
+
+    /**
+     * Log a message at the beginning of the tests.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running BinaryDelta Unit Tests...\n");
+    }
+
+
+    /**
+     * Log a message at the end of the tests.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed BinaryDelta Unit Tests.\n");
+    }
+
+
+    /**
+     * Test computing and applying deltas for several kinds of changes.
+     *
+     * @throws IOException The streams could not be read or written.
+     */
+    @Test
+    public void testDiffAndPatch() throws IOException {
+        logger.info("Beginning testDiffAndPatch()...");
+        Random random = new Random(71);
+        byte[] bytes = new byte[1024 * 1024];
+        random.nextBytes(bytes);
+        BinaryString base = BinaryString.wrap(bytes);
+
+        // a few scattered edits
+        BinaryString target = base;
+        for (int i = 0; i < 10; i++) {
+            int position = random.nextInt(target.getSize() - 100);
+            byte[] edit = new byte[random.nextInt(30)];
+            random.nextBytes(edit);
+            target = target.slice(0, position).concat(BinaryString.wrap(edit))
+                    .concat(target.slice(position + random.nextInt(30), target.getSize()));
+        }
+        BinaryString delta = checkDelta(base, target);
+        logger.info("  A delta for 10 edits to {} bytes is {} bytes.", target.getSize(), delta.getSize());
+        assertTrue("The delta is too large.", delta.getSize() < 2000);
+
+        // moved blocks, a target that is a prefix, and unrelated bytes
+        BinaryString moved = base.slice(500_000, bytes.length).concat(base.slice(0, 500_000));
+        assertTrue("The delta is too large.", checkDelta(base, moved).getSize() < 100);
+        checkDelta(base, base.slice(0, 12_345));
+        byte[] other = new byte[300_000];
+        random.nextBytes(other);
+        BinaryString unrelated = BinaryString.wrap(other);
+        assertTrue("The delta is too large.", checkDelta(base, unrelated).getSize() < other.length + 100);
+
+        // a base that is a rope of many parts
+        BinaryString rope = new BinaryString();
+        for (int index = 0; index < bytes.length; index += 10_000) {
+            rope = rope.concat(base.slice(index, Math.min(bytes.length, index + 10_000)));
+        }
+        assertEquals("The delta is not consistent.", delta, checkDelta(rope, target));
+
+        // empty and tiny binary strings
+        checkDelta(new BinaryString(), unrelated);
+        checkDelta(base, new BinaryString());
+        checkDelta(BinaryString.wrap(new byte[] { 1, 2, 3 }), BinaryString.wrap(new byte[] { 1, 2, 3, 4 }));
+        logger.info("Completed testDiffAndPatch().");
+    }
+
+
+    /**
+     * Test that invalid deltas are rejected.
+     */
+    @Test
+    public void testInvalidDeltas() {
+        logger.info("Beginning testInvalidDeltas()...");
+        BinaryString base = BinaryString.wrap(new byte[1000]);
+        BinaryString target = BinaryString.wrap(new byte[2000]);
+        BinaryString delta = BinaryDelta.diff(base, target);
+        try {
+            BinaryDelta.patch(base.slice(0, 999), delta);
+            fail("A delta was applied to the wrong base.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            BinaryDelta.patch(base, delta.slice(0, delta.getSize() - 1));
+            fail("A truncated delta was applied.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            BinaryDelta.patch(base, delta.slice(1, delta.getSize()));
+            fail("Something that is not a delta was applied.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        logger.info("Completed testInvalidDeltas().");
+    }
+
+
+    static private BinaryString checkDelta(BinaryString base, BinaryString target) throws IOException {
+        BinaryString delta = BinaryDelta.diff(base, target);
+        assertEquals("The patch is not consistent.", target, BinaryDelta.patch(base, delta));
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        BinaryDelta.diff(base, new ByteArrayInputStream(target.toBytes()), streamed);
+        assertArrayEquals("The streamed delta is not consistent.", delta.toBytes(), streamed.toByteArray());
+        ByteArrayOutputStream patched = new ByteArrayOutputStream();
+        BinaryDelta.patch(base, new ByteArrayInputStream(streamed.toByteArray()), patched);
+        assertArrayEquals("The streamed patch is not consistent.", target.toBytes(), patched.toByteArray());
+        return delta;
+    }
+
+}
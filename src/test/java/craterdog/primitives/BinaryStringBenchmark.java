@@ -0,0 +1,236 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import org.junit.AfterClass;
+import static org.junit.Assert.assertEquals;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs benchmarks on the <code>BinaryString</code> class.  The benchmarks are
+ * not run as part of the unit tests, they are run using the "benchmark" maven profile.
+ *
+ * @author Derk Norton
+ */
+public class BinaryStringBenchmark {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(BinaryStringBenchmark.class);
+
+
+    /**
+     * Log a message at the beginning of the benchmarks.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running BinaryString Benchmarks...\n");
+    }
+
+
+    /**
+     * Log a message at the end of the benchmarks.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed BinaryString Benchmarks.\n");
+    }
+
+
+    /**
+     * This method compares the time taken to compare binary strings a boxed element at a time,
+     * which is how they were compared before, with the time taken by the compareTo method, for
+     * keys from 8 bytes to 1 MB that only differ in their last byte.
+     */
+    @Test
+    public void benchmarkCompare() {
+        logger.info("Beginning benchmarkCompare()...");
+        Random random = new Random(11);
+        for (int size : new int[] { 8, 64, 1024, 64 * 1024, 1024 * 1024 }) {
+            int count = Math.max(4, (1 << 24) / size);
+            BinaryString[] firsts = new BinaryString[count];
+            BinaryString[] seconds = new BinaryString[count];
+            for (int i = 0; i < count; i++) {
+                byte[] bytes = new byte[size];
+                random.nextBytes(bytes);
+                firsts[i] = new BinaryString(bytes);
+                bytes[size - 1]++;
+                seconds[i] = new BinaryString(bytes);
+            }
+            for (int round = 0; round < 5; round++) {
+                long start = System.nanoTime();
+                int elements = 0;
+                for (int i = 0; i < count; i++) {
+                    elements += Integer.signum(BYTE_ORDER_BY_ELEMENTS.compare(firsts[i], seconds[i]));
+                }
+                long iterated = System.nanoTime() - start;
+                start = System.nanoTime();
+                int compared = 0;
+                for (int i = 0; i < count; i++) {
+                    compared += firsts[i].compareTo(seconds[i]);
+                }
+                long vectored = System.nanoTime() - start;
+                assertEquals("The compareTo method is not consistent.", elements, compared);
+                if (round == 4) {
+                    logger.info("  Comparing {} keys of {} bytes: elements {} us, compareTo {} us.",
+                            count, size, iterated / 1000, vectored / 1000);
+                }
+            }
+        }
+        logger.info("Completed benchmarkCompare().");
+    }
+
+
+    /**
+     * This method compares the time taken to xor two binary strings a byte at a time with the
+     * time taken by the xor function for array, buffer and rope backed operands, and the time
+     * taken to count their bits a byte at a time with the time taken by the bitCount method,
+     * for operands from 1 KB to 100 MB.  The largest operands need a larger heap.
+     */
+    @Test
+    public void benchmarkBitwise() {
+        logger.info("Beginning benchmarkBitwise()...");
+        Random random = new Random(13);
+        for (int size : new int[] { 1024, 64 * 1024, 1024 * 1024, 16 * 1024 * 1024, 100 * 1024 * 1024 }) {
+            int count = Math.max(1, (1 << 28) / size);
+            byte[] bytes1 = new byte[size];
+            byte[] bytes2 = new byte[size];
+            random.nextBytes(bytes1);
+            random.nextBytes(bytes2);
+            BinaryString first = BinaryString.wrap(bytes1);
+            BinaryString second = BinaryString.wrap(bytes2);
+            BinaryString direct = BinaryString.wrap(ByteBuffer.allocateDirect(size).put(bytes2).flip());
+            BinaryString rope = BinaryString.wrap(Arrays.copyOf(bytes2, size / 2))
+                    .concat(BinaryString.wrap(Arrays.copyOfRange(bytes2, size / 2, size)));
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                byte[] expected = null;
+                for (int i = 0; i < count; i++) {
+                    expected = new byte[size];
+                    for (int j = 0; j < size; j++) {
+                        expected[j] = (byte) (bytes1[j] ^ bytes2[j]);
+                    }
+                }
+                long bytewise = System.nanoTime() - start;
+                start = System.nanoTime();
+                BinaryString result = null;
+                for (int i = 0; i < count; i++) {
+                    result = BinaryString.xor(first, second);
+                }
+                long arrays = System.nanoTime() - start;
+                assertEquals("The xor function is not consistent.", BinaryString.wrap(expected), result);
+                start = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    result = BinaryString.xor(direct, first);
+                }
+                long buffers = System.nanoTime() - start;
+                assertEquals("The xor function is not consistent.", BinaryString.wrap(expected), result);
+                start = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    result = BinaryString.xor(rope, first);
+                }
+                long ropes = System.nanoTime() - start;
+                assertEquals("The xor function is not consistent.", BinaryString.wrap(expected), result);
+
+                start = System.nanoTime();
+                long counted = 0;
+                for (int i = 0; i < count; i++) {
+                    counted = 0;
+                    for (int j = 0; j < size; j++) {
+                        counted += Integer.bitCount(bytes1[j] & 0xFF);
+                    }
+                }
+                long bytesCounted = System.nanoTime() - start;
+                start = System.nanoTime();
+                long bits = 0;
+                for (int i = 0; i < count; i++) {
+                    bits = first.bitCount();
+                }
+                long bitCount = System.nanoTime() - start;
+                assertEquals("The bitCount method is not consistent.", counted, bits);
+                if (round == 2) {
+                    logger.info("  Xor of {} byte operands: bytes {} MB/s, arrays {} MB/s, buffers {} MB/s, ropes {} MB/s.",
+                            size, throughput(size, count, bytewise), throughput(size, count, arrays),
+                            throughput(size, count, buffers), throughput(size, count, ropes));
+                    logger.info("  Bit count of {} byte operands: bytes {} MB/s, bitCount {} MB/s.",
+                            size, throughput(size, count, bytesCounted), throughput(size, count, bitCount));
+                }
+            }
+        }
+        logger.info("Completed benchmarkBitwise().");
+    }
+
+
+    /**
+     * This method compares the time taken by the first calls to the hashCode and digest
+     * methods of a 64 MB rope, which calculate the values, with the time taken by the second
+     * calls, which return the cached values.
+     */
+    @Test
+    public void benchmarkHashing() {
+        logger.info("Beginning benchmarkHashing()...");
+        Random random = new Random(17);
+        byte[] bytes = new byte[64 * 1024 * 1024];
+        random.nextBytes(bytes);
+        int half = bytes.length / 2 + 3;
+        byte[] left = Arrays.copyOf(bytes, half);
+        byte[] right = Arrays.copyOfRange(bytes, half, bytes.length);
+        for (int round = 0; round < 3; round++) {
+            // a new rope is created each round so that nothing is cached
+            BinaryString binary = BinaryString.wrap(left).concat(BinaryString.wrap(right));
+            long start = System.nanoTime();
+            int hash = binary.hashCode();
+            long hashed = System.nanoTime() - start;
+            start = System.nanoTime();
+            BinaryString digest = binary.digest("SHA-256");
+            long digested = System.nanoTime() - start;
+            start = System.nanoTime();
+            assertEquals("The hashCode method is not consistent.", hash, binary.hashCode());
+            long rehashed = System.nanoTime() - start;
+            start = System.nanoTime();
+            assertEquals("The digest method is not consistent.", digest, binary.digest("SHA-256"));
+            long redigested = System.nanoTime() - start;
+            if (round == 2) {
+                logger.info("  Hashing {} bytes: first {} us, second {} us.", bytes.length, hashed / 1000, rehashed / 1000);
+                logger.info("  Digesting {} bytes: first {} us, second {} us.", bytes.length, digested / 1000, redigested / 1000);
+            }
+        }
+        logger.info("Completed benchmarkHashing().");
+    }
+
+
+    /*
+     * This function returns the number of megabytes of operands handled per second.
+     */
+    static private long throughput(int size, int count, long nanoseconds) {
+        return (long) ((double) size * count / (1 << 20) * 1_000_000_000 / Math.max(1, nanoseconds));
+    }
+
+
+    /*
+     * This comparator compares binary strings a boxed element at a time.
+     */
+    static private final Comparator<BinaryString> BYTE_ORDER_BY_ELEMENTS = (first, second) -> {
+        craterdog.core.Iterator<Byte> firstIterator = first.createIterator();
+        craterdog.core.Iterator<Byte> secondIterator = second.createIterator();
+        while (firstIterator.hasNext() && secondIterator.hasNext()) {
+            int result = Integer.compare(firstIterator.getNext() & 0xFF, secondIterator.getNext() & 0xFF);
+            if (result != 0) return result;
+        }
+        return Integer.compare(first.getSize(), second.getSize());
+    };
+
+}
@@ -0,0 +1,124 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import org.junit.AfterClass;
+import static org.junit.Assert.assertEquals;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs benchmarks on the <code>BinaryStringBuilder</code> class.  The
+ * benchmarks are not run as part of the unit tests, they are run using the "benchmark" maven
+ * profile.
+ *
+ * @author Derk Norton
+ */
+public class BinaryStringBuilderBenchmark {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(BinaryStringBuilderBenchmark.class);
+
+
+    /**
+     * Log a message at the beginning of the benchmarks.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running BinaryStringBuilder Benchmarks...\n");
+    }
+
+
+    /**
+     * Log a message at the end of the benchmarks.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed BinaryStringBuilder Benchmarks.\n");
+    }
+
+
+    /**
+     * This method compares building binary strings of 1 KB to 32 MB using a byte array output
+     * stream, which copies its bytes once when they are read and again when the binary string
+     * is created, with the build method of a builder that grows, which copies the bytes once
+     * unless the storage is nearly full, the build method of a builder created with the final
+     * size, which hands its storage over, and the buildCopy method, which copies it once.
+     */
+    @Test
+    public void benchmarkBuilding() {
+        logger.info("Beginning benchmarkBuilding()...");
+        Random random = new Random(37);
+        byte[] chunk = new byte[1000];
+        random.nextBytes(chunk);
+        for (int chunks = 1; chunks <= 64 * 1024; chunks *= 8) {
+            int count = Math.max(3, 1024 / chunks);
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                BinaryString streamed = null;
+                for (int i = 0; i < count; i++) {
+                    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                    for (int j = 0; j < chunks; j++) {
+                        stream.write(chunk, 0, chunk.length);
+                    }
+                    streamed = new BinaryString(stream.toByteArray());
+                }
+                long streaming = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                BinaryString built = null;
+                for (int i = 0; i < count; i++) {
+                    BinaryStringBuilder builder = new BinaryStringBuilder();
+                    for (int j = 0; j < chunks; j++) {
+                        builder.append(chunk);
+                    }
+                    built = builder.build();
+                }
+                long building = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                BinaryString presized = null;
+                for (int i = 0; i < count; i++) {
+                    BinaryStringBuilder builder = new BinaryStringBuilder(chunks * chunk.length);
+                    for (int j = 0; j < chunks; j++) {
+                        builder.append(chunk);
+                    }
+                    presized = builder.build();
+                }
+                long handing = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                BinaryString copied = null;
+                BinaryStringBuilder builder = new BinaryStringBuilder();
+                for (int i = 0; i < count; i++) {
+                    for (int j = 0; j < chunks; j++) {
+                        builder.append(chunk);
+                    }
+                    copied = builder.buildCopy();
+                }
+                long copying = System.nanoTime() - start;
+
+                assertEquals("The build method is not consistent.", streamed, built);
+                assertEquals("The build method is not consistent.", streamed, presized);
+                assertEquals("The buildCopy method is not consistent.", streamed, copied);
+                if (round == 2) {
+                    logger.info("  Building {} binary strings of {} bytes: output stream {} us, build {} us, presized build {} us, reused buildCopy {} us.",
+                            count, built.getSize(), streaming / 1000, building / 1000, handing / 1000, copying / 1000);
+                }
+            }
+        }
+        logger.info("Completed benchmarkBuilding().");
+    }
+
+}
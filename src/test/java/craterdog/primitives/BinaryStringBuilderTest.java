@@ -0,0 +1,142 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs unit tests on the <code>BinaryStringBuilder</code> class.
+ *
+ * @author Derk Norton
+ */
+public class BinaryStringBuilderTest {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(BinaryStringBuilderTest.class);
+
+
+    /**
+     * Log a message at the beginning of the tests.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running BinaryStringBuilder Unit Tests...\n");
+    }
+
+
+    /**
+     * Log a message at the end of the tests.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed BinaryStringBuilder Unit Tests.\n");
+    }
+
+
+    /**
+     * Test that each kind of value is appended correctly.
+     */
+    @Test
+    public void testAppend() {
+        logger.info("Beginning testAppend()...");
+        BinaryStringBuilder builder = new BinaryStringBuilder(4);
+        ByteBuffer expected = ByteBuffer.allocate(100);
+        builder.append((byte) 7);
+        expected.put((byte) 7);
+        builder.append(new byte[] { 1, 2, 3, 4, 5 }, 1, 3);
+        expected.put(new byte[] { 2, 3, 4 });
+        builder.appendShort((short) 0x1234).appendShort((short) 0x1234, ByteOrder.LITTLE_ENDIAN);
+        expected.putShort((short) 0x1234).order(ByteOrder.LITTLE_ENDIAN).putShort((short) 0x1234).order(ByteOrder.BIG_ENDIAN);
+        builder.appendInt(0x12345678).appendInt(0x12345678, ByteOrder.LITTLE_ENDIAN);
+        expected.putInt(0x12345678).order(ByteOrder.LITTLE_ENDIAN).putInt(0x12345678).order(ByteOrder.BIG_ENDIAN);
+        builder.appendLong(0x123456789ABCDEF0L).appendLong(0x123456789ABCDEF0L, ByteOrder.LITTLE_ENDIAN);
+        expected.putLong(0x123456789ABCDEF0L).order(ByteOrder.LITTLE_ENDIAN).putLong(0x123456789ABCDEF0L).order(ByteOrder.BIG_ENDIAN);
+        BinaryString rope = new BinaryString(new byte[100]).slice(10, 90).concat(new BinaryString(new byte[] { 9, 9 }));
+        builder.append(rope.slice(75, 82));
+        expected.put(rope.slice(75, 82).toBytes());
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 11, 12, 13, 14 });
+        buffer.position(1);
+        builder.append(buffer);
+        expected.put(new byte[] { 12, 13, 14 });
+        assertEquals("The append method changed the buffer position.", 1, buffer.position());
+        expected.flip();
+
+        assertEquals("The getSize method is not consistent.", expected.remaining(), builder.getSize());
+        BinaryString binary = builder.build();
+        assertEquals("The build method is not consistent.", BinaryString.wrap(expected), binary);
+        assertEquals("The build method did not reset the builder.", 0, builder.getSize());
+        assertEquals("The build method is not consistent.", new BinaryString(), builder.build());
+        builder.append((byte) 1);
+        assertEquals("The builder did not start again.", BinaryString.wrap(new byte[] { 1 }), builder.build());
+        logger.info("Completed testAppend().");
+    }
+
+
+    /**
+     * Test that the binary strings returned by the buildCopy and build methods are not
+     * changed when the builder is reused afterwards.
+     */
+    @Test
+    public void testReuseAndHandOff() {
+        logger.info("Beginning testReuseAndHandOff()...");
+        Random random = new Random(37);
+        byte[] chunk = new byte[1000];
+        random.nextBytes(chunk);
+        BinaryStringBuilder builder = new BinaryStringBuilder();
+        builder.append(chunk);
+        builder.reset();
+        assertEquals("The reset method is not consistent.", 0, builder.getSize());
+        BinaryString[] copies = new BinaryString[100];
+        for (int i = 0; i < copies.length; i++) {
+            builder.appendInt(i).append(chunk, 0, i);
+            copies[i] = builder.buildCopy();
+            assertEquals("The buildCopy method did not start again.", 0, builder.getSize());
+        }
+        for (int i = 0; i < copies.length; i++) {
+            assertEquals("The buildCopy method is not consistent.", 4 + i, copies[i].getSize());
+            assertEquals("The buildCopy method is not consistent.", i, copies[i].asByteBuffer().getInt());
+            assertEquals("The buildCopy method is not consistent.", BinaryString.wrap(chunk).slice(0, i), copies[i].slice(4, 4 + i));
+        }
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        builder = new BinaryStringBuilder();
+        for (int i = 0; i < 5_000; i++) {
+            stream.write(chunk, 0, chunk.length);
+            builder.append(chunk);
+        }
+        BinaryString built = builder.build();
+        assertEquals("The build method did not start again.", 0, builder.getSize());
+        byte[] other = new byte[chunk.length];
+        random.nextBytes(other);
+        for (int i = 0; i < 5_000; i++) {
+            builder.append(other);
+        }
+        assertEquals("The build method is not consistent.", new BinaryString(stream.toByteArray()), built);
+        assertEquals("The build method is not consistent.", 5_000 * chunk.length, builder.build().getSize());
+
+        // a builder with exactly the right capacity hands over its storage
+        builder = new BinaryStringBuilder(chunk.length);
+        built = builder.append(chunk).build();
+        builder.append(other);
+        assertEquals("The build method is not consistent.", BinaryString.wrap(chunk), built);
+        assertEquals("The build method is not consistent.", BinaryString.wrap(other), builder.build());
+        logger.info("Completed testReuseAndHandOff().");
+    }
+
+}
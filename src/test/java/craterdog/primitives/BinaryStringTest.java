@@ -9,11 +9,28 @@
  ************************************************************************/
 package craterdog.primitives;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
 import org.junit.AfterClass;
 import static org.junit.Assert.*;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 
@@ -27,6 +44,9 @@ public class BinaryStringTest {
 
     static private final XLogger logger = XLoggerFactory.getXLogger(BinaryStringTest.class);
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
 
     /**
      * Log a message at the beginning of the tests.
@@ -159,4 +179,613 @@ public class BinaryStringTest {
         logger.info("Completed testIterator().");
     }
 
+
+    /**
+     * Test the primitive iterator, forEachByte and bytes methods on flat, rope and buffer
+     * backed binary strings.
+     */
+    @Test
+    public void testPrimitiveIteration() {
+        logger.info("Beginning testPrimitiveIteration()...");
+        Random random = new Random(67);
+        byte[] bytes = new byte[100_000];
+        random.nextBytes(bytes);
+        BinaryString rope = new BinaryString();
+        for (int index = 0; index < bytes.length; index += 10_000) {
+            rope = rope.concat(BinaryString.wrap(Arrays.copyOfRange(bytes, index, index + 10_000)));
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        long expected = 0;
+        for (byte b : bytes) {
+            expected += b;
+        }
+        for (BinaryString binary : new BinaryString[] { BinaryString.wrap(bytes), rope, BinaryString.wrap(direct) }) {
+            BinaryString.BinaryIterator iterator = binary.createIterator();
+            for (int i = 0; i < bytes.length; i++) {
+                assertEquals("The nextByte method is not consistent.", bytes[i], iterator.nextByte());
+            }
+            assertFalse("The iterator is not consistent.", iterator.hasNext());
+            assertEquals("The previousByte method is not consistent.", bytes[bytes.length - 1], iterator.previousByte());
+            long[] sum = new long[1];
+            binary.forEachByte(b -> sum[0] += b);
+            assertEquals("The forEachByte method is not consistent.", expected, sum[0]);
+            assertEquals("The bytes method is not consistent.", expected, binary.bytes().asLongStream().sum());
+            assertEquals("The bytes method is not consistent.", expected, binary.bytes().parallel().asLongStream().sum());
+            assertArrayEquals("The bytes method is not consistent.", binary.bytes().toArray(),
+                    binary.bytes().parallel().toArray());
+            assertArrayEquals("The toArray method is not consistent.", binary.toArray(), BinaryString.wrap(bytes).toArray());
+        }
+        logger.info("Completed testPrimitiveIteration().");
+    }
+
+
+
+    /**
+     * Test the wrap, slice, asByteBuffer and copy methods.
+     */
+    @Test
+    public void testViews() {
+        logger.info("Beginning testViews()...");
+        byte[] bytes = new BinaryString("39E1BB74A5C6D7E8F9012345", 16).toBytes();
+        BinaryString text = BinaryString.wrap(bytes);
+        assertEquals("The wrap method is not consistent.", new BinaryString(bytes), text);
+
+        BinaryString slice = text.slice(3, 9);
+        BinaryString expected = new BinaryString(Arrays.copyOfRange(bytes, 3, 9));
+        assertEquals("The slice method is not consistent.", expected, slice);
+        assertEquals("The slice method is not consistent.", 6, slice.getSize());
+        assertEquals("The hashCode methods are not consistent.", Arrays.hashCode(slice.toBytes()), slice.hashCode());
+        assertEquals("The toString methods are not consistent.", expected.toString(16), slice.toString(16));
+        assertEquals("The toString methods are not consistent.", expected.toString(32), slice.toString(32));
+        assertEquals("The compareTo methods are not consistent.", 0, slice.compareTo(expected));
+        assertArrayEquals("The toArray methods are not consistent.", expected.toArray(), slice.toArray());
+        assertEquals("The slice method is not consistent.", new BinaryString(Arrays.copyOfRange(bytes, 4, 6)), slice.slice(1, 3));
+        assertEquals("The slice method is not consistent.", 0, slice.slice(2, 2).getSize());
+        assertSame("The slice method is not consistent.", text, text.slice(0, text.getSize()));
+        assertSame("The copy method is not consistent.", slice, slice.copy());
+
+        craterdog.core.Iterator<Byte> iterator = slice.createIterator();
+        iterator.toEnd();
+        assertEquals("The iterator is not consistent.", Byte.valueOf(bytes[8]), iterator.getPrevious());
+        iterator.toIndex(1);
+        assertEquals("The iterator is not consistent.", Byte.valueOf(bytes[3]), iterator.getNext());
+
+        ByteBuffer buffer = slice.asByteBuffer();
+        assertEquals("The asByteBuffer method is not consistent.", 6, buffer.remaining());
+        assertEquals("The asByteBuffer method is not consistent.", bytes[3], buffer.get(0));
+        assertTrue("The asByteBuffer method is not consistent.", buffer.isReadOnly());
+        try {
+            buffer.put(0, (byte) 0);
+            fail("A read only buffer was modified.");
+        } catch (ReadOnlyBufferException e) {
+            // expected
+        }
+        try {
+            text.slice(5, text.getSize() + 1);
+            fail("An invalid slice was created.");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        logger.info("Completed testViews().");
+    }
+
+
+
+    /**
+     * Test the binary strings that are backed by byte buffers and memory mapped files.
+     *
+     * @throws IOException The file could not be mapped.
+     */
+    @Test
+    public void testBufferBackedStrings() throws IOException {
+        logger.info("Beginning testBufferBackedStrings()...");
+        byte[] bytes = new byte[150_001];
+        new Random(17).nextBytes(bytes);
+        Path file = folder.newFile("blob.bin").toPath();
+        Files.write(file, bytes);
+        BinaryString expected = new BinaryString(bytes);
+
+        BinaryString mapped = BinaryString.map(file);
+        assertEquals("The map method is not consistent.", bytes.length, mapped.getSize());
+        assertEquals("The equals methods are not consistent.", expected, mapped);
+        assertEquals("The equals methods are not consistent.", mapped, expected);
+        assertEquals("The hashCode methods are not consistent.", expected.hashCode(), mapped.hashCode());
+        assertEquals("The compareTo methods are not consistent.", 0, mapped.compareTo(expected));
+        assertArrayEquals("The toBytes methods are not consistent.", bytes, mapped.toBytes());
+        for (int base : new int[] { 2, 16, 32, 64 }) {
+            assertEquals("The toString methods are not consistent.", expected.toString(base, "    "), mapped.toString(base, "    "));
+        }
+
+        BinaryString region = BinaryString.map(file, 1000L, 70_000);
+        BinaryString slice = expected.slice(1000, 71_000);
+        assertEquals("The map method is not consistent.", slice, region);
+        assertEquals("The toString methods are not consistent.", slice.toString(32), region.toString(32));
+        assertEquals("The slice method is not consistent.", expected.slice(1500, 1600), region.slice(500, 600));
+        assertEquals("The toString methods are not consistent.", "", region.slice(7, 7).toString(16));
+        int count = 0;
+        for (Byte b : region) {
+            assertEquals("The iterator is not consistent.", bytes[1000 + count++], b.byteValue());
+        }
+        assertEquals("The iterator is not consistent.", region.getSize(), count);
+        try {
+            BinaryString.map(file, 100_000L, 60_000);
+            fail("A region past the end of the file was mapped.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(100);
+        direct.put(bytes, 0, 100).flip().position(10);
+        BinaryString wrapped = BinaryString.wrap(direct);
+        assertEquals("The wrap method is not consistent.", expected.slice(10, 100), wrapped);
+        assertTrue("The asByteBuffer method is not consistent.", wrapped.asByteBuffer().isReadOnly());
+        assertEquals("The wrap method is not consistent.", expected.slice(5, 20), BinaryString.wrap(ByteBuffer.wrap(bytes, 5, 15)));
+        logger.info("Completed testBufferBackedStrings().");
+    }
+
+
+
+    /**
+     * Test that the compareTo method and the byte array comparator use unsigned ordering.
+     */
+    @Test
+    public void testUnsignedOrdering() {
+        logger.info("Beginning testUnsignedOrdering()...");
+        Random random = new Random(5);
+        BinaryString[] strings = new BinaryString[2000];
+        byte[][] arrays = new byte[strings.length][];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[random.nextInt(6)];
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = (byte) (random.nextInt(3) * 0x7F);  // 0x00, 0x7F and 0xFE
+            }
+            arrays[i] = bytes;
+            strings[i] = i % 2 == 0 ? new BinaryString(bytes) : BinaryString.wrap(ByteBuffer.allocateDirect(bytes.length).put(bytes).flip());
+        }
+        Arrays.sort(strings);
+        Arrays.sort(arrays, BinaryString.BYTE_ORDER);
+        for (int i = 0; i < strings.length; i++) {
+            assertArrayEquals("The orderings are not consistent.", arrays[i], strings[i].toBytes());
+            if (i > 0) {
+                assertTrue("The compareTo method is not consistent.", strings[i - 1].compareTo(strings[i]) <= 0);
+                assertEquals("The compareTo method is not consistent.",
+                        Integer.signum(BYTE_ORDER_BY_ELEMENTS.compare(strings[i], strings[i - 1])), strings[i].compareTo(strings[i - 1]));
+            }
+        }
+        byte[] bytes = { 1, 2, (byte) 0x80, 4 };
+        assertEquals("The compare method is not consistent.", 1, BinaryString.compare(bytes, 2, 1, bytes, 0, 2));
+        assertEquals("The compare method is not consistent.", 0, BinaryString.compare(bytes, 1, 0, bytes, 3, 0));
+        assertEquals("The compare method is not consistent.", -1, BinaryString.compare(bytes, 0, 1, bytes, 0, 2));
+        logger.info("Completed testUnsignedOrdering().");
+    }
+
+
+    /**
+     * Test that the compareTo method finds a difference at any position in keys from 8 bytes
+     * to 1 MB, whether the keys are stored on the heap, in a direct buffer or in a rope.
+     */
+    @Test
+    public void testCompareLongKeys() {
+        logger.info("Beginning testCompareLongKeys()...");
+        Random random = new Random(11);
+        for (int size : new int[] { 8, 9, 15, 16, 17, 64, 1024, 64 * 1024, 1024 * 1024 }) {
+            byte[] bytes = new byte[size];
+            random.nextBytes(bytes);
+            BinaryString first = new BinaryString(bytes);
+            for (int position : new int[] { 0, 7, size / 2, (size & ~7) - 1, size - 1 }) {
+                byte[] copy = bytes.clone();
+                copy[position] ^= (byte) 0x80;  // crosses the sign bit
+                BinaryString heap = new BinaryString(copy);
+                BinaryString direct = BinaryString.wrap(ByteBuffer.allocateDirect(size).put(copy).flip());
+                BinaryString rope = BinaryString.wrap(Arrays.copyOf(copy, size / 3))
+                        .concat(BinaryString.wrap(Arrays.copyOfRange(copy, size / 3, size)));
+                int expected = Integer.signum(Arrays.compareUnsigned(bytes, copy));
+                for (BinaryString second : new BinaryString[] { heap, direct, rope }) {
+                    assertEquals("The compareTo method is not consistent.", expected, first.compareTo(second));
+                    assertEquals("The compareTo method is not consistent.", -expected, second.compareTo(first));
+                    assertEquals("The compareTo method is not consistent.", expected,
+                            Integer.signum(BYTE_ORDER_BY_ELEMENTS.compare(first, second)));
+                }
+            }
+            assertEquals("The compareTo method is not consistent.", 0, first.compareTo(new BinaryString(bytes.clone())));
+            assertEquals("The compareTo method is not consistent.", 1, first.compareTo(new BinaryString(Arrays.copyOf(bytes, size - 1))));
+        }
+        logger.info("Completed testCompareLongKeys().");
+    }
+
+
+    /*
+     * This comparator compares binary strings a boxed element at a time.
+     */
+    static private final Comparator<BinaryString> BYTE_ORDER_BY_ELEMENTS = (first, second) -> {
+        craterdog.core.Iterator<Byte> firstIterator = first.createIterator();
+        craterdog.core.Iterator<Byte> secondIterator = second.createIterator();
+        while (firstIterator.hasNext() && secondIterator.hasNext()) {
+            int result = Integer.compare(firstIterator.getNext() & 0xFF, secondIterator.getNext() & 0xFF);
+            if (result != 0) return result;
+        }
+        return Integer.compare(first.getSize(), second.getSize());
+    };
+
+
+
+    /**
+     * Test that ropes created by concatenation stay balanced and behave the same as flat
+     * binary strings.
+     *
+     * @throws InterruptedException The thread using a small stack was interrupted.
+     */
+    @Test
+    public void testRopes() throws InterruptedException {
+        logger.info("Beginning testRopes()...");
+        Random random = new Random(31);
+        Deque<byte[]> pieces = new ArrayDeque<>();
+        BinaryString rope = new BinaryString();
+        for (int i = 0; i < 100_000; i++) {
+            byte[] bytes = new byte[random.nextInt(i % 100 == 0 ? 5000 : 100)];
+            random.nextBytes(bytes);
+            if (i % 3 == 0) {
+                pieces.addFirst(bytes);
+                rope = BinaryString.wrap(bytes).concat(rope);
+            } else {
+                pieces.addLast(bytes);
+                rope = rope.concat(BinaryString.wrap(bytes));
+            }
+        }
+        // the rope operations recurse through the rope, so an unbalanced rope of this many
+        // pieces would overflow a small stack
+        BinaryString balanced = rope;
+        Throwable[] failure = new Throwable[1];
+        Thread thread = new Thread(null, () -> {
+            try {
+                balanced.slice(1, balanced.getSize() - 1).hashCode();
+                balanced.toBytes();
+            } catch (Throwable throwable) {
+                failure[0] = throwable;
+            }
+        }, "small stack", 256 * 1024);
+        thread.start();
+        thread.join();
+        if (failure[0] != null) throw new AssertionError("The rope is not balanced.", failure[0]);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (byte[] bytes : pieces) {
+            output.writeBytes(bytes);
+        }
+        byte[] bytes = output.toByteArray();
+        BinaryString flat = BinaryString.wrap(bytes);
+
+        assertEquals("The concat method is not consistent.", bytes.length, rope.getSize());
+        assertArrayEquals("The toBytes methods are not consistent.", bytes, rope.toBytes());
+        assertEquals("The equals methods are not consistent.", flat, rope);
+        assertEquals("The equals methods are not consistent.", rope, flat);
+        assertEquals("The hashCode methods are not consistent.", flat.hashCode(), rope.hashCode());
+        assertEquals("The compareTo methods are not consistent.", 0, rope.compareTo(flat));
+        assertEquals("The flatten method is not consistent.", flat, rope.flatten());
+        assertEquals("The asByteBuffer method is not consistent.", ByteBuffer.wrap(bytes), rope.asByteBuffer());
+        for (int base : new int[] { 16, 32, 64 }) {
+            assertEquals("The toString methods are not consistent.", flat.toString(base, "  "), rope.toString(base, "  "));
+        }
+        int index = 0;
+        for (Byte b : rope) {
+            assertEquals("The iterator is not consistent.", bytes[index++], b.byteValue());
+        }
+        craterdog.core.Iterator<Byte> iterator = rope.createIterator();
+        iterator.toEnd();
+        while (iterator.hasPrevious()) {
+            assertEquals("The iterator is not consistent.", bytes[--index], iterator.getPrevious().byteValue());
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            int first = random.nextInt(bytes.length);
+            int last = first + random.nextInt(Math.min(bytes.length - first, 20_000) + 1);
+            BinaryString slice = rope.slice(first, last);
+            assertEquals("The slice method is not consistent.", flat.slice(first, last), slice);
+            assertEquals("The hashCode methods are not consistent.", flat.slice(first, last).hashCode(), slice.hashCode());
+            BinaryString other = flat.slice(first, last).concat(BinaryString.wrap(new byte[] { 1 }));
+            assertEquals("The compareTo methods are not consistent.",
+                    flat.slice(first, last).compareTo(other), slice.compareTo(other));
+            assertEquals("The compareTo methods are not consistent.",
+                    other.compareTo(flat.slice(first, last)), other.compareTo(slice));
+        }
+        BinaryString changed = rope.slice(0, 1000).concat(BinaryString.wrap(new byte[] { (byte) ~bytes[1000] }))
+                .concat(rope.slice(1001, rope.getSize()));
+        assertNotEquals("The equals methods are not consistent.", rope, changed);
+        assertEquals("The compareTo methods are not consistent.",
+                Integer.compare(bytes[1000] & 0xFF, ~bytes[1000] & 0xFF), rope.compareTo(changed));
+        logger.info("Completed testRopes().");
+    }
+
+
+
+    /**
+     * Test the bitwise operations against the equivalent bit set operations.
+     */
+    @Test
+    public void testBitwiseOperations() {
+        logger.info("Beginning testBitwiseOperations()...");
+        Random random = new Random(41);
+        for (int round = 0; round < 200; round++) {
+            byte[] bytes1 = new byte[random.nextInt(40)];
+            byte[] bytes2 = new byte[random.nextInt(40)];
+            random.nextBytes(bytes1);
+            random.nextBytes(bytes2);
+            // use views and ropes as well as flat binary strings
+            BinaryString first = new BinaryString(new byte[3]).concat(BinaryString.wrap(bytes1)).slice(3, 3 + bytes1.length);
+            BinaryString second = BinaryString.wrap(ByteBuffer.allocateDirect(bytes2.length).put(bytes2).flip());
+            int size = Math.max(bytes1.length, bytes2.length);
+
+            BitSet expected = BitSet.valueOf(bytes1);
+            expected.and(BitSet.valueOf(bytes2));
+            assertEquals("The and function is not consistent.", padded(expected, size), BinaryString.and(first, second));
+            expected = BitSet.valueOf(bytes1);
+            expected.or(BitSet.valueOf(bytes2));
+            assertEquals("The or function is not consistent.", padded(expected, size), BinaryString.or(second, first));
+            expected = BitSet.valueOf(bytes1);
+            expected.xor(BitSet.valueOf(bytes2));
+            assertEquals("The xor function is not consistent.", padded(expected, size), BinaryString.xor(first, second));
+            expected = BitSet.valueOf(bytes1);
+            expected.flip(0, bytes1.length * 8);
+            assertEquals("The not function is not consistent.", padded(expected, bytes1.length), BinaryString.not(first));
+            assertEquals("The bitCount method is not consistent.", BitSet.valueOf(bytes1).cardinality(), first.bitCount());
+            assertEquals("The bitCount method is not consistent.", BitSet.valueOf(bytes2).cardinality(), second.bitCount());
+
+            int bits = random.nextInt(bytes1.length * 8 + 20);
+            BitSet original = BitSet.valueOf(bytes1);
+            BitSet left = new BitSet();
+            BitSet right = new BitSet();
+            for (int i = original.nextSetBit(0); i >= 0; i = original.nextSetBit(i + 1)) {
+                if (i + bits < bytes1.length * 8) left.set(i + bits);
+                if (i - bits >= 0) right.set(i - bits);
+            }
+            assertEquals("The shiftLeft function is not consistent.", padded(left, bytes1.length), BinaryString.shiftLeft(first, bits));
+            assertEquals("The shiftRight function is not consistent.", padded(right, bytes1.length), BinaryString.shiftRight(first, bits));
+            assertEquals("The shiftLeft function is not consistent.", padded(right, bytes1.length), BinaryString.shiftLeft(first, -bits));
+            BinaryString direct = BinaryString.wrap(ByteBuffer.allocateDirect(bytes1.length).put(bytes1).flip());
+            assertEquals("The shiftLeft function is not consistent.", padded(left, bytes1.length), BinaryString.shiftLeft(direct, bits));
+            assertEquals("The shiftRight function is not consistent.", padded(right, bytes1.length), BinaryString.shiftRight(direct, bits));
+            assertEquals("The not function is not consistent.", BinaryString.not(first), BinaryString.not(direct));
+        }
+        logger.info("Completed testBitwiseOperations().");
+    }
+
+
+    /**
+     * Test the bitwise operations on large operands that are unaligned views, direct buffers
+     * and ropes, against the equivalent bit set operations.
+     */
+    @Test
+    public void testLargeBitwiseOperations() {
+        logger.info("Beginning testLargeBitwiseOperations()...");
+        Random random = new Random(43);
+        for (int size : new int[] { 1027, 64 * 1024, 1024 * 1024 + 5 }) {
+            byte[] bytes1 = new byte[size];
+            byte[] bytes2 = new byte[size];
+            random.nextBytes(bytes1);
+            random.nextBytes(bytes2);
+            byte[] shifted = new byte[size + 1];
+            System.arraycopy(bytes1, 0, shifted, 1, size);
+            BinaryString view = new BinaryString(shifted).slice(1, size + 1);  // not word aligned
+            BinaryString direct = BinaryString.wrap(ByteBuffer.allocateDirect(size).put(bytes2).flip());
+            BinaryString rope = BinaryString.wrap(Arrays.copyOf(bytes2, size / 3))
+                    .concat(BinaryString.wrap(Arrays.copyOfRange(bytes2, size / 3, size)));
+
+            BitSet expected = BitSet.valueOf(bytes1);
+            expected.xor(BitSet.valueOf(bytes2));
+            assertEquals("The xor function is not consistent.", padded(expected, size), BinaryString.xor(view, direct));
+            assertEquals("The xor function is not consistent.", padded(expected, size), BinaryString.xor(rope, view));
+            assertEquals("The bitCount method is not consistent.", expected.cardinality(), BinaryString.xor(view, rope).bitCount());
+            expected = BitSet.valueOf(bytes1);
+            expected.and(BitSet.valueOf(bytes2));
+            assertEquals("The and function is not consistent.", padded(expected, size), BinaryString.and(view, rope));
+            expected = BitSet.valueOf(bytes1);
+            expected.or(BitSet.valueOf(bytes2));
+            assertEquals("The or function is not consistent.", padded(expected, size), BinaryString.or(direct, view));
+            assertEquals("The bitCount method is not consistent.", BitSet.valueOf(bytes2).cardinality(), rope.bitCount());
+            assertEquals("The bitCount method is not consistent.", 0, BinaryString.xor(rope, direct).bitCount());
+            assertEquals("The bitCount method is not consistent.", 8L * size, BinaryString.xor(view, BinaryString.not(view)).bitCount());
+
+            // the longer operand is not array backed so the result is combined in place
+            BinaryString flat = BinaryString.wrap(bytes2);
+            BinaryString prefix = view.slice(0, size / 2);
+            assertEquals("The and function is not consistent.", BinaryString.and(flat, prefix), BinaryString.and(rope, prefix));
+            assertEquals("The or function is not consistent.", BinaryString.or(flat, prefix), BinaryString.or(direct, prefix));
+            assertEquals("The xor function is not consistent.", BinaryString.xor(flat, prefix), BinaryString.xor(prefix, rope));
+            assertEquals("The not function is not consistent.", BinaryString.not(flat), BinaryString.not(rope));
+            for (int bits : new int[] { 1, 7, 8, 13, 64, 8 * size / 3 + 5 }) {
+                assertEquals("The shiftLeft function is not consistent.", BinaryString.shiftLeft(flat, bits), BinaryString.shiftLeft(direct, bits));
+                assertEquals("The shiftLeft function is not consistent.", BinaryString.shiftLeft(flat, bits), BinaryString.shiftLeft(rope, bits));
+                assertEquals("The shiftRight function is not consistent.", BinaryString.shiftRight(flat, bits), BinaryString.shiftRight(direct, bits));
+                assertEquals("The shiftRight function is not consistent.", BinaryString.shiftRight(flat, bits), BinaryString.shiftRight(rope, bits));
+            }
+        }
+        logger.info("Completed testLargeBitwiseOperations().");
+    }
+
+
+    /**
+     * Test the search methods on flat, rope and buffer backed binary strings against a
+     * simple search.
+     */
+    @Test
+    public void testSearching() {
+        logger.info("Beginning testSearching()...");
+        Random random = new Random(53);
+        for (int trial = 0; trial < 200; trial++) {
+            byte[] bytes = new byte[random.nextInt(300)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) (random.nextInt(3) - 1);  // few values so that there are many matches
+            }
+            BinaryString rope = new BinaryString();
+            for (int index = 0; index < bytes.length; ) {
+                int size = Math.min(bytes.length - index, 1 + random.nextInt(100));
+                rope = rope.concat(BinaryString.wrap(Arrays.copyOfRange(bytes, index, index + size)));
+                index += size;
+            }
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes).flip();
+            BinaryString[] binaries = { BinaryString.wrap(bytes), rope, BinaryString.wrap(direct) };
+
+            byte[] pattern = new byte[1 + random.nextInt(6)];
+            for (int i = 0; i < pattern.length; i++) {
+                pattern[i] = (byte) (random.nextInt(3) - 1);
+            }
+            BinaryString needle = BinaryString.wrap(pattern);
+            int from = random.nextInt(bytes.length + 2) - 1;
+            for (BinaryString binary : binaries) {
+                assertEquals("The indexOf method is not consistent.", indexOf(bytes, pattern, 0), binary.indexOf(needle));
+                assertEquals("The indexOf method is not consistent.", indexOf(bytes, pattern, from), binary.indexOf(needle, from));
+                assertEquals("The lastIndexOf method is not consistent.", lastIndexOf(bytes, pattern, bytes.length), binary.lastIndexOf(needle));
+                assertEquals("The lastIndexOf method is not consistent.", lastIndexOf(bytes, pattern, from), binary.lastIndexOf(needle, from));
+                assertEquals("The indexOf method is not consistent.", indexOf(bytes, pattern, 0) >= 0, binary.contains(needle));
+                byte[] single = { pattern[0] };
+                assertEquals("The indexOf method is not consistent.", indexOf(bytes, single, from), binary.indexOf(pattern[0], from));
+                assertEquals("The lastIndexOf method is not consistent.", lastIndexOf(bytes, single, from), binary.lastIndexOf(pattern[0], from));
+
+                BinaryString joined = null;
+                for (BinaryString piece : binary.split(needle)) {
+                    joined = joined == null ? piece : joined.concat(needle).concat(piece);
+                }
+                assertEquals("The split method is not consistent.", binary, joined);
+            }
+        }
+
+        BinaryString binary = new BinaryString(new byte[] { 1, 0, 2, 0, 0, 3 });
+        BinaryString zero = new BinaryString(new byte[] { 0 });
+        List<BinaryString> pieces = new ArrayList<>();
+        binary.split(zero).forEach(pieces::add);
+        assertEquals("The split method is not consistent.", Arrays.asList(new BinaryString(new byte[] { 1 }),
+                new BinaryString(new byte[] { 2 }), new BinaryString(), new BinaryString(new byte[] { 3 })), pieces);
+        assertEquals("The indexOf method is not consistent.", 2, binary.indexOf(new BinaryString(), 2));
+        assertEquals("The indexOf method is not consistent.", -1, binary.indexOf((byte) 4));
+        logger.info("Completed testSearching().");
+    }
+
+
+    /**
+     * Test the search methods on a large binary string whose patterns are only found near the
+     * end, after many partial matches, including across the split of a rope.
+     */
+    @Test
+    public void testSearchingLargeStrings() {
+        logger.info("Beginning testSearchingLargeStrings()...");
+        Random random = new Random(59);
+        byte[] bytes = new byte[4 * 1024 * 1024];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) random.nextInt(128);  // the patterns are not found until the end
+        }
+        for (int size : new int[] { 1, 4, 16, 64 }) {
+            byte[] pattern = new byte[size];
+            for (int i = 0; i < size; i++) {
+                pattern[i] = (byte) (128 + random.nextInt(128));
+            }
+            for (int i = 0; i < 1000; i++) {
+                // plant partial matches that differ only in their last byte
+                int position = random.nextInt(bytes.length - 2 * size);
+                System.arraycopy(pattern, 0, bytes, position, size - 1);
+            }
+            System.arraycopy(pattern, 0, bytes, bytes.length - size - 1, size);
+            int split = bytes.length - size - 1 + size / 2;  // the rope splits the last match
+            BinaryString[] binaries = {
+                BinaryString.wrap(bytes),
+                BinaryString.wrap(Arrays.copyOf(bytes, split)).concat(BinaryString.wrap(Arrays.copyOfRange(bytes, split, bytes.length))),
+                BinaryString.wrap(ByteBuffer.allocateDirect(bytes.length).put(bytes).flip())
+            };
+            BinaryString needle = BinaryString.wrap(pattern);
+            int expected = indexOf(bytes, pattern, 0);
+            int last = lastIndexOf(bytes, pattern, bytes.length);
+            assertTrue(expected >= 0);
+            for (BinaryString binary : binaries) {
+                assertEquals("The indexOf method is not consistent.", expected, binary.indexOf(needle));
+                assertEquals("The lastIndexOf method is not consistent.", last, binary.lastIndexOf(needle));
+                assertEquals("The indexOf method is not consistent.", -1, binary.indexOf(needle, last + 1));
+                assertTrue("The contains method is not consistent.", binary.contains(needle));
+            }
+        }
+        logger.info("Completed testSearchingLargeStrings().");
+    }
+
+
+    /**
+     * Test that the hash codes and digests of flat, rope and buffer backed binary strings
+     * match those of their bytes, and that the digests are cached.  The time saved by caching
+     * them is measured by the benchmarks.
+     *
+     * @throws NoSuchAlgorithmException A digest algorithm is not supported.
+     */
+    @Test
+    public void testHashCodeAndDigests() throws NoSuchAlgorithmException {
+        logger.info("Beginning testHashCodeAndDigests()...");
+        Random random = new Random(61);
+        for (int trial = 0; trial < 50; trial++) {
+            byte[] bytes = new byte[random.nextInt(5000)];
+            random.nextBytes(bytes);
+            BinaryString rope = new BinaryString();
+            for (int index = 0; index < bytes.length; ) {
+                int size = Math.min(bytes.length - index, 1 + random.nextInt(1000));
+                rope = rope.concat(BinaryString.wrap(Arrays.copyOfRange(bytes, index, index + size)));
+                index += size;
+            }
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes).flip();
+            byte[] sha256 = MessageDigest.getInstance("SHA-256").digest(bytes);
+            byte[] md5 = MessageDigest.getInstance("MD5").digest(bytes);
+            for (BinaryString binary : new BinaryString[] { BinaryString.wrap(bytes), rope, BinaryString.wrap(direct) }) {
+                assertEquals("The hashCode method is not consistent.", Arrays.hashCode(bytes), binary.hashCode());
+                assertEquals("The hashCode method is not consistent.", Arrays.hashCode(bytes), binary.hashCode());
+                BinaryString digest = binary.digest("SHA-256");
+                assertArrayEquals("The digest method is not consistent.", sha256, digest.toBytes());
+                assertSame("The digest was not cached.", digest, binary.digest("SHA-256"));
+                assertArrayEquals("The digest method is not consistent.", md5, binary.digest("MD5").toBytes());
+                assertSame("The digest was not cached.", digest, binary.digest("SHA-256"));
+                MessageDigest streamed = MessageDigest.getInstance("SHA-256");
+                binary.updateDigest(streamed);
+                assertArrayEquals("The updateDigest method is not consistent.", sha256, streamed.digest());
+            }
+        }
+        try {
+            new BinaryString().digest("NO-SUCH-DIGEST");
+            fail("An unsupported digest algorithm was allowed.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        byte[] bytes = new byte[16 * 1024 * 1024];
+        random.nextBytes(bytes);
+        int half = bytes.length / 2 + 3;
+        BinaryString left = BinaryString.wrap(Arrays.copyOf(bytes, half));
+        BinaryString right = BinaryString.wrap(Arrays.copyOfRange(bytes, half, bytes.length));
+        // the hash code of the rope is combined from the hash codes of its parts
+        assertEquals("The hashCode method is not consistent.", Arrays.hashCode(Arrays.copyOf(bytes, half)), left.hashCode());
+        BinaryString binary = left.concat(right);
+        assertEquals("The hashCode method is not consistent.", Arrays.hashCode(bytes), binary.hashCode());
+        assertEquals("The hashCode method is not consistent.", Arrays.hashCode(bytes), binary.hashCode());
+        assertEquals("The hashCode method is not consistent.", Arrays.hashCode(Arrays.copyOfRange(bytes, half, bytes.length)), right.hashCode());
+        BinaryString digest = binary.digest("SHA-256");
+        assertArrayEquals("The digest method is not consistent.", MessageDigest.getInstance("SHA-256").digest(bytes), digest.toBytes());
+        assertSame("The digest was not cached.", digest, binary.digest("SHA-256"));
+        logger.info("Completed testHashCodeAndDigests().");
+    }
+
+
+    static private int indexOf(byte[] bytes, byte[] pattern, int from) {
+        for (int i = Math.max(from, 0); i <= bytes.length - pattern.length; i++) {
+            if (Arrays.equals(bytes, i, i + pattern.length, pattern, 0, pattern.length)) return i;
+        }
+        return -1;
+    }
+
+
+    static private int lastIndexOf(byte[] bytes, byte[] pattern, int from) {
+        for (int i = Math.min(from, bytes.length - pattern.length); i >= 0; i--) {
+            if (Arrays.equals(bytes, i, i + pattern.length, pattern, 0, pattern.length)) return i;
+        }
+        return -1;
+    }
+
+
+    static private BinaryString padded(BitSet bits, int size) {
+        return BinaryString.wrap(Arrays.copyOf(bits.toByteArray(), size));
+    }
+
 }
@@ -0,0 +1,129 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.lang.ref.Reference;
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.AfterClass;
+import static org.junit.Assert.assertEquals;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs benchmarks on the <code>BitIndex</code> class.  The benchmarks are not
+ * run as part of the unit tests, they are run using the "benchmark" maven profile.
+ *
+ * @author Derk Norton
+ */
+public class BitIndexBenchmark {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(BitIndexBenchmark.class);
+
+
+    /**
+     * Log a message at the beginning of the benchmarks.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running BitIndex Benchmarks...\n");
+    }
+
+
+    /**
+     * Log a message at the end of the benchmarks.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed BitIndex Benchmarks.\n");
+    }
+
+
+    /**
+     * This method measures the heap space used by the index of a 64 MB binary string, which
+     * the class comment says is a little over three percent of the size of the bits.
+     */
+    @Test
+    public void benchmarkHeapUsage() {
+        logger.info("Beginning benchmarkHeapUsage()...");
+        Random random = new Random(53);
+        byte[] bytes = new byte[64 * 1024 * 1024];
+        random.nextBytes(bytes);
+        BinaryString binary = BinaryString.wrap(bytes);
+        for (int round = 0; round < 3; round++) {
+            long before = usedMemory();
+            BitIndex index = new BitIndex(binary);
+            long after = usedMemory();
+            Reference.reachabilityFence(index);
+            logger.info("  The index adds {}% to the size of the bits.",
+                    String.format("%.1f", 100.0 * (after - before) / bytes.length));
+        }
+        logger.info("Completed benchmarkHeapUsage().");
+    }
+
+
+    /**
+     * This method measures the time taken to index a 64 MB binary string, and the time taken
+     * by rank and select queries compared to counting the bits with a bit set.
+     */
+    @Test
+    public void benchmarkRankAndSelect() {
+        logger.info("Beginning benchmarkRankAndSelect()...");
+        Random random = new Random(59);
+        byte[] bytes = new byte[64 * 1024 * 1024];
+        random.nextBytes(bytes);
+        BinaryString binary = BinaryString.wrap(bytes);
+        BitSet bits = BitSet.valueOf(bytes);
+        int queries = 1_000_000;
+        long[] positions = new long[queries];
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            BitIndex index = new BitIndex(binary);
+            long indexing = System.nanoTime() - start;
+            for (int i = 0; i < queries; i++) {
+                positions[i] = (long) (random.nextDouble() * index.getSize());
+            }
+            start = System.nanoTime();
+            long total = 0;
+            for (long position : positions) {
+                total += index.rank(position);
+            }
+            long ranking = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (long position : positions) {
+                total -= index.select(position / 2);
+            }
+            long selecting = System.nanoTime() - start;
+            start = System.nanoTime();
+            long scanned = bits.get(0, (int) positions[0]).cardinality();
+            long scanning = System.nanoTime() - start;
+            assertEquals("The rank method is not consistent.", scanned, index.rank(positions[0]));
+            if (round == 2) {
+                logger.info("  Indexed {} bits in {} ms.", index.getSize(), indexing / 1_000_000);
+                logger.info("  {} ranks {} ms, {} selects {} ms, one bit set count {} us ({}).", queries,
+                        ranking / 1_000_000, queries, selecting / 1_000_000, scanning / 1000, total != 0);
+            }
+        }
+        logger.info("Completed benchmarkRankAndSelect().");
+    }
+
+
+    static private long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,148 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs unit tests on the <code>BitIndex</code> class.
+ *
+ * @author Derk Norton
+ */
+public class BitIndexTest {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(BitIndexTest.class);
+
+
+    /**
+     * Log a message at the beginning of the tests.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running BitIndex Unit Tests...\n");
+    }
+
+
+    /**
+     * Log a message at the end of the tests.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed BitIndex Unit Tests.\n");
+    }
+
+
+    /**
+     * Test the rank and select methods against a bit set for several densities of bits.
+     */
+    @Test
+    public void testRankAndSelect() {
+        logger.info("Beginning testRankAndSelect()...");
+        Random random = new Random(47);
+        for (double density : new double[] { 0.0, 0.001, 0.1, 0.5, 0.99, 1.0 }) {
+            int size = 150_003;  // bytes, so not a whole number of blocks or superblocks
+            BitSet bits = new BitSet(size * 8);
+            for (int i = 0; i < size * 8; i++) {
+                if (random.nextDouble() < density) bits.set(i);
+            }
+            byte[] bytes = Arrays.copyOf(bits.toByteArray(), size);
+            BinaryString binary = BinaryString.wrap(bytes);
+            BitIndex index = binary.getBitIndex();
+            assertSame("The bit index was not cached.", index, binary.getBitIndex());
+            assertEquals("The getSize method is not consistent.", size * 8L, index.getSize());
+            assertEquals("The getBitCount method is not consistent.", bits.cardinality(), index.getBitCount());
+
+            long rank = 0;
+            for (int i = 0; i <= size * 8; i++) {
+                if (i % 7 == 0 || i == size * 8) assertEquals("The rank method is not consistent.", rank, index.rank(i));
+                if (i < size * 8) {
+                    assertEquals("The getBit method is not consistent.", bits.get(i), index.getBit(i));
+                    if (bits.get(i)) {
+                        assertEquals("The select method is not consistent.", i, index.select(rank));
+                        rank++;
+                    }
+                }
+            }
+            assertEquals("The select method is not consistent.", -1, index.select(rank));
+            assertEquals("The select method is not consistent.", -1, index.select(-1));
+
+            // the same bits in a buffer are indexed where they are
+            ByteBuffer direct = ByteBuffer.allocateDirect(size);
+            direct.put(bytes).flip();
+            BitIndex buffered = new BitIndex(BinaryString.wrap(direct));
+            for (int i = 0; i <= size * 8; i += 5) {
+                assertEquals("The rank method is not consistent.", index.rank(i), buffered.rank(i));
+            }
+            for (long k = 0; k < index.getBitCount(); k += 3) {
+                assertEquals("The select method is not consistent.", index.select(k), buffered.select(k));
+            }
+        }
+
+        BinaryString rope = BinaryString.wrap(new byte[] { 1, 2, 3 }).concat(BinaryString.wrap(new byte[100]))
+                .concat(BinaryString.wrap(new byte[] { (byte) 0x80 }));
+        BitIndex index = rope.getBitIndex();
+        assertEquals("The rank method is not consistent.", 5, index.rank(index.getSize()));
+        assertEquals("The select method is not consistent.", 104 * 8 - 1, index.select(4));
+        try {
+            index.rank(index.getSize() + 1);
+            fail("An invalid position was ranked.");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        logger.info("Completed testRankAndSelect().");
+    }
+
+
+    /**
+     * This method verifies rank and select across many superblocks against a bit set.  The
+     * space used by the index is measured by the benchmarks.
+     */
+    @Test
+    public void testLargeIndex() {
+        logger.info("Beginning testLargeIndex()...");
+        Random random = new Random(53);
+        byte[] bytes = new byte[8 * 1024 * 1024];
+        random.nextBytes(bytes);
+        BitSet bits = BitSet.valueOf(bytes);
+        BitIndex index = new BitIndex(BinaryString.wrap(bytes));
+        assertEquals("The getBitCount method is not consistent.", bits.cardinality(), index.getBitCount());
+
+        long[] positions = new long[10_000];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = 1 + (long) (random.nextDouble() * (index.getSize() - 1));
+        }
+        Arrays.sort(positions);
+        long rank = 0;
+        int previous = 0;
+        for (long position : positions) {
+            rank += bits.get(previous, (int) position).cardinality();
+            previous = (int) position;
+            assertEquals("The rank method is not consistent.", rank, index.rank(position));
+            assertEquals("The select method is not consistent.", bits.previousSetBit(previous - 1), index.select(rank - 1));
+            int next = bits.nextSetBit(previous);
+            if (next >= 0) assertEquals("The select method is not consistent.", next, index.select(rank));
+        }
+
+        assertEquals("The select method is not consistent.", bits.length() - 1, index.select(index.getBitCount() - 1));
+        assertEquals("The rank method is not consistent.", index.getBitCount(), index.rank(index.getSize()));
+        logger.info("Completed testLargeIndex().");
+    }
+
+}
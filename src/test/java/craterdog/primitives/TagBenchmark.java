@@ -0,0 +1,125 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.lang.ref.Reference;
+import java.util.Arrays;
+import java.util.Comparator;
+import org.junit.AfterClass;
+import static org.junit.Assert.assertArrayEquals;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs benchmarks on the <code>Tag</code> class.  The benchmarks are not run
+ * as part of the unit tests, they are run using the "benchmark" maven profile.
+ *
+ * @author Derk Norton
+ */
+public class TagBenchmark {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(TagBenchmark.class);
+
+
+    /**
+     * Log a message at the beginning of the benchmarks.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running Tag Benchmarks...\n");
+    }
+
+    /**
+     * Log a message at the end of the benchmarks.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed Tag Benchmarks.\n");
+    }
+
+    /**
+     * This method measures the heap space used by each default sized tag, before and after
+     * its string has been generated.  The strings on their own are what each tag held before
+     * the tags were packed.
+     */
+    @Test
+    public void benchmarkHeapUsage() {
+        logger.info("Beginning benchmarkHeapUsage()...");
+
+        int count = 1_000_000;
+        for (int round = 0; round < 3; round++) {
+            long before = usedMemory();
+            Tag[] tags = new Tag[count];
+            for (int i = 0; i < count; i++) {
+                tags[i] = new Tag();
+            }
+            long packed = usedMemory();
+            String[] strings = new String[count];
+            for (int i = 0; i < count; i++) {
+                strings[i] = tags[i].toString();
+            }
+            long encoded = usedMemory();
+            Reference.reachabilityFence(tags);
+            tags = null;
+            long unpacked = usedMemory();
+            Reference.reachabilityFence(strings);
+            logger.info("  Packed tag: ~{} bytes, string: ~{} bytes, packed tag plus string: ~{} bytes per instance.",
+                    (packed - before) / count, (unpacked - before) / count, (encoded - before) / count);
+        }
+
+        logger.info("Completed benchmarkHeapUsage().");
+    }
+
+
+    /**
+     * This method compares the time it takes to sort tags using their bytes with the time it
+     * takes to sort them using their strings, which is how tags were compared before.  The
+     * strings are generated beforehand since the tags used to hold them.
+     */
+    @Test
+    public void benchmarkSorting() {
+        logger.info("Beginning benchmarkSorting()...");
+
+        int count = 1_000_000;
+        Tag[] tags = new Tag[count];
+        for (int i = 0; i < count; i++) {
+            tags[i] = new Tag();
+            tags[i].toString();
+        }
+        Comparator<Tag> byStrings = (tag1, tag2) -> Integer.signum(tag1.toString().compareTo(tag2.toString()));
+        for (int round = 0; round < 5; round++) {
+            Tag[] copy = Arrays.copyOf(tags, count);
+            long start = System.nanoTime();
+            Arrays.sort(copy, byStrings);
+            long strings = System.nanoTime() - start;
+            Tag[] sorted = Arrays.copyOf(tags, count);
+            start = System.nanoTime();
+            Arrays.sort(sorted);
+            long bytes = System.nanoTime() - start;
+            assertArrayEquals(copy, sorted);
+            logger.info("  Sorting {} tags: strings {} ms, bytes {} ms.", count, strings / 1_000_000, bytes / 1_000_000);
+        }
+
+        logger.info("Completed benchmarkSorting().");
+    }
+
+
+    static private long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
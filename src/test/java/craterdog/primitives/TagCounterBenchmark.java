@@ -0,0 +1,153 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs benchmarks on the <code>TagCounter</code> class.  The benchmarks are
+ * not run as part of the unit tests, they are run using the "benchmark" maven profile.
+ *
+ * @author Derk Norton
+ */
+public class TagCounterBenchmark {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(TagCounterBenchmark.class);
+
+
+    /**
+     * Log a message at the beginning of the benchmarks.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running TagCounter Benchmarks...\n");
+    }
+
+    /**
+     * Log a message at the end of the benchmarks.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed TagCounter Benchmarks.\n");
+    }
+
+    /**
+     * This method compares the time taken to count distinct tags using a counter with the
+     * time taken to count them exactly using a hash set and a tag set.
+     */
+    @Test
+    public void benchmarkCounting() {
+        logger.info("Beginning benchmarkCounting()...");
+
+        Tag[] tags = generateTags(10_000_000);
+        for (int count = 100_000; count <= tags.length; count *= 10) {
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                TagCounter counter = new TagCounter();
+                for (int i = 0; i < count; i++) {
+                    counter.add(tags[i]);
+                }
+                long estimate = counter.getEstimate();
+                long sketch = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                Set<Tag> hashSet = new HashSet<>();
+                for (int i = 0; i < count; i++) {
+                    hashSet.add(tags[i]);
+                }
+                long hashed = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                TagSet tagSet = new TagSet();
+                for (int i = 0; i < count; i++) {
+                    tagSet.add(tags[i]);
+                }
+                long inline = System.nanoTime() - start;
+
+                if (round == 2) {
+                    logger.info("  {} tags: counter {} ms (estimate {}, {} bytes), HashSet {} ms, TagSet {} ms.",
+                            count, sketch / 1_000_000, estimate, counter.getSerializedSize(),
+                            hashed / 1_000_000, inline / 1_000_000);
+                }
+            }
+        }
+
+        logger.info("Completed benchmarkCounting().");
+    }
+
+    /**
+     * This method compares the throughput of threads adding tags to a shared counter with
+     * that of threads adding them to a shared concurrent set.
+     */
+    @Test
+    public void benchmarkConcurrentCounting() throws InterruptedException {
+        logger.info("Beginning benchmarkConcurrentCounting()...");
+
+        Tag[] tags = generateTags(4_000_000);
+        for (int threads = 1; threads <= 16; threads *= 2) {
+            for (int round = 0; round < 3; round++) {
+                TagCounter counter = new TagCounter();
+                double counterRate = measure(threads, tags, tag -> counter.add(tag));
+                Set<Tag> set = ConcurrentHashMap.newKeySet();
+                double setRate = measure(threads, tags, tag -> set.add(tag));
+                if (round == 2) {
+                    logger.info("  {} threads: counter {} tags/sec, concurrent set {} tags/sec.",
+                            threads, (long) counterRate, (long) setRate);
+                }
+            }
+        }
+
+        logger.info("Completed benchmarkConcurrentCounting().");
+    }
+
+
+    static private Tag[] generateTags(int count) {
+        TagGenerator generator = new TagGenerator();
+        Tag[] tags = new Tag[count];
+        for (int i = 0; i < count; i++) {
+            tags[i] = generator.generateTag();
+        }
+        return tags;
+    }
+
+
+    static private double measure(int numberOfThreads, Tag[] tags, Consumer<Tag> task)
+            throws InterruptedException {
+        Thread[] threads = new Thread[numberOfThreads];
+        int share = tags.length / numberOfThreads;
+        for (int i = 0; i < numberOfThreads; i++) {
+            int first = i * share;
+            threads[i] = new Thread(() -> {
+                for (int j = first; j < first + share; j++) {
+                    task.accept(tags[j]);
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        return numberOfThreads * (double) share * 1_000_000_000d / elapsed;
+    }
+
+}
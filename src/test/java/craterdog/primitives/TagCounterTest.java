@@ -0,0 +1,150 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.nio.ByteBuffer;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs unit tests on the <code>TagCounter</code> class.
+ *
+ * @author Derk Norton
+ */
+public class TagCounterTest {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(TagCounterTest.class);
+
+
+    /**
+     * Log a message at the beginning of the tests.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running TagCounter Unit Tests...\n");
+    }
+
+    /**
+     * Log a message at the end of the tests.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed TagCounter Unit Tests.\n");
+    }
+
+    /**
+     * This method compares the estimates of the counter with exact counting.
+     */
+    @Test
+    public void testAccuracy() {
+        logger.info("Beginning testAccuracy()...");
+
+        TagGenerator generator = new TagGenerator();
+        for (int count : new int[] { 0, 10, 1000, 100_000, 1_000_000 }) {
+            Tag[] tags = new Tag[count];
+            for (int i = 0; i < count; i++) {
+                tags[i] = i % 2 == 0 ? generator.generateTag() : generator.generateOrderedTag();
+            }
+            TagCounter counter = new TagCounter();
+            for (int i = 0; i < count; i++) {
+                counter.add(tags[i]);
+                if (i % 4 == 0) counter.add(tags[i]);  // some duplicates
+            }
+            long estimate = counter.getEstimate();
+            // ordered tags share the hash codes of their leading bytes so a tag set is used
+            TagSet exact = new TagSet(20, count);
+            for (int i = 0; i < count; i++) {
+                exact.add(tags[i]);
+                if (i % 4 == 0) exact.add(tags[i]);
+            }
+            double error = count == 0 ? 0.0d : Math.abs(estimate - exact.size()) / (double) exact.size();
+            logger.info("  {} tags: estimate {} (error {}%).", exact.size(), estimate, Math.round(error * 10000) / 100.0d);
+            assertTrue("The estimate is not accurate enough: " + estimate, error < 0.03d);
+        }
+
+        logger.info("Completed testAccuracy().");
+    }
+
+    /**
+     * This method tests adding tags from multiple threads at once.
+     */
+    @Test
+    public void testConcurrentAdds() throws InterruptedException {
+        logger.info("Beginning testConcurrentAdds()...");
+
+        TagCounter counter = new TagCounter();
+        TagCounter expected = new TagCounter();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            Tag[] tags = new Tag[10_000];
+            for (int j = 0; j < tags.length; j++) {
+                tags[j] = new Tag();
+                expected.add(tags[j]);
+            }
+            threads[i] = new Thread(() -> {
+                for (Tag tag : tags) {
+                    counter.add(tag);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(expected.getEstimate(), counter.getEstimate());
+
+        logger.info("Completed testConcurrentAdds().");
+    }
+
+    /**
+     * This method tests merging and serializing counters.
+     */
+    @Test
+    public void testMergeAndSerialize() {
+        logger.info("Beginning testMergeAndSerialize()...");
+
+        TagCounter counter1 = new TagCounter(10);
+        TagCounter counter2 = new TagCounter(10);
+        TagCounter both = new TagCounter(10);
+        for (int i = 0; i < 5000; i++) {
+            Tag tag = new Tag();
+            (i % 3 == 0 ? counter1 : counter2).add(tag);
+            if (i % 5 == 0) counter1.add(tag);
+            both.add(tag);
+        }
+        TagCounter union = TagCounter.union(counter1, counter2);
+        assertEquals(both.getEstimate(), union.getEstimate());
+        counter1.merge(counter2);
+        assertEquals(both.getEstimate(), counter1.getEstimate());
+
+        ByteBuffer buffer = ByteBuffer.allocate(union.getSerializedSize());
+        union.writeTo(buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+        TagCounter copy = TagCounter.readFrom(buffer);
+        assertEquals(10, copy.getPrecision());
+        assertEquals(union.getEstimate(), copy.getEstimate());
+        logger.info("  A precision 10 counter serializes into {} bytes.", union.getSerializedSize());
+        try {
+            counter1.merge(new TagCounter());
+            fail("Incompatible counters were merged.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        logger.info("Completed testMergeAndSerialize().");
+    }
+
+}
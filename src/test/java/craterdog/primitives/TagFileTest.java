@@ -0,0 +1,226 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs unit tests on the <code>TagFile</code> and <code>TagFileWriter</code>
+ * classes.
+ *
+ * @author Derk Norton
+ */
+public class TagFileTest {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(TagFileTest.class);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    /**
+     * Log a message at the beginning of the tests.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running TagFile Unit Tests...\n");
+    }
+
+    /**
+     * Log a message at the end of the tests.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed TagFile Unit Tests.\n");
+    }
+
+    /**
+     * This method writes tag files using several runs and checks their contents.
+     */
+    @Test
+    public void testWriteAndRead() throws IOException {
+        logger.info("Beginning testWriteAndRead()...");
+
+        for (int tagSize : new int[] { 3, 20, 33 }) {
+            Path path = folder.getRoot().toPath().resolve("tags-" + tagSize);
+            NavigableSet<Tag> expected = new TreeSet<>();
+            List<Tag> written = new ArrayList<>();
+            try (TagFileWriter writer = new TagFileWriter(path, tagSize, 1000)) {
+                for (int i = 0; i < 5500; i++) {
+                    Tag tag = new Tag(tagSize);
+                    writer.write(tag);
+                    if (i % 10 == 0) writer.write(new Tag(tag.toBytes()));  // a duplicate
+                    expected.add(tag);
+                    written.add(tag);
+                }
+            }
+            try (var files = Files.list(folder.getRoot().toPath())) {
+                assertEquals("The temporary run files were not deleted.", 0, files.filter(file -> file.toString().endsWith(".run")).count());
+            }
+            try (TagFile tags = new TagFile(path)) {
+                assertEquals(tagSize, tags.getTagSize());
+                assertEquals(expected.size(), tags.getSize());
+                for (Tag tag : written) {
+                    assertTrue(tags.contains(tag));
+                }
+                for (int i = 0; i < 1000; i++) {
+                    Tag tag = new Tag(tagSize);
+                    assertEquals(expected.contains(tag), tags.contains(tag));
+                }
+                long position = 0;
+                for (Tag tag : expected) {
+                    assertEquals(tag, tags.getTag(position));
+                    assertEquals(position, tags.indexOf(tag));
+                    position++;
+                }
+                Tag first = written.get(10);
+                Tag last = written.get(20);
+                if (first.compareTo(last) > 0) {
+                    Tag swap = first;
+                    first = last;
+                    last = swap;
+                }
+                Iterator<Tag> scan = tags.scan(first, last);
+                for (Tag tag : expected.subSet(first, true, last, false)) {
+                    assertEquals(tag, scan.next());
+                }
+                assertFalse(scan.hasNext());
+                assertEquals(expected.size(), count(tags.scan(null, null)));
+                assertEquals(expected.headSet(last).size(), count(tags.scan(null, last)));
+            }
+        }
+
+        logger.info("Completed testWriteAndRead().");
+    }
+
+    /**
+     * This method tests an empty tag file.
+     */
+    @Test
+    public void testEmptyFile() throws IOException {
+        logger.info("Beginning testEmptyFile()...");
+
+        Path path = folder.getRoot().toPath().resolve("empty");
+        new TagFileWriter(path).close();
+        try (TagFile tags = new TagFile(path)) {
+            assertEquals(0, tags.getSize());
+            assertFalse(tags.contains(new Tag()));
+            assertFalse(tags.scan(null, null).hasNext());
+        }
+
+        logger.info("Completed testEmptyFile().");
+    }
+
+    /**
+     * This method verifies that a large file spilled across several sorted runs, including
+     * duplicates that span runs, is merged into a single sorted file and that the runs are
+     * removed afterwards.
+     */
+    @Test
+    public void testLargeFile() throws IOException {
+        logger.info("Beginning testLargeFile()...");
+
+        int count = 300_000;
+        Path path = folder.getRoot().toPath().resolve("large");
+        TagGenerator generator = new TagGenerator();
+        Tag[] samples = new Tag[count / 100];
+        try (TagFileWriter writer = new TagFileWriter(path, 20, 40_000)) {
+            for (int i = 0; i < count; i++) {
+                Tag tag = generator.generateTag();
+                if (i % 100 == 0) samples[i / 100] = tag;
+                writer.write(tag);
+            }
+            for (Tag tag : samples) {
+                writer.write(new Tag(tag.toString()));  // duplicates in a later run
+            }
+        }
+        try (var files = Files.list(folder.getRoot().toPath())) {
+            assertEquals(1, files.count());
+        }
+        try (TagFile tags = new TagFile(path)) {
+            assertEquals(count, tags.getSize());
+            for (Tag tag : samples) {
+                long position = tags.indexOf(tag);
+                assertTrue(position >= 0);
+                assertEquals(tag, tags.getTag(position));
+            }
+            Iterator<Tag> iterator = tags.scan(null, null);
+            Tag previous = iterator.next();
+            while (iterator.hasNext()) {
+                Tag tag = iterator.next();
+                assertTrue(previous.compareTo(tag) < 0);
+                previous = tag;
+            }
+        }
+
+        logger.info("Completed testLargeFile().");
+    }
+
+    /**
+     * This method verifies that more runs than can be merged at once are merged in several
+     * passes, and that an existing tag file is replaced without leaving temporary files.
+     */
+    @Test
+    public void testManyRuns() throws IOException {
+        logger.info("Beginning testManyRuns()...");
+
+        Path path = folder.getRoot().toPath().resolve("runs");
+        new TagFileWriter(path).close();
+        NavigableSet<Tag> expected = new TreeSet<>();
+        try (TagFileWriter writer = new TagFileWriter(path, 20, 100)) {
+            for (int i = 0; i < 20_000; i++) {
+                Tag tag = new Tag();
+                expected.add(tag);
+                writer.write(tag);
+                if (i % 7 == 0) writer.write(expected.first());  // duplicates in many runs
+            }
+        }
+        try (var files = Files.list(folder.getRoot().toPath())) {
+            assertEquals(1, files.count());
+        }
+        try (TagFile tags = new TagFile(path)) {
+            assertEquals(expected.size(), tags.getSize());
+            Iterator<Tag> iterator = tags.scan(null, null);
+            for (Tag tag : expected) {
+                assertEquals(tag, iterator.next());
+            }
+            assertFalse(iterator.hasNext());
+        }
+
+        logger.info("Completed testManyRuns().");
+    }
+
+
+    static private long count(Iterator<Tag> iterator) {
+        long count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,164 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.nio.ByteBuffer;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs unit tests on the <code>TagFilter</code> class.
+ *
+ * @author Derk Norton
+ */
+public class TagFilterTest {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(TagFilterTest.class);
+
+
+    /**
+     * Log a message at the beginning of the tests.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running TagFilter Unit Tests...\n");
+    }
+
+    /**
+     * Log a message at the end of the tests.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed TagFilter Unit Tests.\n");
+    }
+
+    /**
+     * This method tests that the false positive rate is close to the requested rate for both
+     * random and ordered tags.
+     */
+    @Test
+    public void testFalsePositiveRate() {
+        logger.info("Beginning testFalsePositiveRate()...");
+
+        TagGenerator generator = new TagGenerator();
+        for (boolean ordered : new boolean[] { false, true }) {
+            for (double probability : new double[] { 0.1d, 0.01d, 0.001d }) {
+                int count = 100_000;
+                TagFilter filter = new TagFilter(count, probability);
+                Tag[] tags = new Tag[count];
+                for (int i = 0; i < count; i++) {
+                    tags[i] = ordered ? generator.generateOrderedTag() : generator.generateTag();
+                    filter.add(tags[i]);
+                }
+                for (Tag tag : tags) {
+                    assertTrue("A tag that was added is missing.", filter.mightContain(tag));
+                }
+                int falsePositives = 0;
+                for (int i = 0; i < count; i++) {
+                    Tag tag = ordered ? generator.generateOrderedTag() : generator.generateTag();
+                    if (filter.mightContain(tag)) falsePositives++;
+                }
+                double rate = (double) falsePositives / count;
+                logger.info("  {} tags, requested {}, measured {}, estimated {} ({} bits, {} hashes).",
+                        ordered ? "Ordered" : "Random", probability, rate, filter.getFalsePositiveProbability(),
+                        filter.getNumberOfBits(), filter.getNumberOfHashes());
+                assertTrue("The false positive rate is too high: " + rate, rate < probability * 1.5d);
+            }
+        }
+        for (int size : new int[] { 0, 1, 5, 10 }) {
+            TagFilter filter = new TagFilter(10, 0.01d);
+            Tag tag = new Tag(size);
+            filter.add(tag);
+            assertTrue(filter.mightContain(tag));
+        }
+
+        logger.info("Completed testFalsePositiveRate().");
+    }
+
+    /**
+     * This method tests adding tags from multiple threads at once.
+     */
+    @Test
+    public void testConcurrentAdds() throws InterruptedException {
+        logger.info("Beginning testConcurrentAdds()...");
+
+        TagFilter filter = new TagFilter(80_000, 0.01d);
+        Tag[][] tags = new Tag[8][10_000];
+        Thread[] threads = new Thread[tags.length];
+        for (int i = 0; i < threads.length; i++) {
+            Tag[] batch = tags[i];
+            for (int j = 0; j < batch.length; j++) {
+                batch[j] = new Tag();
+            }
+            threads[i] = new Thread(() -> {
+                for (Tag tag : batch) {
+                    filter.add(tag);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Tag[] batch : tags) {
+            for (Tag tag : batch) {
+                assertTrue("A tag that was added is missing.", filter.mightContain(tag));
+            }
+        }
+
+        logger.info("Completed testConcurrentAdds().");
+    }
+
+    /**
+     * This method tests merging and serializing filters.
+     */
+    @Test
+    public void testMergeAndSerialize() {
+        logger.info("Beginning testMergeAndSerialize()...");
+
+        TagFilter filter1 = new TagFilter(1000, 0.01d);
+        TagFilter filter2 = new TagFilter(1000, 0.01d);
+        Tag[] tags = new Tag[1000];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = new Tag();
+            (i % 2 == 0 ? filter1 : filter2).add(tags[i]);
+        }
+        TagFilter union = TagFilter.union(filter1, filter2);
+        filter1.merge(filter2);
+        ByteBuffer buffer = ByteBuffer.allocate(union.getSerializedSize() + 1);
+        buffer.put((byte) 7);
+        union.writeTo(buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.position(1);
+        TagFilter copy = TagFilter.readFrom(buffer);
+        assertFalse(buffer.hasRemaining());
+        assertEquals(union.getNumberOfBits(), copy.getNumberOfBits());
+        assertEquals(union.getNumberOfHashes(), copy.getNumberOfHashes());
+        for (Tag tag : tags) {
+            assertTrue(union.mightContain(tag));
+            assertTrue(filter1.mightContain(tag));
+            assertTrue(copy.mightContain(tag));
+        }
+        try {
+            filter1.merge(new TagFilter(10, 0.01d));
+            fail("Incompatible filters were merged.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        logger.info("Completed testMergeAndSerialize().");
+    }
+
+}
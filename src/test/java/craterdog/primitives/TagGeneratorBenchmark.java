@@ -0,0 +1,90 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs benchmarks on the <code>TagGenerator</code> class.  The benchmarks are
+ * not run as part of the unit tests, they are run using the "benchmark" maven profile.
+ *
+ * @author Derk Norton
+ */
+public class TagGeneratorBenchmark {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(TagGeneratorBenchmark.class);
+
+
+    /**
+     * Log a message at the beginning of the benchmarks.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running TagGenerator Benchmarks...\n");
+    }
+
+    /**
+     * Log a message at the end of the benchmarks.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed TagGenerator Benchmarks.\n");
+    }
+
+    /**
+     * This method compares the throughput of the generator with that of the tag constructor
+     * for increasing numbers of threads that share the same total number of tags.
+     */
+    @Test
+    public void benchmarkThroughput() throws InterruptedException {
+        logger.info("Beginning benchmarkThroughput()...");
+
+        TagGenerator generator = new TagGenerator();
+        int count = 2_000_000;
+        measure(4, count, () -> new Tag());  // warm up both paths
+        measure(4, count, () -> generator.generateTag());
+        for (int threads = 1; threads <= 256; threads *= 2) {
+            double constructorRate = measure(threads, count, () -> new Tag());
+            double generatorRate = measure(threads, count, () -> generator.generateTag());
+            logger.info("  {} threads: new Tag() {} tags/sec, generateTag() {} tags/sec.",
+                    threads, (long) constructorRate, (long) generatorRate);
+        }
+
+        logger.info("Completed benchmarkThroughput().");
+    }
+
+
+    static private double measure(int numberOfThreads, int count, Runnable task) throws InterruptedException {
+        Thread[] threads = new Thread[numberOfThreads];
+        int share = count / numberOfThreads;
+        for (int i = 0; i < numberOfThreads; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < share; j++) {
+                    task.run();
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        return numberOfThreads * (double) share * 1_000_000_000d / elapsed;
+    }
+
+}
@@ -0,0 +1,195 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import craterdog.utils.ByteUtils;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.junit.AfterClass;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs unit tests on the <code>TagGenerator</code> class.
+ *
+ * @author Derk Norton
+ */
+public class TagGeneratorTest {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(TagGeneratorTest.class);
+
+
+    /**
+     * Log a message at the beginning of the tests.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running TagGenerator Unit Tests...\n");
+    }
+
+    /**
+     * Log a message at the end of the tests.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed TagGenerator Unit Tests.\n");
+    }
+
+    /**
+     * This method tests the sizes and uniqueness of generated tags.
+     */
+    @Test
+    public void testGenerateTag() {
+        logger.info("Beginning testGenerateTag()...");
+
+        TagGenerator generator = new TagGenerator(2);
+        for (int i = 0; i <= 32; i++) {
+            Tag tag = generator.generateTag(i);
+            assertEquals(i, tag.getSize());
+            assertEquals(tag, new Tag(tag.toString()));
+        }
+        assertEquals(5000, generator.generateTag(5000).getSize());
+        Set<Tag> tags = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue("A duplicate tag was generated.", tags.add(generator.generateTag()));
+        }
+
+        logger.info("Completed testGenerateTag().");
+    }
+
+    /**
+     * This method tests the generation of tags from many threads at once.
+     */
+    @Test
+    public void testConcurrentGeneration() throws InterruptedException {
+        logger.info("Beginning testConcurrentGeneration()...");
+
+        TagGenerator generator = TagGenerator.getDefaultGenerator();
+        Set<Tag> tags = ConcurrentHashMap.newKeySet();
+        Thread[] threads = new Thread[16];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 5_000; j++) {
+                    tags.add(generator.generateTag());
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals("Duplicate tags were generated.", threads.length * 5_000, tags.size());
+
+        logger.info("Completed testConcurrentGeneration().");
+    }
+
+    /**
+     * This method tests that ordered tags sort in the order that they were generated.
+     */
+    @Test
+    public void testOrderedTags() {
+        logger.info("Beginning testOrderedTags()...");
+
+        TagGenerator generator = new TagGenerator(4);
+        Tag previous = generator.generateOrderedTag();
+        for (int i = 0; i < 100_000; i++) {
+            Tag next = generator.generateOrderedTag(20 + i % 20);
+            assertTrue("The ordered tags are out of order.", previous.compareTo(next) < 0);
+            assertEquals(Tag.stringSize(20 + i % 20), next.toString().length());
+            previous = next;
+        }
+        Tag first = generator.generateOrderedTag(5000);
+        Tag second = generator.generateOrderedTag();
+        assertTrue("The ordered tags are out of order.", first.compareTo(second) < 0);
+        assertTrue("The ordered tags are out of order.", first.toString().compareTo(second.toString()) < 0);
+        Tag tag = generator.generateOrderedTag();
+        assertEquals("The hashCode method is not consistent.", ByteUtils.bytesToInt(tag.toBytes()), tag.hashCode());
+        try {
+            generator.generateOrderedTag(19);
+            fail("An ordered tag without twelve random bytes was generated.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        logger.info("Completed testOrderedTags().");
+    }
+
+    /**
+     * This method tests the generation of ordered tags from many threads at once.
+     */
+    @Test
+    public void testConcurrentOrderedTags() throws InterruptedException {
+        logger.info("Beginning testConcurrentOrderedTags()...");
+
+        TagGenerator generator = new TagGenerator();
+        Queue<Tag> tags = new ConcurrentLinkedQueue<>();
+        List<Thread> threads = new ArrayList<>();
+        List<AssertionError> errors = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                Tag previous = null;
+                for (int j = 0; j < 10_000; j++) {
+                    Tag next = generator.generateOrderedTag();
+                    if (previous != null && previous.compareTo(next) >= 0) {
+                        errors.add(new AssertionError("The ordered tags are out of order."));
+                    }
+                    tags.add(next);
+                    previous = next;
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(errors.isEmpty());
+        // ordered tags share the hash codes of their leading bytes so a tag set is used
+        TagSet distinct = new TagSet(20, tags.size());
+        distinct.addAll(tags);
+        assertEquals("Duplicate tags were generated.", 80_000, distinct.size());
+
+        logger.info("Completed testConcurrentOrderedTags().");
+    }
+
+    /**
+     * This method tests that tags of mixed sizes stay distinct and correctly sized across the
+     * refills of a single stripe's block of random bytes.
+     */
+    @Test
+    public void testBlockRefills() {
+        logger.info("Beginning testBlockRefills()...");
+
+        TagGenerator generator = new TagGenerator(1);
+        Set<Tag> tags = new HashSet<>();
+        int[] sizes = { 20, 7, 33, 20, 5000 };
+        for (int i = 0; i < 10_000; i++) {
+            int size = sizes[i % sizes.length];
+            Tag tag = generator.generateTag(size);
+            assertEquals(size, tag.getSize());
+            assertTrue("A duplicate tag was generated.", tags.add(tag));
+        }
+
+        logger.info("Completed testBlockRefills().");
+    }
+
+}
@@ -0,0 +1,134 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.lang.ref.Reference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import org.junit.AfterClass;
+import static org.junit.Assert.assertEquals;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs benchmarks on the <code>TagMap</code> class.  The benchmarks are not
+ * run as part of the unit tests, they are run using the "benchmark" maven profile.  The maps
+ * grow from 1M entries up to the number given by the "benchmark.maxEntries" system property,
+ * which defaults to 10M.
+ *
+ * @author Derk Norton
+ */
+public class TagMapBenchmark {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(TagMapBenchmark.class);
+
+    static private final Object VALUE = new Object();  // shared so only the maps are measured
+
+
+    /**
+     * Log a message at the beginning of the benchmarks.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running TagMap Benchmarks...\n");
+    }
+
+    /**
+     * Log a message at the end of the benchmarks.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed TagMap Benchmarks.\n");
+    }
+
+    /**
+     * This method compares the memory usage and speed of a tag map with those of a hash map.
+     * The memory used by the hash map includes the keys it holds, since a tag map does not
+     * need them.  The lookups use keys that are equal to but not the same objects as the keys
+     * that were put into the maps.
+     */
+    @Test
+    public void benchmarkMaps() {
+        logger.info("Beginning benchmarkMaps()...");
+
+        int maximum = Integer.getInteger("benchmark.maxEntries", 10_000_000);
+        for (int count = 1_000_000; count <= maximum; count *= 10) {
+            long before = usedMemory();
+            long start = System.nanoTime();
+            Map<Tag, Object> hashMap = new HashMap<>();
+            putKeys(hashMap, count);
+            long hashMapInsert = System.nanoTime() - start;
+            long hashMapMemory = usedMemory() - before;
+            start = System.nanoTime();
+            assertEquals(count, countKeys(hashMap, count));
+            long hashMapLookup = System.nanoTime() - start;
+            Reference.reachabilityFence(hashMap);
+            hashMap = null;
+
+            before = usedMemory();
+            start = System.nanoTime();
+            TagMap<Object> tagMap = new TagMap<>();
+            putKeys(tagMap, count);
+            long tagMapInsert = System.nanoTime() - start;
+            long tagMapMemory = usedMemory() - before;
+            start = System.nanoTime();
+            assertEquals(count, countKeys(tagMap, count));
+            long tagMapLookup = System.nanoTime() - start;
+            Reference.reachabilityFence(tagMap);
+            tagMap = null;
+
+            logger.info("  {} entries: HashMap {} bytes/entry, insert {} ms, lookup {} ms; TagMap {} bytes/entry, insert {} ms, lookup {} ms.",
+                    count, hashMapMemory / count, hashMapInsert / 1_000_000, hashMapLookup / 1_000_000,
+                    tagMapMemory / count, tagMapInsert / 1_000_000, tagMapLookup / 1_000_000);
+        }
+
+        logger.info("Completed benchmarkMaps().");
+    }
+
+
+    /*
+     * The keys are generated from a seeded random number generator so that the same keys can
+     * be generated again for the lookups without holding on to them.
+     */
+    static private void putKeys(Map<Tag, Object> map, int count) {
+        SplittableRandom random = new SplittableRandom(count);
+        byte[] bytes = new byte[20];
+        for (int i = 0; i < count; i++) {
+            random.nextBytes(bytes);
+            map.put(new Tag(bytes), VALUE);
+        }
+    }
+
+
+    static private int countKeys(Map<Tag, Object> map, int count) {
+        SplittableRandom random = new SplittableRandom(count);
+        byte[] bytes = new byte[20];
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            random.nextBytes(bytes);
+            if (map.get(new Tag(bytes)) == VALUE) found++;
+        }
+        return found;
+    }
+
+
+    static private long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
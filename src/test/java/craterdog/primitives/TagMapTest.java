@@ -0,0 +1,211 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import craterdog.utils.RandomUtils;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs unit tests on the <code>TagMap</code> class.
+ *
+ * @author Derk Norton
+ */
+public class TagMapTest {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(TagMapTest.class);
+
+
+    /**
+     * Log a message at the beginning of the tests.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running TagMap Unit Tests...\n");
+    }
+
+    /**
+     * Log a message at the end of the tests.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed TagMap Unit Tests.\n");
+    }
+
+    /**
+     * This method compares the behavior of a tag map with that of a hash map for a random
+     * sequence of operations on a small tag size with lots of collisions.
+     */
+    @Test
+    public void testAgainstHashMap() {
+        logger.info("Beginning testAgainstHashMap()...");
+
+        for (int tagSize : new int[] { 2, 20 }) {
+            TagMap<Integer> map = new TagMap<>(tagSize);
+            Map<Tag, Integer> expected = new HashMap<>();
+            for (int i = 0; i < 20_000; i++) {
+                Tag key = new Tag(tagSize);
+                switch (RandomUtils.pickRandomIndex(3)) {
+                    case 0:
+                        assertEquals(expected.put(key, i), map.put(key, i));
+                        break;
+                    case 1:
+                        assertEquals(expected.remove(key), map.remove(key));
+                        break;
+                    default:
+                        assertEquals(expected.get(key), map.get(key));
+                        assertEquals(expected.containsKey(key), map.containsKey(key));
+                }
+            }
+            assertEquals(expected, map);
+            assertEquals(map, expected);
+            for (Map.Entry<Tag, Integer> entry : map.entrySet()) {
+                entry.setValue(-entry.getValue());
+            }
+            for (Map.Entry<Tag, Integer> entry : expected.entrySet()) {
+                assertEquals(-entry.getValue(), (int) map.get(entry.getKey()));
+            }
+        }
+        TagMap<String> map = new TagMap<>();
+        Tag key = new Tag();
+        assertNull(map.put(key, null));
+        assertTrue(map.containsKey(key));
+        assertNull(map.put(key, "value"));
+        assertEquals("value", map.put(key, "other"));
+        assertEquals("other", map.remove(key));
+        assertTrue(map.isEmpty());
+
+        logger.info("Completed testAgainstHashMap().");
+    }
+
+    /**
+     * This method tests removing entries through the views of the map, and setting the
+     * values of entries after the map has been changed.
+     */
+    @Test
+    public void testViews() {
+        logger.info("Beginning testViews()...");
+
+        for (int tagSize : new int[] { 1, 2, 20 }) {
+            TagMap<Integer> map = new TagMap<>(tagSize);
+            Map<Tag, Integer> expected = new HashMap<>();
+            for (int i = 0; i < 2000; i++) {
+                Tag key = new Tag(tagSize);
+                map.put(key, i);
+                expected.put(key, i);
+            }
+            Map<Tag, Integer> seen = new HashMap<>();
+            Iterator<Map.Entry<Tag, Integer>> iterator = map.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Tag, Integer> entry = iterator.next();
+                assertNull("An entry was returned twice.", seen.put(entry.getKey(), entry.getValue()));
+                if (entry.getValue() % 2 == 0) {
+                    iterator.remove();
+                    expected.remove(entry.getKey());
+                }
+            }
+            assertEquals(expected, map);
+            Tag key = expected.keySet().iterator().next();
+            assertTrue(map.keySet().remove(key));
+            assertFalse(map.keySet().remove(key));
+            expected.remove(key);
+            Integer value = expected.values().iterator().next();
+            assertTrue(map.values().remove(value));
+            assertTrue(expected.values().remove(value));
+            assertTrue(map.entrySet().removeIf(entry -> entry.getValue() % 3 == 0));
+            assertTrue(expected.entrySet().removeIf(entry -> entry.getValue() % 3 == 0));
+            assertEquals(expected, map);
+        }
+
+        TagMap<String> map = new TagMap<>(2);
+        Map.Entry<Tag, String> held = null;
+        for (int i = 0; i < 100; i++) {
+            map.put(new Tag(2), "value");
+            if (held == null) held = map.entrySet().iterator().next();
+        }
+        Tag heldKey = held.getKey();
+        for (int i = 0; i < 2000; i++) {
+            Tag key = new Tag(2);
+            if (!key.equals(heldKey)) map.put(key, "moved");
+        }
+        assertEquals("value", held.setValue("changed"));
+        assertEquals("changed", map.get(heldKey));
+        assertEquals(1, map.values().stream().filter("changed"::equals).count());
+        map.remove(heldKey);
+        assertEquals("changed", held.setValue("removed"));
+        assertFalse(map.containsKey(heldKey));
+
+        logger.info("Completed testViews().");
+    }
+
+    /**
+     * This method tests the bulk operations.
+     */
+    @Test
+    public void testBulkOperations() {
+        logger.info("Beginning testBulkOperations()...");
+
+        Tag[] keys = new Tag[1000];
+        Integer[] values = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new Tag();
+            values[i] = i;
+        }
+        TagMap<Integer> map = new TagMap<>();
+        map.putAll(keys, values);
+        assertEquals(1000, map.size());
+        Tag[] lookups = new Tag[] { keys[3], new Tag(), keys[999] };
+        Integer[] results = new Integer[lookups.length];
+        assertEquals(2, map.getAll(lookups, results));
+        assertArrayEquals(new Integer[] { 3, null, 999 }, results);
+
+        logger.info("Completed testBulkOperations().");
+    }
+
+    /**
+     * This method tests a large map using keys that are equal to but not the same objects as
+     * the keys that were put into it.
+     */
+    @Test
+    public void testLargeMap() {
+        logger.info("Beginning testLargeMap()...");
+
+        int count = 300_000;
+        TagGenerator generator = new TagGenerator();
+        Tag[] keys = new Tag[count];
+        TagMap<Tag> tagMap = new TagMap<>();
+        for (int i = 0; i < count; i++) {
+            keys[i] = generator.generateTag();
+            assertNull(tagMap.put(keys[i], keys[i]));
+        }
+        assertEquals(count, tagMap.size());
+        for (int i = 0; i < count; i++) {
+            assertSame(keys[i], tagMap.get(new Tag(keys[i].toBytes())));
+        }
+        for (int i = 0; i < count; i += 2) {
+            assertSame(keys[i], tagMap.remove(new Tag(keys[i].toBytes())));
+        }
+        assertEquals(count / 2, tagMap.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i % 2 == 1 ? keys[i] : null, tagMap.get(keys[i]));
+        }
+
+        logger.info("Completed testLargeMap().");
+    }
+
+}
@@ -0,0 +1,160 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs unit tests on the <code>TagRouter</code> class.
+ *
+ * @author Derk Norton
+ */
+public class TagRouterTest {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(TagRouterTest.class);
+
+
+    /**
+     * Log a message at the beginning of the tests.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running TagRouter Unit Tests...\n");
+    }
+
+    /**
+     * Log a message at the end of the tests.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed TagRouter Unit Tests.\n");
+    }
+
+    /**
+     * This method tests that tags are spread across the nodes in proportion to their weights.
+     */
+    @Test
+    public void testDistribution() {
+        logger.info("Beginning testDistribution()...");
+
+        TagRouter<String> router = new TagRouter<>();
+        router.addNode("alpha", 1.0d);
+        router.addNode("beta", 2.0d);
+        router.addNode("gamma", 1.0d);
+        router.addNode("delta", 4.0d);
+        Tag[] tags = new Tag[80_000];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = new Tag();
+        }
+        String[] nodes = new String[tags.length];
+        router.route(tags, nodes);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < tags.length; i++) {
+            assertEquals(router.route(tags[i]), nodes[i]);
+            counts.merge(nodes[i], 1, Integer::sum);
+        }
+        logger.info("  Tags per node: {}", counts);
+        assertEquals(10_000, counts.get("alpha"), 600);
+        assertEquals(20_000, counts.get("beta"), 800);
+        assertEquals(10_000, counts.get("gamma"), 600);
+        assertEquals(40_000, counts.get("delta"), 1000);
+
+
+        // nodes with the same hash code (and even the same string) must share the tags
+        Object first = new Object() {
+            @Override public int hashCode() { return 42; }
+            @Override public String toString() { return "node"; }
+        };
+        Object second = new Object() {
+            @Override public int hashCode() { return 42; }
+            @Override public String toString() { return "node"; }
+        };
+        for (Object[] pair : new Object[][] { { "Aa", "BB" }, { first, second } }) {
+            assertEquals(pair[0].hashCode(), pair[1].hashCode());
+            TagRouter<Object> colliding = new TagRouter<>();
+            colliding.addNode(pair[0], 1.0d);
+            colliding.addNode(pair[1], 1.0d);
+            int count = 0;
+            for (int i = 0; i < 10_000; i++) {
+                if (colliding.route(tags[i]) == pair[0]) count++;
+            }
+            assertEquals(5_000, count, 300);
+        }
+
+        logger.info("Completed testDistribution().");
+    }
+
+    /**
+     * This method tests that adding and removing nodes moves as few tags as possible.
+     */
+    @Test
+    public void testMinimalMovement() {
+        logger.info("Beginning testMinimalMovement()...");
+
+        TagRouter<String> router = new TagRouter<>();
+        for (int i = 0; i < 9; i++) {
+            router.addNode("node" + i, 1.0d);
+        }
+        Tag[] tags = new Tag[50_000];
+        String[] before = new String[tags.length];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = i % 2 == 0 ? new Tag() : TagGenerator.getDefaultGenerator().generateOrderedTag();
+        }
+        router.route(tags, before);
+
+        router.addNode("node9", 1.0d);
+        String[] after = new String[tags.length];
+        router.route(tags, after);
+        int moved = 0;
+        for (int i = 0; i < tags.length; i++) {
+            if (!before[i].equals(after[i])) {
+                assertEquals("A tag moved between existing nodes.", "node9", after[i]);
+                moved++;
+            }
+        }
+        logger.info("  Adding a tenth node moved {} of {} tags.", moved, tags.length);
+        assertEquals(tags.length / 10, moved, 600);
+
+        assertTrue(router.removeNode("node3"));
+        assertFalse(router.removeNode("node3"));
+        String[] removed = new String[tags.length];
+        router.route(tags, removed);
+        for (int i = 0; i < tags.length; i++) {
+            if (!after[i].equals("node3")) assertEquals("A tag moved from a remaining node.", after[i], removed[i]);
+            assertNotEquals("node3", removed[i]);
+        }
+        assertEquals(9, router.getNodes().size());
+
+        TagRouter<String> other = new TagRouter<>();
+        for (String node : router.getNodes()) {
+            other.addNode(new String(node), 1.0d);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("Another router routed a tag differently.", removed[i], other.route(tags[i]));
+        }
+        try {
+            new TagRouter<String>().route(new Tag());
+            fail("A tag was routed without any nodes.");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        logger.info("Completed testMinimalMovement().");
+    }
+
+}
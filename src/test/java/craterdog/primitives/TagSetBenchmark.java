@@ -0,0 +1,132 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.lang.ref.Reference;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import org.junit.AfterClass;
+import static org.junit.Assert.assertEquals;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs benchmarks on the <code>TagSet</code> class.  The benchmarks are not
+ * run as part of the unit tests, they are run using the "benchmark" maven profile.  The sets
+ * grow from 1M tags up to the number given by the "benchmark.maxEntries" system property,
+ * which defaults to 10M.  A run up to 100M tags needs a heap of around 16GB for the hash set.
+ *
+ * @author Derk Norton
+ */
+public class TagSetBenchmark {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(TagSetBenchmark.class);
+
+
+    /**
+     * Log a message at the beginning of the benchmarks.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running TagSet Benchmarks...\n");
+    }
+
+    /**
+     * Log a message at the end of the benchmarks.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed TagSet Benchmarks.\n");
+    }
+
+    /**
+     * This method compares the memory usage and speed of a tag set with those of a hash set.
+     * The memory used by the hash set includes the tags it holds, since a tag set does not
+     * need them.  The lookups use tags that are equal to but not the same objects as the tags
+     * that were added.
+     */
+    @Test
+    public void benchmarkSets() {
+        logger.info("Beginning benchmarkSets()...");
+
+        int maximum = Integer.getInteger("benchmark.maxEntries", 10_000_000);
+        for (int count = 1_000_000; count <= maximum; count *= 10) {
+            long before = usedMemory();
+            long start = System.nanoTime();
+            Set<Tag> hashSet = new HashSet<>();
+            addTags(hashSet, count);
+            long hashSetInsert = System.nanoTime() - start;
+            long hashSetMemory = usedMemory() - before;
+            start = System.nanoTime();
+            assertEquals(count, countTags(hashSet, count));
+            long hashSetLookup = System.nanoTime() - start;
+            Reference.reachabilityFence(hashSet);
+            hashSet = null;
+
+            before = usedMemory();
+            start = System.nanoTime();
+            TagSet tagSet = new TagSet();
+            addTags(tagSet, count);
+            long tagSetInsert = System.nanoTime() - start;
+            long tagSetMemory = usedMemory() - before;
+            start = System.nanoTime();
+            assertEquals(count, countTags(tagSet, count));
+            long tagSetLookup = System.nanoTime() - start;
+            Reference.reachabilityFence(tagSet);
+            tagSet = null;
+
+            logger.info("  {} tags: HashSet {} bytes/tag, insert {} ms, lookup {} ms; TagSet {} bytes/tag, insert {} ms, lookup {} ms.",
+                    count, hashSetMemory / count, hashSetInsert / 1_000_000, hashSetLookup / 1_000_000,
+                    tagSetMemory / count, tagSetInsert / 1_000_000, tagSetLookup / 1_000_000);
+        }
+
+        logger.info("Completed benchmarkSets().");
+    }
+
+
+    /*
+     * The tags are generated from a seeded random number generator so that the same tags can
+     * be generated again for the lookups without holding on to them.
+     */
+    static private void addTags(Set<Tag> set, int count) {
+        SplittableRandom random = new SplittableRandom(count);
+        byte[] bytes = new byte[20];
+        for (int i = 0; i < count; i++) {
+            random.nextBytes(bytes);
+            set.add(new Tag(bytes));
+        }
+    }
+
+
+    static private int countTags(Set<Tag> set, int count) {
+        SplittableRandom random = new SplittableRandom(count);
+        byte[] bytes = new byte[20];
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            random.nextBytes(bytes);
+            if (set.contains(new Tag(bytes))) found++;
+        }
+        return found;
+    }
+
+
+    static private long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,240 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import craterdog.utils.RandomUtils;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs unit tests on the <code>TagSet</code> class.
+ *
+ * @author Derk Norton
+ */
+public class TagSetTest {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(TagSetTest.class);
+
+
+    /**
+     * Log a message at the beginning of the tests.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running TagSet Unit Tests...\n");
+    }
+
+    /**
+     * Log a message at the end of the tests.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed TagSet Unit Tests.\n");
+    }
+
+    /**
+     * This method compares the behavior of a tag set with that of a hash set for a random
+     * sequence of operations on a small tag size with lots of collisions.
+     */
+    @Test
+    public void testAgainstHashSet() {
+        logger.info("Beginning testAgainstHashSet()...");
+
+        for (int tagSize : new int[] { 1, 2, 3, 8, 20, 33 }) {
+            TagSet tags = new TagSet(tagSize);
+            Set<Tag> expected = new HashSet<>();
+            for (int i = 0; i < 20_000; i++) {
+                Tag tag = new Tag(tagSize);
+                switch (RandomUtils.pickRandomIndex(3)) {
+                    case 0:
+                        assertEquals(expected.add(tag), tags.add(tag));
+                        break;
+                    case 1:
+                        assertEquals(expected.remove(tag), tags.remove(tag));
+                        break;
+                    default:
+                        assertEquals(expected.contains(tag), tags.contains(tag));
+                }
+                if (i % 1000 == 0 && !expected.isEmpty()) {
+                    Tag existing = expected.iterator().next();
+                    assertTrue(tags.remove(existing));
+                    expected.remove(existing);
+                }
+            }
+            assertEquals(expected.size(), tags.size());
+            assertEquals(expected, tags);
+            assertEquals(tags, expected);
+            for (Tag tag : expected) {
+                assertTrue(tags.contains(tag));
+            }
+            tags.clear();
+            assertTrue(tags.isEmpty());
+            assertFalse(tags.iterator().hasNext());
+        }
+        TagSet tags = new TagSet();
+        assertFalse(tags.contains(new Tag(8)));
+        assertFalse(tags.contains("not a tag"));
+        try {
+            tags.add(new Tag(8));
+            fail("A tag of the wrong size was added.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        logger.info("Completed testAgainstHashSet().");
+    }
+
+    /**
+     * This method tests removing tags through the iterator and the collection methods that
+     * depend on it, using small tag sizes so that many tags wrap around the end of the table.
+     */
+    @Test
+    public void testIteratorRemoval() {
+        logger.info("Beginning testIteratorRemoval()...");
+
+        for (int tagSize : new int[] { 1, 2, 20 }) {
+            for (int round = 0; round < 20; round++) {
+                TagSet tags = new TagSet(tagSize);
+                Set<Tag> expected = new HashSet<>();
+                for (int i = 0; i < 150; i++) {
+                    Tag tag = new Tag(tagSize);
+                    tags.add(tag);
+                    expected.add(tag);
+                }
+                Set<Tag> all = new HashSet<>(expected);
+                Set<Tag> seen = new HashSet<>();
+                Iterator<Tag> iterator = tags.iterator();
+                while (iterator.hasNext()) {
+                    Tag tag = iterator.next();
+                    assertTrue("A tag was returned twice.", seen.add(tag));
+                    if (RandomUtils.pickRandomIndex(2) == 0) {
+                        iterator.remove();
+                        expected.remove(tag);
+                        assertFalse(tags.contains(tag));
+                    }
+                }
+                assertEquals("A tag was not returned.", all, seen);
+                assertEquals(expected, tags);
+                for (Tag tag : expected) {
+                    assertTrue(tags.contains(tag));
+                }
+            }
+        }
+
+        TagSet tags = new TagSet(2);
+        Set<Tag> expected = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            Tag tag = new Tag(2);
+            tags.add(tag);
+            expected.add(tag);
+        }
+        assertTrue(tags.removeIf(tag -> tag.hashCode() % 3 == 0));
+        assertTrue(expected.removeIf(tag -> tag.hashCode() % 3 == 0));
+        assertEquals(expected, tags);
+        Set<Tag> retained = new HashSet<>();
+        for (Tag tag : expected) {
+            if (tag.hashCode() % 2 == 0) retained.add(tag);
+        }
+        assertTrue(tags.retainAll(retained));
+        assertEquals(retained, tags);
+
+        Iterator<Tag> iterator = tags.iterator();
+        try {
+            iterator.remove();
+            fail("A tag was removed before the iterator returned one.");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        iterator.next();
+        iterator.remove();
+        try {
+            iterator.remove();
+            fail("A tag was removed twice.");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        tags.add(new Tag(2));
+        try {
+            iterator.next();
+            fail("The set was changed without the iterator noticing.");
+        } catch (ConcurrentModificationException e) {
+            // expected
+        }
+
+        logger.info("Completed testIteratorRemoval().");
+    }
+
+    /**
+     * This method tests the bulk operations.
+     */
+    @Test
+    public void testBulkOperations() {
+        logger.info("Beginning testBulkOperations()...");
+
+        Tag[] tags = new Tag[1000];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = new Tag();
+        }
+        TagSet set = new TagSet();
+        assertEquals(1000, set.addAll(tags));
+        assertEquals(0, set.addAll(tags));
+        Tag[] lookups = new Tag[] { tags[3], new Tag(), tags[999] };
+        boolean[] results = new boolean[lookups.length];
+        assertEquals(2, set.contains(lookups, results));
+        assertArrayEquals(new boolean[] { true, false, true }, results);
+
+        logger.info("Completed testBulkOperations().");
+    }
+
+    /**
+     * This method tests a large set using tags that are equal to but not the same objects as
+     * the tags that were added to it.
+     */
+    @Test
+    public void testLargeSet() {
+        logger.info("Beginning testLargeSet()...");
+
+        int count = 300_000;
+        TagGenerator generator = new TagGenerator();
+        Tag[] tags = new Tag[count];
+        TagSet tagSet = new TagSet();
+        for (int i = 0; i < count; i++) {
+            tags[i] = generator.generateTag();
+            assertTrue(tagSet.add(tags[i]));
+        }
+        assertEquals(count, tagSet.size());
+        for (Tag tag : tags) {
+            assertTrue(tagSet.contains(new Tag(tag.toBytes())));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(tagSet.contains(generator.generateTag()));
+        }
+
+        for (int i = 0; i < count; i += 2) {
+            assertTrue(tagSet.remove(tags[i]));
+        }
+        assertEquals(count / 2, tagSet.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i % 2 == 1, tagSet.contains(tags[i]));
+        }
+
+        logger.info("Completed testLargeSet().");
+    }
+
+}
@@ -9,9 +9,19 @@
  ************************************************************************/
 package craterdog.primitives;
 
+import craterdog.utils.Base32Utils;
+import craterdog.utils.ByteUtils;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
 import org.junit.AfterClass;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.slf4j.ext.XLogger;
@@ -71,4 +81,193 @@ public class TagTest {
         logger.info("Completed testRoundTrip().");
     }
 
+
+    /**
+     * This method tests that the packed tags behave exactly like their string encodings.
+     */
+    @Test
+    public void testPackedTags() {
+        logger.info("Beginning testPackedTags()...");
+
+        for (int i = 0; i <= 128; i++) {
+            Tag tag = new Tag(i);
+            byte[] bytes = tag.toBytes();
+            assertEquals(i, tag.getSize());
+            assertEquals(Base32Utils.encode(bytes), tag.toString());
+            assertEquals(Tag.stringSize(i), tag.toString().replaceAll("\\s", "").length());
+            assertEquals(ByteUtils.bytesToInt(bytes), tag.hashCode());
+            Tag copy = new Tag(tag.toString());
+            assertArrayEquals(bytes, copy.toBytes());
+            assertEquals(tag, copy);
+            assertEquals(tag.hashCode(), copy.hashCode());
+            if (i > 0) {
+                bytes[i - 1]++;
+                Tag different = new Tag(bytes);
+                assertFalse(tag.equals(different));
+                assertFalse(tag.toString().equals(different.toString()));
+            }
+        }
+        Tag tag = new Tag();
+        byte[] bytes = tag.toBytes();
+        Arrays.fill(bytes, (byte) 0);
+        assertFalse("The tag bytes are not immutable.", Arrays.equals(bytes, tag.toBytes()));
+
+        logger.info("Completed testPackedTags().");
+    }
+
+
+    /**
+     * This method tests parsing and encoding tags without intermediate strings.
+     */
+    @Test
+    public void testParseAndEncode() throws IOException {
+        logger.info("Beginning testParseAndEncode()...");
+
+        for (int i = 0; i <= 128; i++) {
+            Tag tag = new Tag(i);
+            String string = tag.toString();
+
+            StringBuilder builder = new StringBuilder("prefix:");
+            tag.appendTo(builder);
+            assertEquals("prefix:" + string, builder.toString());
+            assertEquals(tag, Tag.parse(builder.subSequence(7, builder.length())));
+
+            char[] chars = new char[string.length() + 2];
+            assertEquals(string.length(), tag.encode(chars, 1));
+            assertEquals(string, new String(chars, 1, string.length()));
+
+            ByteBuffer buffer = ByteBuffer.allocate(string.length() + 3);
+            buffer.put((byte) ' ');
+            assertEquals(string.length(), tag.encode(buffer));
+            assertEquals(string.length() + 1, buffer.position());
+            assertEquals(string, new String(buffer.array(), 1, string.length(), StandardCharsets.US_ASCII));
+            Tag parsed = Tag.parse(buffer, 0, buffer.position());
+            assertEquals(string.length() + 1, buffer.position());
+            assertEquals(tag, parsed);
+            assertEquals(string, parsed.toString());
+        }
+        assertEquals(new Tag("7ZQ8G6ZJZDV8T"), Tag.parse(" 7ZQ8G6Z\tJZDV8T\n"));
+        try {
+            Tag.parse("7ZQ8G6ZJZDV8U");
+            fail("An invalid base 32 character was accepted.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new Tag("7zq8g6zjzdv8t");
+            fail("An invalid base 32 character was accepted.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        for (String string : new String[] { "Z", "ZZZ", "7ZQ8G6ZJZDV8TZ", "ZZ", "7ZQ8G6ZJZDV8V" }) {
+            try {
+                new Tag(string);
+                fail("An invalid base 32 string was accepted: " + string);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            try {
+                Tag.parse(ByteBuffer.wrap(string.getBytes(StandardCharsets.US_ASCII)), 0, string.length());
+                fail("An invalid base 32 string was accepted: " + string);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        assertEquals("7ZQ8G6ZJZDV8T", new Tag(" 7ZQ8G6Z\tJZDV8T\n").toString());
+        Tag tag = new Tag("ZW");
+        assertEquals("ZW", tag.toString());
+        assertEquals("ZW", new Tag(tag.toBytes()).toString());
+
+        logger.info("Completed testParseAndEncode().");
+    }
+
+
+    /**
+     * This method tests that the ordering of tags matches the ordering of their strings.
+     */
+    @Test
+    public void testCompareTo() {
+        logger.info("Beginning testCompareTo()...");
+
+        for (int i = 0; i < 10_000; i++) {
+            Tag tag1 = new Tag(i % 64);
+            Tag tag2 = new Tag((i * 7) % 64);
+            if (i % 3 == 0) {
+                // force a long common prefix
+                byte[] bytes = tag1.toBytes();
+                if (bytes.length > 0) bytes[bytes.length - 1] ^= (byte) (1 << (i % 8));
+                tag2 = new Tag(bytes);
+            }
+            int compareBytes = tag1.compareTo(tag2);
+            int compareStrings = Integer.signum(tag1.toString().compareTo(tag2.toString()));
+            assertEquals(compareStrings, compareBytes);
+            assertEquals(-compareBytes, tag2.compareTo(tag1));
+            assertEquals(compareBytes == 0, tag1.equals(tag2));
+        }
+        Tag tag = new Tag();
+        assertEquals(0, tag.compareTo(new Tag(tag.toBytes())));
+        assertEquals(1, tag.compareTo(null));
+
+        logger.info("Completed testCompareTo().");
+    }
+
+
+    /**
+     * This method tests that sorting tags by their bytes puts them in the same order as
+     * sorting them by their strings.
+     */
+    @Test
+    public void testSortOrder() {
+        logger.info("Beginning testSortOrder()...");
+
+        for (int size : new int[] { 1, 5, 20, 33 }) {
+            Tag[] tags = new Tag[20_000];
+            for (int i = 0; i < tags.length; i++) {
+                tags[i] = new Tag(size);
+            }
+            Tag[] byStrings = Arrays.copyOf(tags, tags.length);
+            Arrays.sort(byStrings, Comparator.comparing(Tag::toString));
+            Tag[] byBytes = Arrays.copyOf(tags, tags.length);
+            Arrays.sort(byBytes);
+            assertArrayEquals(byStrings, byBytes);
+        }
+
+        logger.info("Completed testSortOrder().");
+    }
+
+
+    /**
+     * This method tests that tags of each size are equal however they are created, and that
+     * they keep their own copy of their value.
+     */
+    @Test
+    public void testCopiedValues() {
+        logger.info("Beginning testCopiedValues()...");
+
+        for (int size : new int[] { 0, 8, 19, 20, 21, 64 }) {
+            for (int i = 0; i < 20; i++) {
+                Tag tag = new Tag(size);
+                byte[] bytes = tag.toBytes();
+                String string = tag.toString();
+                for (Tag copy : new Tag[] { new Tag(string), Tag.parse(string), new Tag(bytes) }) {
+                    assertEquals(tag, copy);
+                    assertEquals(tag.hashCode(), copy.hashCode());
+                    assertEquals(0, tag.compareTo(copy));
+                    assertEquals(size, copy.getSize());
+                    assertArrayEquals(bytes, copy.toBytes());
+                    assertEquals(string, copy.toString());
+                }
+                if (size > 0) {
+                    Tag copy = new Tag(bytes);
+                    bytes[size - 1]++;
+                    assertEquals("The tag does not copy its value.", tag, copy);
+                    copy.toBytes()[0]++;
+                    assertEquals("The tag does not copy its value.", tag, copy);
+                }
+            }
+        }
+
+        logger.info("Completed testCopiedValues().");
+    }
+
 }
@@ -0,0 +1,94 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.lang.ref.Reference;
+import org.junit.AfterClass;
+import static org.junit.Assert.assertSame;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs benchmarks on the <code>TagTrie</code> class.  The benchmarks are not
+ * run as part of the unit tests, they are run using the "benchmark" maven profile.
+ *
+ * @author Derk Norton
+ */
+public class TagTrieBenchmark {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(TagTrieBenchmark.class);
+
+
+    /**
+     * Log a message at the beginning of the benchmarks.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running TagTrie Benchmarks...\n");
+    }
+
+    /**
+     * Log a message at the end of the benchmarks.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed TagTrie Benchmarks.\n");
+    }
+
+    /**
+     * This method measures the memory used by the nodes of a large trie, and the time taken
+     * to fill it and to resolve the shortest prefixes of its tags.
+     */
+    @Test
+    public void benchmarkHeapUsage() {
+        logger.info("Beginning benchmarkHeapUsage()...");
+
+        int count = 1_000_000;
+        TagGenerator generator = new TagGenerator();
+        Tag[] tags = new Tag[count];
+        for (int i = 0; i < count; i++) {
+            tags[i] = generator.generateTag();
+        }
+        for (int round = 0; round < 3; round++) {
+            long before = usedMemory();
+            long start = System.nanoTime();
+            TagTrie trie = new TagTrie();
+            for (Tag tag : tags) {
+                trie.add(tag);
+            }
+            long insert = System.nanoTime() - start;
+            long nodes = usedMemory() - before;
+            start = System.nanoTime();
+            for (int i = 0; i < count; i += 10) {
+                assertSame(tags[i], trie.resolve(trie.getShortestPrefix(tags[i])));
+            }
+            long resolve = System.nanoTime() - start;
+            logger.info("  {} tags: {} bytes/tag for the nodes (plus the tags), insert {} ms, {} resolves {} ms.",
+                    count, nodes / count, insert / 1_000_000, count / 10, resolve / 1_000_000);
+            Reference.reachabilityFence(trie);
+        }
+        Reference.reachabilityFence(tags);
+
+        logger.info("Completed benchmarkHeapUsage().");
+    }
+
+
+    static private long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,181 @@
+/************************************************************************
+ * Copyright (c) Crater Dog Technologies(TM).  All Rights Reserved.     *
+ ************************************************************************
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.        *
+ *                                                                      *
+ * This code is free software; you can redistribute it and/or modify it *
+ * under the terms of The MIT License (MIT), as published by the Open   *
+ * Source Initiative. (See http://opensource.org/licenses/MIT)          *
+ ************************************************************************/
+package craterdog.primitives;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+
+/**
+ * This class performs unit tests on the <code>TagTrie</code> class.
+ *
+ * @author Derk Norton
+ */
+public class TagTrieTest {
+
+    static private final XLogger logger = XLoggerFactory.getXLogger(TagTrieTest.class);
+
+
+    /**
+     * Log a message at the beginning of the tests.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        logger.info("Running TagTrie Unit Tests...\n");
+    }
+
+    /**
+     * Log a message at the end of the tests.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        logger.info("Completed TagTrie Unit Tests.\n");
+    }
+
+    /**
+     * This method compares the trie with a linear scan of the tag strings.
+     */
+    @Test
+    public void testAgainstLinearScan() {
+        logger.info("Beginning testAgainstLinearScan()...");
+
+        for (int tagSize : new int[] { 2, 3, 20 }) {
+            TagTrie trie = new TagTrie(tagSize);
+            TreeSet<Tag> tags = new TreeSet<>();
+            for (int i = 0; i < 5000; i++) {
+                Tag tag = new Tag(tagSize);
+                assertEquals(tags.add(tag), trie.add(tag));
+                assertFalse(trie.add(new Tag(tag.toBytes())));
+            }
+            assertEquals(tags.size(), trie.getSize());
+            List<Tag> all = trie.getTags("", Integer.MAX_VALUE);
+            assertEquals(new ArrayList<>(tags), all);
+            int checked = 0;
+            for (Tag tag : tags) {
+                if (checked++ > 500) break;
+                assertTrue(trie.contains(tag));
+                String prefix = trie.getShortestPrefix(tag);
+                assertSame(tag, trie.resolve(prefix));
+                assertEquals(1, matches(tags, prefix).size());
+                for (int length = 1; length <= prefix.length(); length++) {
+                    String shorter = prefix.substring(0, length);
+                    assertEquals(matches(tags, shorter), trie.getTags(shorter, Integer.MAX_VALUE));
+                }
+                if (prefix.length() > 1) {
+                    String ambiguous = prefix.substring(0, prefix.length() - 1);
+                    assertNull(trie.resolve(ambiguous));
+                    assertTrue(matches(tags, ambiguous).size() > 1);
+                }
+            }
+            for (int i = 0; i < 500; i++) {
+                Tag tag = new Tag(tagSize);
+                if (tags.contains(tag)) continue;
+                assertFalse(trie.contains(tag));
+                String prefix = trie.getShortestPrefix(tag);
+                assertTrue(matches(tags, prefix).isEmpty());
+                assertNull(trie.resolve(prefix));
+                if (prefix.length() > 1) {
+                    assertFalse(matches(tags, prefix.substring(0, prefix.length() - 1)).isEmpty());
+                }
+            }
+            assertTrue(trie.getTags("ZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZ", 10).isEmpty());
+        }
+        try {
+            new TagTrie().resolve("7U");
+            fail("An invalid base 32 character was accepted.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        logger.info("Completed testAgainstLinearScan().");
+    }
+
+
+    /**
+     * This method checks the shortest prefixes of tags whose branch of the trie is a single
+     * tag below the node where the prefix stops.
+     */
+    @Test
+    public void testShortestPrefix() {
+        logger.info("Beginning testShortestPrefix()...");
+        String zeros = "00000000000000000000000000000000";
+        Tag first = new Tag("AAAAA0" + zeros.substring(6));
+        Tag second = new Tag("AAAAA1" + zeros.substring(6));
+        Tag third = new Tag("AAB" + zeros.substring(3));
+        TagTrie trie = new TagTrie(20);
+        trie.add(first);
+        assertEquals("A", trie.getShortestPrefix(first));
+        trie.add(second);
+        trie.add(third);
+        assertEquals("AAAAA0", trie.getShortestPrefix(first));
+        assertEquals("AAAAA1", trie.getShortestPrefix(second));
+        assertEquals("AAB", trie.getShortestPrefix(third));  // a single tag below the root node
+        assertEquals("AAC", trie.getShortestPrefix(new Tag("AAC" + zeros.substring(3))));
+        assertEquals("AAAAA2", trie.getShortestPrefix(new Tag("AAAAA2" + zeros.substring(6))));
+        assertEquals("AAAB", trie.getShortestPrefix(new Tag("AAAB" + zeros.substring(4))));
+        logger.info("Completed testShortestPrefix().");
+    }
+
+    /**
+     * This method verifies that a large trie returns its tags in order for each prefix, and
+     * that each shortest prefix resolves to its tag while one character less is ambiguous.
+     */
+    @Test
+    public void testLargeTrie() {
+        logger.info("Beginning testLargeTrie()...");
+
+        int count = 200_000;
+        TagGenerator generator = new TagGenerator();
+        Tag[] tags = new Tag[count];
+        TagTrie trie = new TagTrie();
+        for (int i = 0; i < count; i++) {
+            tags[i] = generator.generateTag();
+            assertTrue(trie.add(tags[i]));
+        }
+        assertEquals(count, trie.getSize());
+        for (int i = 0; i < count; i += 100) {
+            assertFalse(trie.add(new Tag(tags[i].toString())));
+            String prefix = trie.getShortestPrefix(tags[i]);
+            assertSame(tags[i], trie.resolve(prefix));
+            if (prefix.length() > 1) assertNull(trie.resolve(prefix.substring(0, prefix.length() - 1)));
+        }
+
+        Tag[] sorted = tags.clone();
+        Arrays.sort(sorted);
+        assertEquals(Arrays.asList(sorted), trie.getTags("", Integer.MAX_VALUE));
+        int start = 0;
+        for (int i = 1; i <= count; i++) {
+            String prefix = sorted[start].toString().substring(0, 3);
+            if (i < count && sorted[i].toString().startsWith(prefix)) continue;
+            assertEquals(Arrays.asList(sorted).subList(start, i), trie.getTags(prefix, Integer.MAX_VALUE));
+            start = i;
+        }
+
+        logger.info("Completed testLargeTrie().");
+    }
+
+
+    static private List<Tag> matches(TreeSet<Tag> tags, String prefix) {
+        List<Tag> matches = new ArrayList<>();
+        for (Tag tag : tags) {
+            if (tag.toString().startsWith(prefix)) matches.add(tag);
+        }
+        return matches;
+    }
+
+}
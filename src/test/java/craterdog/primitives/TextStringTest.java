@@ -159,6 +159,17 @@ public class TextStringTest {
             count++;
         }
         assertEquals("The iterator is not consistent.", string.length(), count);
+
+        TextString.TextIterator iterator = text.createIterator();
+        for (int i = 0; i < string.length(); i++) {
+            assertEquals("The nextChar method is not consistent.", string.charAt(i), iterator.nextChar());
+        }
+        assertEquals("The previousChar method is not consistent.", '.', iterator.previousChar());
+        StringBuilder builder = new StringBuilder();
+        text.forEachChar(c -> builder.append((char) c));
+        assertEquals("The forEachChar method is not consistent.", string, builder.toString());
+        assertArrayEquals("The chars method is not consistent.", string.chars().toArray(), text.chars().parallel().toArray());
+        assertArrayEquals("The codePoints method is not consistent.", string.codePoints().toArray(), text.codePoints().toArray());
         logger.info("Completed testIterator().");
     }
 
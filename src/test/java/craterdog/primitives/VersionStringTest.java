@@ -67,6 +67,14 @@ public class VersionStringTest {
         for (int version : middle) {
             assertEquals(count++, version);
         }
+        VersionString.VersionIterator iterator = middle.createIterator();
+        assertEquals(1, iterator.nextInt());
+        assertEquals(2, iterator.nextInt());
+        assertEquals(2, iterator.previousInt());
+        int[] sum = new int[1];
+        middle.forEachInt(version -> sum[0] += version);
+        assertEquals(6, sum[0]);
+        assertArrayEquals(new int[] { 1, 2, 3 }, middle.numbers().toArray());
 
         try {
             VersionString negative = new VersionString(-1);